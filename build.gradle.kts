@@ -80,4 +80,15 @@ tasks.withType<Test> {
 
 tasks.withType<org.springframework.boot.gradle.tasks.bundling.BootJar> {
     archiveFileName.set("assistant.jar")
-}
\ No newline at end of file
+}
+
+// Offline MCP round-trip benchmark against the fake server over stdio or HTTP, e.g.
+// ./gradlew mcpBenchmark -Pargs="--concurrency=32 --duration=30s --batch=4"
+// ./gradlew mcpBenchmark -Pargs="--transport=http --concurrency=32"
+tasks.register<JavaExec>("mcpBenchmark") {
+    description = "Benchmarks StdioMcpClient and HttpMcpClient against FakeMcpServer"
+    group = "verification"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("at.altenburger.assistant.mcp.McpRoundTripBenchmark")
+    args = (findProperty("args") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
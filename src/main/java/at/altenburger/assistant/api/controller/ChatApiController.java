@@ -16,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
@@ -57,7 +58,7 @@ public class ChatApiController {
 
         // Process query with conversation context
         AiOrchestrationService.QueryResult result = orchestrationService.processQuery(
-            request.getMessage(), conversationId);
+            request.getMessage(), conversationId, request.isBypassCache());
 
         // Save messages to database
         conversationService.addMessage(conversationId, "user", request.getMessage(), null);
@@ -69,10 +70,20 @@ public class ChatApiController {
                 .conversationId(conversationId)
                 .traceId(result.getTraceId())
                 .success(result.isSuccess())
+                .cached(result.isCached())
                 .error(result.getError())
                 .durationMs(result.getTotalDurationMs())
                 .anonymizedEntities(result.getAnonymizedEntities())
                 .toolsUsed(result.getToolsUsed())
+                .toolTimings(result.getToolTimings().stream()
+                        .map(timing -> ChatResponse.ToolTiming.builder()
+                                .server(timing.serverName())
+                                .tool(timing.toolName())
+                                .startOffsetMs(timing.startOffsetMs())
+                                .durationMs(timing.durationMs())
+                                .success(timing.success())
+                                .build())
+                        .toList())
                 .build();
 
         return ResponseEntity.ok(response);
@@ -82,14 +93,16 @@ public class ChatApiController {
     @Operation(
         summary = "Send a chat message with streaming response",
         description = "Send a message and receive the response as a stream of Server-Sent Events. " +
-                     "Each event contains a chunk of the response text.",
+                     "Unnamed events contain a chunk of the response text. Events named 'tool' report " +
+                     "the start, progress and end of tool calls as JSON, so clients can show tool activity " +
+                     "before the answer starts.",
         responses = {
             @ApiResponse(responseCode = "200", description = "Streaming response"),
             @ApiResponse(responseCode = "400", description = "Invalid request"),
             @ApiResponse(responseCode = "500", description = "Server error")
         }
     )
-    public Flux<String> chatStream(
+    public Flux<ServerSentEvent<Object>> chatStream(
             @Valid @RequestBody @Parameter(description = "Chat request containing the user message")
             ChatRequest request) {
 
@@ -107,7 +120,14 @@ public class ChatApiController {
         StringBuilder fullResponse = new StringBuilder();
 
         return orchestrationService.processQueryStream(request.getMessage(), conversationId)
-            .doOnNext(chunk -> fullResponse.append(chunk))
+            .doOnNext(event -> {
+                if (event.text() != null) {
+                    fullResponse.append(event.text());
+                }
+            })
+            .map(event -> event.text() != null
+                ? ServerSentEvent.<Object>builder(event.text()).build()
+                : ServerSentEvent.<Object>builder(event.toolEvent()).event("tool").build())
             .doOnComplete(() -> {
                 // Save the complete response after streaming finishes
                 conversationService.addMessage(conversationId, "assistant", fullResponse.toString(), null);
@@ -12,4 +12,6 @@ public class ChatRequest {
     private String message;
     
     private String conversationId;
+
+    private boolean bypassCache; // skip the response cache lookup, the new answer still refreshes the entry
 }
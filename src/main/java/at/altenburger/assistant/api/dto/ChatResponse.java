@@ -17,8 +17,22 @@ public class ChatResponse {
     private String conversationId;
     private String traceId;
     private boolean success;
+    private boolean cached; // answered from the response cache
     private String error;
     private long durationMs;
     private int anonymizedEntities;
     private List<String> toolsUsed;
+    private List<ToolTiming> toolTimings;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ToolTiming {
+        private String server;
+        private String tool;
+        private long startOffsetMs;
+        private long durationMs;
+        private boolean success;
+    }
 }
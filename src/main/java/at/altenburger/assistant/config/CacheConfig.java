@@ -1,30 +1,54 @@
 package at.altenburger.assistant.config;
 
+import at.altenburger.assistant.mcp.CachedToolResult;
+import at.altenburger.assistant.service.CachedResponse;
+import at.altenburger.assistant.service.ResponseCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
     
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(ResponseCacheConfig responseCacheConfig) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager(
                 "routing-decisions",
-                "mcp-tool-results",
                 "conversation-summaries"
         );
         
         cacheManager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(1000)
-                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .expireAfterWrite(DEFAULT_TTL.toMinutes(), TimeUnit.MINUTES)
                 .recordStats());
+
+        // Tool results carry their own TTL (configured per tool)
+        cacheManager.registerCustomCache("mcp-tool-results", Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfter(Expiry.creating((Object key, Object value) ->
+                        value instanceof CachedToolResult result && result.ttl() != null ? result.ttl() : DEFAULT_TTL))
+                .recordStats()
+                .build());
+
+        // LLM answers expire with the shortest TTL of the tools they used
+        cacheManager.registerCustomCache(ResponseCache.CACHE_NAME, Caffeine.newBuilder()
+                .maximumSize(responseCacheConfig.getMaxEntries())
+                .expireAfter(Expiry.creating((Object key, Object value) ->
+                        value instanceof CachedResponse response && response.ttl() != null
+                                ? response.ttl()
+                                : responseCacheConfig.getTtl()))
+                .recordStats()
+                .build());
         
         return cacheManager;
     }
@@ -0,0 +1,30 @@
+package at.altenburger.assistant.config;
+
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The chat client shared by all requests, built once with the system prompt and options every
+ * request starts with. Requests only add history, query and tools, so the start of every
+ * prompt is identical and can be served from OpenAI's prompt cache. That holds as long as every
+ * request carries the same tools: with tool selection enabled the tools array changes with the
+ * query and only the system prompt stays cacheable (see {@link ToolSelectionConfig}).
+ */
+@Configuration
+public class ChatClientConfig {
+
+    @Bean
+    public ChatClient chatClient(OpenAiChatModel chatModel,
+                                 @Value("${assistant.system-prompt:You are a helpful AI assistant. Answer questions directly and concisely. Use available tools when they can help provide accurate, up-to-date information.}")
+                                 String systemPrompt) {
+        return ChatClient.builder(chatModel)
+                .defaultSystem(systemPrompt)
+                // Streamed responses report token usage in their last chunk, including cached prompt tokens
+                .defaultOptions(OpenAiChatOptions.builder().streamUsage(true).build())
+                .build();
+    }
+}
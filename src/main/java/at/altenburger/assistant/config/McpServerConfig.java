@@ -1,9 +1,14 @@
 package at.altenburger.assistant.config;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,17 +16,222 @@ import java.util.Map;
 @Configuration
 @ConfigurationProperties(prefix = "assistant.mcp")
 public class McpServerConfig {
+
+    private static final ToolPolicy DEFAULT_TOOL_POLICY = new ToolPolicy();
     
     private List<McpServer> servers;
+
+    /**
+     * Overall deadline for starting all servers in parallel. Servers that are
+     * still starting when it passes keep starting in the background.
+     */
+    private Duration startupTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Start servers in the background and let the application become ready right away.
+     */
+    private boolean backgroundStartup = false;
+
+    /**
+     * Expose tools whose name is provided by more than one server as {@code <server>__<tool>}.
+     * Otherwise the first server in configuration order wins.
+     */
+    private boolean namespaceCollidingTools = false;
+
+    /**
+     * Compaction of tool descriptions and schemas before they are sent to the LLM.
+     */
+    private SchemaCompaction schemaCompaction = new SchemaCompaction();
+
+    /**
+     * How much of tool parameters and results goes into spans and logs.
+     */
+    private PayloadCapture payloadCapture = new PayloadCapture();
+
+    /**
+     * How often CPU and memory of stdio server processes are sampled and their recycle policies checked.
+     */
+    private Duration processSampleInterval = Duration.ofSeconds(15);
+
+    /**
+     * Fail at startup on settings that would otherwise be ignored silently at the first call.
+     */
+    @PostConstruct
+    public void validate() {
+        if (servers != null) {
+            servers.forEach(McpServer::validate);
+        }
+    }
     
     @Data
     public static class McpServer {
         private String name;
-        private String type; // stdio, sse, websocket
+        private String type; // stdio, http, in-process
         private String command;
         private List<String> args;
         private Map<String, String> env;
+        private String url; // endpoint for the http transport
+        private Map<String, String> headers; // extra request headers for the http transport
         private boolean enabled = true;
         private String description;
+        private boolean batchRequests = false; // server accepts JSON-RPC batch arrays (stdio)
+        private Duration drainTimeout = Duration.ofSeconds(30); // longest wait for calls in flight when replaced or removed
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private Bulkhead bulkhead = new Bulkhead();
+        private StateMirror stateMirror = new StateMirror();
+        private Liveness liveness = new Liveness();
+        private Recycle recycle = new Recycle();
+
+        /**
+         * Per-tool policies keyed by tool name. Tools without an entry use the defaults of {@link ToolPolicy}.
+         */
+        private Map<String, ToolPolicy> tools = new HashMap<>();
+
+        /**
+         * Get the policy configured for a tool, or the default policy.
+         */
+        public ToolPolicy getToolPolicy(String toolName) {
+            return tools.getOrDefault(toolName, DEFAULT_TOOL_POLICY);
+        }
+
+        /**
+         * Reject tool policies that cannot work as configured.
+         */
+        public void validate() {
+            tools.forEach((toolName, policy) -> {
+                if (policy.getCache() == CachePolicy.TTL && (policy.getTtl() == null || !policy.getTtl().isPositive())) {
+                    throw new IllegalArgumentException("Tool " + toolName + " of MCP server " + name
+                        + " is cached with cache=ttl but has no positive ttl");
+                }
+            });
+        }
+    }
+
+    @Data
+    public static class ToolPolicy {
+        private CachePolicy cache = CachePolicy.NEVER;
+        private Duration ttl; // required for CachePolicy.TTL, checked at binding time
+        private Boolean readOnly; // read-only tools may share concurrent identical calls
+        private DataSize maxResultSize = DataSize.ofKilobytes(16); // larger results are reduced for the LLM
+        private int maxArrayItems = 0; // always keep at most this many array items, 0 only reduces over budget
+        private int maxStringLength = 0; // always truncate longer strings, 0 only reduces over budget
+
+        /**
+         * Cacheable tools are read-only unless configured otherwise.
+         */
+        public boolean isReadOnly() {
+            return readOnly != null ? readOnly : cache != CachePolicy.NEVER;
+        }
+    }
+
+    /**
+     * Stops calling a server that keeps failing or answering slowly, so tool calls fail fast
+     * instead of waiting for the request timeout.
+     */
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private int slidingWindowSize = 20; // calls the rates are computed over
+        private int minimumCalls = 5; // calls before the rates are evaluated
+        private int failureRateThreshold = 50; // percent
+        private Duration slowCallDuration = Duration.ofSeconds(10);
+        private int slowCallRateThreshold = 80; // percent
+        private Duration openDuration = Duration.ofSeconds(30); // before probing again
+        private int halfOpenCalls = 3; // probe calls that must succeed to close
+    }
+
+    /**
+     * Limits the concurrent tool calls per server.
+     */
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 8;
+        private int maxQueuedCalls = 16;
+        private Duration maxQueueWait = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Answers state-read tools from an in-memory copy refreshed in the background,
+     * instead of a round trip to the server for every read. Other tools still go to the server.
+     */
+    @Data
+    public static class StateMirror {
+        private List<String> tools = new ArrayList<>(); // read-only tools to mirror, none disables the mirror
+        private Duration refreshInterval = Duration.ofSeconds(30);
+        private Duration maxStaleness = Duration.ofSeconds(60); // older copies are not served, unread ones not refreshed
+        private int maxEntries = 100; // mirrored calls per server, the least recently read are dropped beyond it
+        private List<String> refreshOn = List.of("notifications/resources/updated"); // notifications that trigger a refresh
+    }
+
+    /**
+     * Pings an out-of-process server while it is idle. A process that is alive but stuck is
+     * restarted before a user's call runs into the request timeout, and servers that load
+     * lazily stay warm between bursts of traffic.
+     */
+    @Data
+    public static class Liveness {
+        private boolean enabled = true;
+        private Duration pingInterval = Duration.ofSeconds(30); // longest a server stays without a message
+        private Duration pingTimeout = Duration.ofSeconds(5);
+        private Duration slowPing = Duration.ofSeconds(2); // slower answers count as failed pings
+        private int unhealthyPings = 3; // consecutive failed pings before the server is restarted
+    }
+
+    /**
+     * Replaces the process of a stdio server with a fresh one, for servers that leak memory or
+     * slow down over days of uptime. The new process is started first, the old one finishes
+     * its calls in flight before it is stopped. All limits are off by default.
+     * <p>
+     * max-rss is only checked once a process has warmed up. If it already needs max-rss by then, a
+     * fresh process would too: the limit is reported as too low and not applied to that process.
+     */
+    @Data
+    public static class Recycle {
+        private long maxCalls = 0; // tool calls per process, 0 for no limit
+        private DataSize maxRss; // resident memory of the process and its children
+        private Duration rssWarmup = Duration.ofMinutes(2); // time after a start before max-rss is checked
+        private Duration maxAge;
+    }
+
+    @Data
+    public static class SchemaCompaction {
+        private boolean enabled = true;
+        private int maxDescriptionTokens = 150; // tool descriptions, 0 disables trimming
+        private int maxParameterDescriptionTokens = 40; // descriptions inside the input schema
+    }
+
+    @Data
+    public static class PayloadCapture {
+        private CaptureMode mode = CaptureMode.OFF;
+        private DataSize maxSize = DataSize.ofBytes(512); // per captured payload, for capped and sampled
+        private double sampleRate = 0.01; // fraction of calls captured in sampled mode
+    }
+
+    public enum CaptureMode {
+        OFF,        // payloads never leave the client, only sizes and durations
+        CAPPED,     // every payload, cut at max-size
+        SAMPLED     // a sample-rate fraction of calls, cut at max-size
+    }
+
+    public enum CachePolicy {
+        NEVER,      // e.g. Home Assistant service calls that change state
+        CACHEABLE,  // cached for the default lifetime of the mcp-tool-results cache
+        TTL         // cached for the tool's own ttl
+    }
+
+    /**
+     * Get the policy configured for a tool, or the default policy. Only covers the servers configured at
+     * startup; {@code McpDiscoveryService#getToolPolicy} also knows servers added or reconfigured since.
+     */
+    public ToolPolicy getToolPolicy(String serverName, String toolName) {
+        if (servers == null) {
+            return DEFAULT_TOOL_POLICY;
+        }
+        for (McpServer server : servers) {
+            if (server.getName().equals(serverName)) {
+                return server.getToolPolicy(toolName);
+            }
+        }
+        return DEFAULT_TOOL_POLICY;
     }
 }
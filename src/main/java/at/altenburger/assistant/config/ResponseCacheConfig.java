@@ -0,0 +1,30 @@
+package at.altenburger.assistant.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "assistant.response-cache")
+public class ResponseCacheConfig {
+
+    /**
+     * Answer repeated questions from the llm-responses cache instead of calling the LLM.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Lifetime of answers that used no tools. Answers that used cacheable tools expire with the shortest tool TTL.
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    private int maxEntries = 1000;
+
+    /**
+     * Serve the answer of a similar cached question scoring at least this (0 to 1), 0 for exact matches only.
+     */
+    private double minSimilarity = 0;
+}
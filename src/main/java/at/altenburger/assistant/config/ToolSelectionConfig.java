@@ -0,0 +1,33 @@
+package at.altenburger.assistant.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "assistant.tool-selection")
+public class ToolSelectionConfig {
+
+    /**
+     * Attach only the tools relevant to the query instead of all MCP tools. Off until its recall has been
+     * measured against the tool set in use. Trades prompt caching for a smaller prompt: the tools follow
+     * the system prompt, so a tools array that changes with the query ends the cached prefix there.
+     * Leave it off while most of the prompt is served from the cache.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of best-ranked tools attached per query, in addition to the pinned tools.
+     */
+    private int topK = 8;
+
+    /**
+     * Tools that are attached to every query, by exposed name. State-read and context tools belong here:
+     * questions about the current state rarely share a term with them.
+     */
+    private List<String> pinnedTools = new ArrayList<>(List.of("GetLiveContext", "get_current_datetime"));
+}
@@ -0,0 +1,10 @@
+package at.altenburger.assistant.core.exception;
+
+/**
+ * A call was rejected without reaching the MCP server (circuit open or bulkhead full).
+ */
+public class McpServerUnavailableException extends McpServerException {
+    public McpServerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,108 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Okapi BM25 over tool names, descriptions and parameter names.
+ * Name terms count twice, they are the most specific part of a tool.
+ */
+public class Bm25ToolScorer implements ToolScorer {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+        "of", "on", "or", "the", "this", "that", "to", "with", "you", "your");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public ToolIndex index(List<ToolDefinition> tools) {
+        List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        int[] lengths = new int[tools.size()];
+        long totalLength = 0;
+
+        for (int i = 0; i < tools.size(); i++) {
+            List<String> terms = documentTerms(tools.get(i));
+            Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+
+            termFrequencies.add(frequencies);
+            lengths[i] = terms.size();
+            totalLength += terms.size();
+        }
+
+        int documentCount = tools.size();
+        double averageLength = documentCount > 0 ? Math.max(1.0, (double) totalLength / documentCount) : 1.0;
+        Map<String, Double> idf = new HashMap<>();
+        documentFrequencies.forEach((term, df) ->
+            idf.put(term, Math.log(1 + (documentCount - df + 0.5) / (df + 0.5))));
+
+        return query -> {
+            double[] scores = new double[documentCount];
+            for (String term : new HashSet<>(tokenize(query))) {
+                Double termIdf = idf.get(term);
+                if (termIdf == null) {
+                    continue;
+                }
+                for (int i = 0; i < documentCount; i++) {
+                    Integer tf = termFrequencies.get(i).get(term);
+                    if (tf != null) {
+                        double norm = K1 * (1 - B + B * lengths[i] / averageLength);
+                        scores[i] += termIdf * tf * (K1 + 1) / (tf + norm);
+                    }
+                }
+            }
+            return scores;
+        };
+    }
+
+    private List<String> documentTerms(ToolDefinition tool) {
+        List<String> terms = new ArrayList<>();
+        List<String> nameTerms = tokenize(tool.name());
+        terms.addAll(nameTerms);
+        terms.addAll(nameTerms);
+        terms.addAll(tokenize(tool.description()));
+        try {
+            JsonNode properties = objectMapper.readTree(tool.inputSchema()).path("properties");
+            properties.fieldNames().forEachRemaining(name -> terms.addAll(tokenize(name)));
+        } catch (Exception e) {
+            // Malformed schema - rank by name and description only
+        }
+        return terms;
+    }
+
+    /**
+     * Split camelCase and snake_case, lowercase, drop stop words and plural s.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String separated = text.replaceAll("(\\p{Ll})(\\p{Lu})", "$1 $2").toLowerCase(Locale.ROOT);
+        for (String token : separated.split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() < 2 || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+                token = token.substring(0, token.length() - 1);
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,15 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+
+/**
+ * Entry of the mcp-tool-results cache.
+ *
+ * @param result    the tool result as returned by the MCP server
+ * @param ttl       lifetime of the entry, null for the cache default
+ * @param latencyNanos how long the original call took, i.e. the latency saved per hit
+ */
+public record CachedToolResult(JsonNode result, Duration ttl, long latencyNanos) {
+}
@@ -0,0 +1,77 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the tool calls of a client through the circuit breaker and bulkhead of its server.
+ * Lifecycle, tool listing and pings go straight to the client.
+ */
+class GuardedMcpClient implements McpClient {
+
+    private final McpClient delegate;
+    private final McpServerGuard guard;
+
+    GuardedMcpClient(McpClient delegate, McpServerGuard guard) {
+        this.delegate = delegate;
+        this.guard = guard;
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        delegate.initialize();
+    }
+
+    @Override
+    public List<McpTool> listTools() throws Exception {
+        return delegate.listTools();
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception {
+        return guard.call(() -> delegate.callTool(toolName, parameters));
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, JsonNode arguments) throws Exception {
+        return guard.call(() -> delegate.callTool(toolName, arguments));
+    }
+
+    @Override
+    public List<JsonNode> callTools(List<ToolInvocation> invocations) throws Exception {
+        return guard.call(() -> delegate.callTools(invocations));
+    }
+
+    @Override
+    public void addNotificationListener(McpNotificationListener listener) {
+        delegate.addNotificationListener(listener);
+    }
+
+    @Override
+    public void ping(Duration timeout) throws Exception {
+        delegate.ping(timeout);
+    }
+
+    @Override
+    public Duration idleTime() {
+        return delegate.idleTime();
+    }
+
+    @Override
+    public int inFlightCalls() {
+        return delegate.inFlightCalls();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
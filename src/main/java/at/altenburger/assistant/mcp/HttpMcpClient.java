@@ -0,0 +1,361 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * MCP client for the streamable HTTP transport.
+ * Every JSON-RPC message is POSTed to a single endpoint; the server answers either
+ * with a plain JSON body or with an SSE stream that carries the response.
+ * Requests are sent asynchronously, so any number of calls can be in flight at once,
+ * and the shared {@link HttpClient} keeps connections alive (multiplexed over HTTP/2 where available).
+ */
+@Slf4j
+public class HttpMcpClient implements McpClient {
+
+    private static final String PROTOCOL_VERSION = "2025-03-26";
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+    private static final String PROTOCOL_VERSION_HEADER = "MCP-Protocol-Version";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String serverName;
+    private final URI endpoint;
+    private final Map<String, String> headers;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Tracer tracer;
+    private final McpPayloadCapture payloadCapture;
+
+    private final AtomicLong requestId = new AtomicLong(1);
+    private final List<McpNotificationListener> notificationListeners = new CopyOnWriteArrayList<>();
+    // Progress arrives on the event stream of the call, read on an HTTP client thread
+    private final Map<Long, McpProgress.Listener> progressListeners = new ConcurrentHashMap<>();
+    private volatile String sessionId;
+    private volatile String protocolVersion;
+    private volatile boolean connected = false;
+    private volatile long lastReceivedNanos = System.nanoTime();
+
+    public HttpMcpClient(String serverName, String url, Map<String, String> headers, HttpClient httpClient, Tracer tracer) {
+        this(serverName, url, headers, httpClient, tracer, McpPayloadCapture.disabled());
+    }
+
+    /**
+     * @param payloadCapture decides whether tool parameters and results go into spans and logs
+     */
+    public HttpMcpClient(String serverName, String url, Map<String, String> headers, HttpClient httpClient,
+                         Tracer tracer, McpPayloadCapture payloadCapture) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("MCP server " + serverName + " requires a url for the http transport");
+        }
+        this.serverName = serverName;
+        this.endpoint = URI.create(url);
+        this.headers = headers != null ? headers : Map.of();
+        this.httpClient = httpClient;
+        this.objectMapper = new ObjectMapper();
+        this.tracer = tracer;
+        this.payloadCapture = payloadCapture;
+    }
+
+    /**
+     * Create an HTTP client suitable for sharing between all HTTP MCP servers.
+     */
+    public static HttpClient createHttpClient() {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        Span span = tracer.nextSpan().name("mcp.initialize").start();
+        span.tag("mcp.server", serverName);
+
+        try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
+            long startTime = System.currentTimeMillis();
+            log.info("Initializing MCP server: {} ({})", serverName, endpoint);
+
+            ObjectNode initRequest = McpProtocol.initializeRequest(
+                objectMapper, requestId.getAndIncrement(), PROTOCOL_VERSION);
+            JsonNode response = sendRequest(initRequest);
+
+            JsonNode result = response.get("result");
+            if (result == null) {
+                throw new McpServerException("MCP server " + serverName + " rejected initialize: " + response.get("error"));
+            }
+            protocolVersion = result.path("protocolVersion").asText(PROTOCOL_VERSION);
+
+            // Send initialized notification (required by MCP protocol)
+            sendNotification(McpProtocol.notification(objectMapper, "notifications/initialized"));
+
+            long duration = System.currentTimeMillis() - startTime;
+            span.tag("mcp.init.duration_ms", String.valueOf(duration));
+
+            log.info("MCP server {} initialized in {}ms (session={}): {}", serverName, duration, sessionId, response);
+
+            connected = true;
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public List<McpTool> listTools() throws Exception {
+        Span span = tracer.nextSpan().name("mcp.list_tools").start();
+        span.tag("mcp.server", serverName);
+
+        try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
+            long startTime = System.currentTimeMillis();
+
+            JsonNode response = sendRequest(McpProtocol.request(objectMapper, requestId.getAndIncrement(), "tools/list"));
+            log.debug("tools/list response from {}: {}", serverName, response);
+
+            List<McpTool> result = McpProtocol.parseTools(serverName, response);
+
+            long duration = System.currentTimeMillis() - startTime;
+            span.tag("mcp.tools.count", String.valueOf(result.size()));
+            span.tag("mcp.duration_ms", String.valueOf(duration));
+
+            log.info("Listed {} tools from MCP server {} in {}ms", result.size(), serverName, duration);
+
+            return result;
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception {
+        return callTool(toolName, (JsonNode) objectMapper.valueToTree(parameters));
+    }
+
+    /**
+     * The arguments become the params of the request as they are, without a conversion.
+     */
+    @Override
+    public JsonNode callTool(String toolName, JsonNode arguments) throws Exception {
+        Span span = tracer.nextSpan().name("mcp.call_tool").start();
+        span.tag("mcp.server", serverName);
+        span.tag("mcp.tool", toolName);
+        McpPayloadCapture.Call capture = payloadCapture.start();
+        capture.tag(span, "mcp.params", arguments);
+
+        try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
+            long startTime = System.currentTimeMillis();
+
+            log.debug("Calling MCP tool: server={}, tool={}, params={}", serverName, toolName, capture.lazy(arguments));
+
+            ObjectNode request = McpProtocol.toolCallRequest(
+                objectMapper, requestId.getAndIncrement(), toolName, arguments);
+
+            JsonNode response = McpProgress.sendWithProgress(request, progressListeners, () -> sendRequest(request));
+            JsonNode result = McpProtocol.toolResult(serverName, toolName, response);
+
+            long duration = System.currentTimeMillis() - startTime;
+            span.tag("mcp.duration_ms", String.valueOf(duration));
+            capture.tag(span, "mcp.result", result);
+
+            log.debug("MCP tool call completed: server={}, tool={}, duration={}ms, result={}",
+                serverName, toolName, duration, capture.lazy(result));
+
+            return result;
+        } catch (Exception e) {
+            span.error(e);
+            log.error("MCP tool call failed: server={}, tool={}, error={}", serverName, toolName, e.getMessage(), e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private JsonNode sendRequest(ObjectNode request) throws Exception {
+        try {
+            return sendRequestAsync(request).get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Send a request without blocking. The future completes with the JSON-RPC response message.
+     */
+    CompletableFuture<JsonNode> sendRequestAsync(ObjectNode request) throws JsonProcessingException {
+        long id = request.get("id").asLong();
+        return httpClient.sendAsync(post(request), HttpResponse.BodyHandlers.ofLines())
+            .thenApply(response -> readResponse(id, response));
+    }
+
+    private void sendNotification(ObjectNode notification) throws Exception {
+        HttpResponse<String> response = httpClient.send(post(notification), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new McpServerException("MCP server " + serverName + " rejected notification with HTTP "
+                + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private HttpRequest post(ObjectNode message) throws JsonProcessingException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json, text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message)));
+        return withSessionHeaders(builder).build();
+    }
+
+    private HttpRequest.Builder withSessionHeaders(HttpRequest.Builder builder) {
+        headers.forEach(builder::header);
+        if (sessionId != null) {
+            builder.header(SESSION_HEADER, sessionId);
+        }
+        if (protocolVersion != null) {
+            builder.header(PROTOCOL_VERSION_HEADER, protocolVersion);
+        }
+        return builder;
+    }
+
+    private JsonNode readResponse(long id, HttpResponse<Stream<String>> response) {
+        lastReceivedNanos = System.nanoTime();
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                throw new McpServerException("MCP server " + serverName + " returned HTTP "
+                    + response.statusCode() + ": " + lines.collect(Collectors.joining("\n")));
+            }
+
+            // The server assigns the session on initialize
+            response.headers().firstValue(SESSION_HEADER).ifPresent(value -> sessionId = value);
+
+            String contentType = response.headers().firstValue("Content-Type").orElse("");
+            if (contentType.startsWith("text/event-stream")) {
+                return readEventStream(id, lines.iterator());
+            }
+            return objectMapper.readTree(lines.collect(Collectors.joining("\n")));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Read SSE events until the response for the given request id arrives.
+     * Notifications sent on the same stream before the response are handed to the listeners.
+     */
+    private JsonNode readEventStream(long id, Iterator<String> lines) throws IOException {
+        StringBuilder data = new StringBuilder();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            } else if (line.isEmpty() && !data.isEmpty()) {
+                JsonNode message = objectMapper.readTree(data.toString());
+                data.setLength(0);
+                if (McpProtocol.isServerRequest(message)) {
+                    reply(message);
+                } else if (message.has("id") && message.get("id").asLong() == id) {
+                    return message;
+                } else if (!message.has("id") && !McpProgress.dispatch(serverName, message, progressListeners)) {
+                    McpProtocol.dispatchNotification(serverName, message, notificationListeners);
+                }
+            }
+        }
+        if (!data.isEmpty()) {
+            JsonNode message = objectMapper.readTree(data.toString());
+            if (!message.has("method") && message.has("id") && message.get("id").asLong() == id) {
+                return message;
+            }
+        }
+        throw new McpServerException("Event stream from MCP server " + serverName + " ended without a response");
+    }
+
+    /**
+     * Answer a request the server sent on a response stream, such as a ping. The reply is a POST
+     * of its own; it is sent without waiting, the stream is still being read.
+     */
+    private void reply(JsonNode request) throws JsonProcessingException {
+        ObjectNode reply = McpProtocol.serverRequestReply(objectMapper, serverName, request);
+        httpClient.sendAsync(post(reply), HttpResponse.BodyHandlers.discarding())
+            .exceptionally(e -> {
+                log.warn("Failed to answer {} from MCP server {}: {}", request.path("method").asText(), serverName, e.getMessage());
+                return null;
+            });
+    }
+
+    @Override
+    public void addNotificationListener(McpNotificationListener listener) {
+        notificationListeners.add(listener);
+    }
+
+    @Override
+    public void ping(Duration timeout) throws Exception {
+        ObjectNode request = McpProtocol.request(objectMapper, requestId.getAndIncrement(), "ping");
+        try {
+            McpProtocol.checkPing(serverName, sendRequestAsync(request).get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Duration idleTime() {
+        return Duration.ofNanos(System.nanoTime() - lastReceivedNanos);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+        if (sessionId == null) {
+            return;
+        }
+        // Terminate the session so the server can release its resources
+        HttpRequest request = withSessionHeaders(HttpRequest.newBuilder(endpoint).timeout(REQUEST_TIMEOUT).DELETE()).build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .exceptionally(e -> {
+                log.debug("Error closing MCP session on {}: {}", serverName, e.getMessage());
+                return null;
+            });
+        sessionId = null;
+    }
+}
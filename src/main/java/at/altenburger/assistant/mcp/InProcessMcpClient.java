@@ -0,0 +1,182 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * MCP client that serves tools implemented in Java inside this JVM.
+ * Methods annotated with {@link McpToolMethod} on {@link McpToolBean}s are invoked directly -
+ * no process, no pipe and no JSON-RPC framing, only the argument binding the LLM interface needs.
+ */
+@Slf4j
+public class InProcessMcpClient implements McpClient {
+
+    private final String serverName;
+    private final Collection<Object> toolBeans;
+    private final ObjectMapper objectMapper;
+    private final Map<String, ToolMethod> toolMethods = new LinkedHashMap<>();
+    private volatile boolean connected = false;
+
+    public InProcessMcpClient(String serverName, Collection<Object> toolBeans) {
+        this.serverName = serverName;
+        this.toolBeans = toolBeans;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    @Override
+    public void initialize() {
+        for (Object bean : toolBeans) {
+            for (Method method : AopUtils.getTargetClass(bean).getMethods()) {
+                McpToolMethod annotation = method.getAnnotation(McpToolMethod.class);
+                if (annotation == null) {
+                    continue;
+                }
+                String toolName = annotation.name().isEmpty() ? method.getName() : annotation.name();
+                if (toolMethods.containsKey(toolName)) {
+                    throw new IllegalStateException("Duplicate in-process tool " + toolName + " on server " + serverName);
+                }
+                toolMethods.put(toolName, new ToolMethod(bean, method, createTool(toolName, annotation, method)));
+            }
+        }
+        connected = true;
+        log.info("In-process MCP server {} initialized with {} tools", serverName, toolMethods.size());
+    }
+
+    @Override
+    public List<McpTool> listTools() {
+        return toolMethods.values().stream().map(ToolMethod::tool).toList();
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception {
+        ToolMethod toolMethod = toolMethods.get(toolName);
+        if (toolMethod == null) {
+            throw new IllegalArgumentException("Unknown tool " + toolName + " on server " + serverName);
+        }
+
+        Parameter[] methodParams = toolMethod.method().getParameters();
+        Object[] args = new Object[methodParams.length];
+        for (int i = 0; i < methodParams.length; i++) {
+            args[i] = bindArgument(toolName, methodParams[i], parameters);
+        }
+
+        try {
+            Object value = toolMethod.method().invoke(toolMethod.bean(), args);
+            return textResult(value, false);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("In-process tool {} failed: {}", toolName, cause.getMessage());
+            // Report execution errors inside the result so the LLM can react, as MCP servers do
+            return textResult(cause.getMessage(), true);
+        }
+    }
+
+    private Object bindArgument(String toolName, Parameter parameter, Map<String, Object> parameters) {
+        String name = parameterName(parameter);
+        Object value = parameters != null ? parameters.get(name) : null;
+        if (value == null) {
+            McpToolParam annotation = parameter.getAnnotation(McpToolParam.class);
+            if (annotation == null || annotation.required()) {
+                throw new IllegalArgumentException("Missing required argument '" + name + "' for tool " + toolName);
+            }
+            // Optional primitives get their default value (0, false)
+            return parameter.getType().isPrimitive() ? Array.get(Array.newInstance(parameter.getType(), 1), 0) : null;
+        }
+        return objectMapper.convertValue(value, objectMapper.constructType(parameter.getParameterizedType()));
+    }
+
+    private JsonNode textResult(Object value, boolean isError) throws Exception {
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode content = result.putArray("content");
+        ObjectNode text = content.addObject();
+        text.put("type", "text");
+        text.put("text", value instanceof String str ? str : objectMapper.writeValueAsString(value));
+        if (isError) {
+            result.put("isError", true);
+        }
+        return result;
+    }
+
+    private McpTool createTool(String toolName, McpToolMethod annotation, Method method) {
+        ObjectNode schema = objectMapper.createObjectNode();
+        schema.put("type", "object");
+        ObjectNode properties = schema.putObject("properties");
+        ArrayNode required = objectMapper.createArrayNode();
+
+        for (Parameter parameter : method.getParameters()) {
+            String name = parameterName(parameter);
+            ObjectNode property = properties.putObject(name);
+            describeType(parameter.getType(), property);
+
+            McpToolParam paramAnnotation = parameter.getAnnotation(McpToolParam.class);
+            if (paramAnnotation != null && !paramAnnotation.description().isEmpty()) {
+                property.put("description", paramAnnotation.description());
+            }
+            if (paramAnnotation == null || paramAnnotation.required()) {
+                required.add(name);
+            }
+        }
+        if (!required.isEmpty()) {
+            schema.set("required", required);
+        }
+
+        McpTool tool = new McpTool();
+        tool.setName(toolName);
+        tool.setDescription(annotation.description());
+        tool.setInputSchema(schema);
+        return tool;
+    }
+
+    private void describeType(Class<?> type, ObjectNode property) {
+        if (type == String.class || type == Character.class || type == char.class) {
+            property.put("type", "string");
+        } else if (type == Integer.class || type == int.class || type == Long.class || type == long.class
+                || type == Short.class || type == short.class) {
+            property.put("type", "integer");
+        } else if (Number.class.isAssignableFrom(type) || type == double.class || type == float.class
+                || type == BigDecimal.class) {
+            property.put("type", "number");
+        } else if (type == Boolean.class || type == boolean.class) {
+            property.put("type", "boolean");
+        } else if (type.isEnum()) {
+            property.put("type", "string");
+            ArrayNode values = property.putArray("enum");
+            for (Object constant : type.getEnumConstants()) {
+                values.add(((Enum<?>) constant).name());
+            }
+        } else if (type.isArray() || Collection.class.isAssignableFrom(type)) {
+            property.put("type", "array");
+        } else {
+            property.put("type", "object");
+        }
+    }
+
+    private String parameterName(Parameter parameter) {
+        McpToolParam annotation = parameter.getAnnotation(McpToolParam.class);
+        return annotation != null && !annotation.name().isEmpty() ? annotation.name() : parameter.getName();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+    }
+
+    private record ToolMethod(Object bean, Method method, McpTool tool) {
+    }
+}
@@ -0,0 +1,134 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times initialize, listTools and the tool calls of a client into {@link McpClientMetrics}.
+ * Sits below the {@link GuardedMcpClient}, so bulkhead waits are not part of the round trip.
+ * Recorded on the calling thread while its span is current, which links the sample to the trace.
+ * Counts the calls in flight for every transport, so any server can be drained before it is closed.
+ */
+class InstrumentedMcpClient implements McpClient {
+
+    private final String serverName;
+    private final McpClient delegate;
+    private final McpClientMetrics metrics;
+    private final AtomicInteger inFlightCalls = new AtomicInteger();
+
+    InstrumentedMcpClient(String serverName, McpClient delegate, McpClientMetrics metrics) {
+        this.serverName = serverName;
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void initialize() throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            delegate.initialize();
+            outcome = "success";
+        } finally {
+            metrics.recordRequest(serverName, "initialize", McpClientMetrics.NO_TOOL, outcome, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<McpTool> listTools() throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            List<McpTool> tools = delegate.listTools();
+            outcome = "success";
+            return tools;
+        } finally {
+            metrics.recordRequest(serverName, "listTools", McpClientMetrics.NO_TOOL, outcome, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception {
+        return timeToolCall(toolName, () -> delegate.callTool(toolName, parameters));
+    }
+
+    @Override
+    public JsonNode callTool(String toolName, JsonNode arguments) throws Exception {
+        return timeToolCall(toolName, () -> delegate.callTool(toolName, arguments));
+    }
+
+    private JsonNode timeToolCall(String toolName, Callable<JsonNode> call) throws Exception {
+        long start = System.nanoTime();
+        String outcome = "error";
+        inFlightCalls.incrementAndGet();
+        try {
+            JsonNode result = call.call();
+            outcome = outcome(result);
+            return result;
+        } finally {
+            inFlightCalls.decrementAndGet();
+            metrics.recordRequest(serverName, "callTool", toolName, outcome, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * A batch is one round trip; it is recorded once per invocation so per-tool percentiles stay complete.
+     */
+    @Override
+    public List<JsonNode> callTools(List<ToolInvocation> invocations) throws Exception {
+        long start = System.nanoTime();
+        List<JsonNode> results = null;
+        inFlightCalls.addAndGet(invocations.size());
+        try {
+            results = delegate.callTools(invocations);
+            return results;
+        } finally {
+            inFlightCalls.addAndGet(-invocations.size());
+            long duration = System.nanoTime() - start;
+            for (int i = 0; i < invocations.size(); i++) {
+                String outcome = results != null && i < results.size() ? outcome(results.get(i)) : "error";
+                metrics.recordRequest(serverName, "callTool", invocations.get(i).toolName(), outcome, duration);
+            }
+        }
+    }
+
+    @Override
+    public void addNotificationListener(McpNotificationListener listener) {
+        delegate.addNotificationListener(listener);
+    }
+
+    @Override
+    public void ping(Duration timeout) throws Exception {
+        delegate.ping(timeout);
+    }
+
+    @Override
+    public Duration idleTime() {
+        return delegate.idleTime();
+    }
+
+    @Override
+    public int inFlightCalls() {
+        return inFlightCalls.get();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    // MCP reports tool failures in the result, not as a JSON-RPC error
+    private static String outcome(JsonNode result) {
+        return result != null && result.path("isError").asBoolean(false) ? "tool_error" : "success";
+    }
+}
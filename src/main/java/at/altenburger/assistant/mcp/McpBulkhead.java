@@ -0,0 +1,54 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the concurrent calls to one MCP server. Calls beyond the limit wait in a bounded
+ * queue for at most the queue wait; when the queue is full they are rejected right away.
+ */
+final class McpBulkhead {
+
+    enum Admission { ACQUIRED, QUEUE_FULL, QUEUE_TIMEOUT }
+
+    private final McpServerConfig.Bulkhead settings;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    McpBulkhead(McpServerConfig.Bulkhead settings) {
+        this.settings = settings;
+        this.permits = new Semaphore(Math.max(1, settings.getMaxConcurrentCalls()), true);
+    }
+
+    Admission acquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return Admission.ACQUIRED;
+        }
+        if (queued.incrementAndGet() > settings.getMaxQueuedCalls()) {
+            queued.decrementAndGet();
+            return Admission.QUEUE_FULL;
+        }
+        try {
+            return permits.tryAcquire(settings.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS)
+                ? Admission.ACQUIRED
+                : Admission.QUEUE_TIMEOUT;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    int activeCalls() {
+        return Math.max(1, settings.getMaxConcurrentCalls()) - permits.availablePermits();
+    }
+
+    int queuedCalls() {
+        return queued.get();
+    }
+}
@@ -0,0 +1,157 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Sends the tools/call requests of concurrent tool calls to one server together, as a single
+ * {@link McpClient#callTools} batch. Each tool call runs on its own thread as a member of the batch
+ * and either hands its request to the batch or leaves it without one - answered from the cache or
+ * the state mirror, joined an identical call in flight, or rejected its arguments. Once every member
+ * has done one or the other, the requests go out and each member gets its own result.
+ */
+final class McpCallBatch {
+
+    private static final ThreadLocal<Member> currentMember = new ThreadLocal<>();
+
+    private final String serverName;
+    private final List<Request> requests = new ArrayList<>();
+    private int undecided;
+
+    McpCallBatch(String serverName, int members) {
+        this.serverName = serverName;
+        this.undecided = members;
+    }
+
+    /**
+     * Run one member's tool call on the current thread. A member that ends without a request leaves
+     * the batch, so the others do not wait for it.
+     */
+    <T> T run(Supplier<T> action) {
+        Member member = new Member();
+        Member previous = currentMember.get();
+        currentMember.set(member);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                currentMember.set(previous);
+            } else {
+                currentMember.remove();
+            }
+            member.leave();
+        }
+    }
+
+    /**
+     * Call a tool, through the batch of the current thread if it has one for the server.
+     */
+    static JsonNode callTool(McpClient client, String serverName, String toolName, JsonNode arguments) throws Exception {
+        Member member = currentMember.get();
+        if (member == null || !member.batch().serverName.equals(serverName)) {
+            return client.callTool(toolName, arguments);
+        }
+        return member.call(client, toolName, arguments);
+    }
+
+    /**
+     * Leave the batch of the current thread without a request, before waiting for another member.
+     */
+    static void leave() {
+        Member member = currentMember.get();
+        if (member != null) {
+            member.leave();
+        }
+    }
+
+    /**
+     * Count a member as decided, returning the requests to send if it was the last one.
+     */
+    private synchronized List<Request> memberDecided() {
+        undecided--;
+        if (undecided > 0 || requests.isEmpty()) {
+            return null;
+        }
+        List<Request> ready = new ArrayList<>(requests);
+        requests.clear();
+        return ready;
+    }
+
+    private static void send(List<Request> ready) {
+        // All members got their client just before, only a restart in between splits the batch
+        Map<McpClient, List<Request>> byClient = new IdentityHashMap<>();
+        for (Request request : ready) {
+            byClient.computeIfAbsent(request.client(), client -> new ArrayList<>()).add(request);
+        }
+        byClient.forEach((client, clientRequests) -> {
+            try {
+                List<JsonNode> results = client.callTools(clientRequests.stream().map(Request::invocation).toList());
+                for (int i = 0; i < clientRequests.size(); i++) {
+                    clientRequests.get(i).result().complete(results.get(i));
+                }
+            } catch (Exception e) {
+                clientRequests.forEach(request -> request.result().completeExceptionally(e));
+            }
+        });
+    }
+
+    private record Request(McpClient client, McpClient.ToolInvocation invocation, CompletableFuture<JsonNode> result) {
+    }
+
+    private class Member {
+        // Guarded by the batch
+        private boolean decided;
+
+        McpCallBatch batch() {
+            return McpCallBatch.this;
+        }
+
+        JsonNode call(McpClient client, String toolName, JsonNode arguments) throws Exception {
+            CompletableFuture<JsonNode> result = new CompletableFuture<>();
+            boolean joined;
+            List<Request> ready = null;
+            synchronized (McpCallBatch.this) {
+                joined = !decided;
+                if (joined) {
+                    decided = true;
+                    requests.add(new Request(client,
+                        new McpClient.ToolInvocation(toolName, McpProtocol.toParameters(arguments)), result));
+                    ready = memberDecided();
+                }
+            }
+            if (!joined) {
+                // A second call of the same member goes out on its own
+                return client.callTool(toolName, arguments);
+            }
+            if (ready != null) {
+                send(ready);
+            }
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        void leave() {
+            List<Request> ready;
+            synchronized (McpCallBatch.this) {
+                if (decided) {
+                    return;
+                }
+                decided = true;
+                ready = memberDecided();
+            }
+            if (ready != null) {
+                send(ready);
+            }
+        }
+    }
+}
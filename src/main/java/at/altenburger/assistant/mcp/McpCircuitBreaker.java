@@ -0,0 +1,144 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for the calls to one MCP server.
+ * Opens when the failure rate or the slow-call rate over the last calls reaches its threshold,
+ * rejects calls while open, and after the open duration lets a few probe calls through
+ * (half-open) to decide whether to close again.
+ */
+@Slf4j
+final class McpCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String serverName;
+    private final McpServerConfig.CircuitBreaker settings;
+    private final LongSupplier nanoClock;
+
+    // Outcomes of the last calls, a ring buffer of the sliding window
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int recorded;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesLeft;
+    private int probesCompleted;
+    private int probeFailures;
+
+    McpCircuitBreaker(String serverName, McpServerConfig.CircuitBreaker settings, LongSupplier nanoClock) {
+        this.serverName = serverName;
+        this.settings = settings;
+        this.nanoClock = nanoClock;
+        this.failed = new boolean[Math.max(1, settings.getSlidingWindowSize())];
+        this.slow = new boolean[failed.length];
+    }
+
+    /**
+     * Whether a call may go to the server. Every permitted call must report its outcome.
+     */
+    synchronized boolean tryAcquire() {
+        if (!settings.isEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAtNanos >= settings.getOpenDuration().toNanos()) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probesLeft == 0) {
+                    yield false;
+                }
+                probesLeft--;
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Give back a permission for a call that was never made.
+     */
+    synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    synchronized void onResult(long durationNanos, boolean failure) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        boolean slowCall = durationNanos >= settings.getSlowCallDuration().toNanos();
+
+        if (state == State.HALF_OPEN) {
+            probesCompleted++;
+            if (failure || slowCall) {
+                probeFailures++;
+            }
+            if (probeFailures > 0) {
+                transitionTo(State.OPEN);
+            } else if (probesCompleted >= settings.getHalfOpenCalls()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // Call started before the circuit opened
+            return;
+        }
+
+        failed[next] = failure;
+        slow[next] = slowCall;
+        next = (next + 1) % failed.length;
+        recorded = Math.min(recorded + 1, failed.length);
+
+        if (recorded >= settings.getMinimumCalls()) {
+            int failureRate = rate(failed);
+            int slowRate = rate(slow);
+            if (failureRate >= settings.getFailureRateThreshold() || slowRate >= settings.getSlowCallRateThreshold()) {
+                log.warn("Opening circuit for MCP server {}: {}% failed, {}% slow of the last {} calls",
+                    serverName, failureRate, slowRate, recorded);
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private int rate(boolean[] outcomes) {
+        int count = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (outcomes[i]) {
+                count++;
+            }
+        }
+        return count * 100 / recorded;
+    }
+
+    private void transitionTo(State newState) {
+        log.info("Circuit for MCP server {}: {} -> {}", serverName, state, newState);
+        state = newState;
+        switch (newState) {
+            case OPEN -> openedAtNanos = nanoClock.getAsLong();
+            case HALF_OPEN -> {
+                probesLeft = Math.max(1, settings.getHalfOpenCalls());
+                probesCompleted = 0;
+                probeFailures = 0;
+            }
+            case CLOSED -> {
+                next = 0;
+                recorded = 0;
+            }
+        }
+    }
+}
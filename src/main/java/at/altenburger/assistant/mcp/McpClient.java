@@ -3,6 +3,8 @@ package at.altenburger.assistant.mcp;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Data;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,7 +24,57 @@ public interface McpClient {
      * Call a tool with given parameters
      */
     JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception;
+
+    /**
+     * Call a tool with arguments that already are JSON, e.g. as the LLM sent them.
+     * Transports that send JSON override this to pass the arguments on without a conversion.
+     */
+    default JsonNode callTool(String toolName, JsonNode arguments) throws Exception {
+        return callTool(toolName, McpProtocol.toParameters(arguments));
+    }
+
+    /**
+     * Call several tools at once, results are returned in invocation order.
+     * Transports that can send the calls together override this.
+     */
+    default List<JsonNode> callTools(List<ToolInvocation> invocations) throws Exception {
+        List<JsonNode> results = new ArrayList<>();
+        for (ToolInvocation invocation : invocations) {
+            results.add(callTool(invocation.toolName(), invocation.parameters()));
+        }
+        return results;
+    }
     
+    /**
+     * Register a listener for notifications sent by the server.
+     * Transports that cannot receive notifications ignore it.
+     */
+    default void addNotificationListener(McpNotificationListener listener) {
+    }
+
+    /**
+     * Send an MCP ping and wait for the answer, to find out whether the server still responds.
+     * Transports without a connection of their own have nothing to check.
+     */
+    default void ping(Duration timeout) throws Exception {
+    }
+
+    /**
+     * How long nothing was received from the server. Transports without a connection
+     * of their own are never idle, so they are never pinged.
+     */
+    default Duration idleTime() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Tool calls that have been sent and not answered yet, so a client that is taken out of
+     * service can finish them before it is closed.
+     */
+    default int inFlightCalls() {
+        return 0;
+    }
+
     /**
      * Check if the client is connected
      */
@@ -33,6 +85,9 @@ public interface McpClient {
      */
     void close();
 
+    record ToolInvocation(String toolName, Map<String, Object> parameters) {
+    }
+
     @Data
     class McpTool {
         private String name;
@@ -0,0 +1,104 @@
+package at.altenburger.assistant.mcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the MCP client call path.
+ * <ul>
+ *   <li>mcp.client.requests - round trip of initialize, listTools and callTool once a call is
+ *       admitted to its server, tagged by server, operation, tool and outcome</li>
+ *   <li>mcp.client.queue.wait - time a call waited before it could be sent, tagged by stage
+ *       (bulkhead permit, stdio outbox); growing waits mean the server or its pipe is saturated,
+ *       growing round trips mean the tool itself is slow</li>
+ * </ul>
+ * Timers publish percentile histograms and SLO buckets. They are recorded while the call's span
+ * is current, so the Prometheus registry attaches the trace id as exemplar.
+ */
+@Component
+public class McpClientMetrics {
+
+    static final String NO_TOOL = "none";
+
+    private static final List<String> GUARD_GAUGES = List.of("mcp.circuit.state", "mcp.bulkhead.active", "mcp.bulkhead.queued");
+
+    private static final Duration[] SLOS = {
+        Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+        Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5), Duration.ofSeconds(10),
+        Duration.ofSeconds(30)
+    };
+
+    private final MeterRegistry meterRegistry;
+
+    public McpClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordRequest(String serverName, String operation, String toolName, String outcome, long nanos) {
+        Timer.builder("mcp.client.requests")
+            .description("Round trip of MCP client operations after admission")
+            .tag("server", serverName)
+            .tag("operation", operation)
+            .tag("tool", toolName)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .serviceLevelObjectives(SLOS)
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(60))
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueWait(String serverName, String stage, long nanos) {
+        Timer.builder("mcp.client.queue.wait")
+            .description("Time MCP calls waited before they could be sent")
+            .tag("server", serverName)
+            .tag("stage", stage)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1000))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Report the state of a server's guard, replacing the gauges of a guard it had before.
+     */
+    void registerGuard(String serverName, McpServerGuard guard) {
+        removeGuard(serverName);
+        Gauge.builder("mcp.circuit.state", guard, g -> g.getCircuitState().ordinal())
+            .description("Circuit breaker state per MCP server (0 closed, 1 open, 2 half-open)")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.bulkhead.active", guard, McpServerGuard::getActiveCalls)
+            .description("Tool calls in progress per MCP server")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.bulkhead.queued", guard, McpServerGuard::getQueuedCalls)
+            .description("Tool calls waiting for a bulkhead permit per MCP server")
+            .tag("server", serverName)
+            .register(meterRegistry);
+    }
+
+    void removeGuard(String serverName) {
+        for (String name : GUARD_GAUGES) {
+            meterRegistry.find(name).tag("server", serverName).meters().forEach(meterRegistry::remove);
+        }
+    }
+
+    void recordRejected(String serverName, String reason) {
+        Counter.builder("mcp.calls.rejected")
+            .description("Tool calls rejected without reaching the MCP server")
+            .tag("server", serverName)
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -1,25 +1,55 @@
 package at.altenburger.assistant.mcp;
 
 import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.micrometer.tracing.Tracer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Service;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class McpDiscoveryService {
+
+    private static final String TOOLS_LIST_CHANGED = "notifications/tools/list_changed";
+    private static final Duration DRAIN_POLL_INTERVAL = Duration.ofMillis(100);
     
     private final McpServerConfig mcpServerConfig;
     private final Tracer tracer;
+    private final ApplicationContext applicationContext;
+    private final McpToolRegistry toolRegistry;
+    private final McpClientMetrics clientMetrics;
+    private final McpPayloadCapture payloadCapture;
     private final Map<String, McpClient> clients = new ConcurrentHashMap<>();
-    private final Map<String, List<McpClient.McpTool>> toolsCache = new ConcurrentHashMap<>();
+    // The unwrapped client of each stdio server, for process accounting and recycling
+    private final Map<String, StdioMcpClient> processes = new ConcurrentHashMap<>();
+    // Configuration of the enabled servers, including those added at runtime
+    private final Map<String, McpServerConfig.McpServer> serverConfigs = new ConcurrentHashMap<>();
+    // Servers whose client is being replaced by a recycle or reconfiguration
+    private final Set<String> replacingServers = ConcurrentHashMap.newKeySet();
+    // Kept while a server keeps its configuration, so a restarted server continues with the same breaker
+    private final Map<String, McpServerGuard> serverGuards = new ConcurrentHashMap<>();
+    private final Map<String, McpServerStatus> serverStatus = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> toolsChangedListeners = new CopyOnWriteArrayList<>();
+    private final List<McpNotificationListener> notificationListeners = new CopyOnWriteArrayList<>();
+    // Servers with a tools re-list scheduled but not yet started
+    private final Set<String> pendingToolRefreshes = ConcurrentHashMap.newKeySet();
+    // Server startup and tool re-listing, never on a request or reader thread
+    private final ExecutorService backgroundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // Shared by all HTTP servers so connections are pooled and kept alive
+    private final HttpClient httpClient = HttpMcpClient.createHttpClient();
     
     @PostConstruct
     public void initialize() {
@@ -30,29 +60,321 @@ public class McpDiscoveryService {
             return;
         }
         
+        List<CompletableFuture<Void>> startups = new ArrayList<>();
         for (McpServerConfig.McpServer serverConfig : mcpServerConfig.getServers()) {
             if (!serverConfig.isEnabled()) {
                 log.info("Skipping disabled MCP server: {}", serverConfig.getName());
                 continue;
             }
-            
-            try {
-                McpClient client = createClient(serverConfig);
-                client.initialize();
-                clients.put(serverConfig.getName(), client);
-                
-                // Cache tools
-                List<McpClient.McpTool> tools = client.listTools();
-                toolsCache.put(serverConfig.getName(), tools);
-                log.info("MCP server {} initialized with {} tools", serverConfig.getName(), tools.size());
-                
-            } catch (Exception e) {
-                log.error("Failed to initialize MCP server: {}", serverConfig.getName(), e);
+
+            // Start all servers in parallel - npx alone can take several seconds per server
+            serverConfigs.put(serverConfig.getName(), serverConfig);
+            CompletableFuture<Void> startup = launchServer(serverConfig, McpServerStatus.starting(serverConfig.getName()));
+            if (startup != null) {
+                startups.add(startup);
             }
         }
+
+        if (mcpServerConfig.isBackgroundStartup()) {
+            log.info("Starting {} MCP servers in background", startups.size());
+            return;
+        }
+
+        awaitStartup(startups);
+    }
+
+    private void awaitStartup(List<CompletableFuture<Void>> startups) {
+        Duration timeout = mcpServerConfig.getStartupTimeout();
+        try {
+            CompletableFuture.allOf(startups.toArray(new CompletableFuture[0]))
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            long pending = startups.stream().filter(f -> !f.isDone()).count();
+            log.warn("MCP startup deadline of {} exceeded, {} servers continue starting in background",
+                timeout, pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for MCP servers to start");
+        } catch (ExecutionException e) {
+            // startServer handles its own failures, so this is unexpected
+            log.error("Unexpected error while starting MCP servers", e);
+        }
         
         log.info("Initialized {} MCP servers", clients.size());
     }
+
+    /**
+     * Create the client of a server and start it in the background.
+     * Returns null if the client cannot even be created.
+     */
+    private CompletableFuture<Void> launchServer(McpServerConfig.McpServer serverConfig, McpServerStatus status) {
+        ServerClient client;
+        try {
+            // Created on the calling thread - in-process clients resolve their tool beans here
+            client = wrapClient(serverConfig);
+        } catch (Exception e) {
+            serverStatus.put(serverConfig.getName(), McpServerStatus.failed(serverConfig.getName(), 0, e.getMessage()));
+            log.error("Failed to create MCP server: {}", serverConfig.getName(), e);
+            return null;
+        }
+
+        serverStatus.put(serverConfig.getName(), status);
+        return CompletableFuture.runAsync(() -> startServer(serverConfig, client), backgroundExecutor);
+    }
+
+    /**
+     * Start a server that is not running, or replace the configuration of a running one, without
+     * restarting the application. A reconfigured server keeps serving with its old client until the
+     * new one has listed its tools; the old one then finishes its calls in flight before it is closed.
+     * Completes with the status of the new client once it has started or failed. The new configuration,
+     * with a new circuit breaker and bulkhead, only takes effect once the new client has taken over; if it
+     * fails to start, the server keeps running with its current configuration.
+     */
+    public CompletableFuture<McpServerStatus> addServer(McpServerConfig.McpServer serverConfig) {
+        String serverName = serverConfig.getName();
+        if (serverName == null || serverName.isBlank()) {
+            throw new IllegalArgumentException("MCP server name is required");
+        }
+        serverConfig.validate();
+        McpServerStatus status = serverStatus.get(serverName);
+        if (status != null && status.state() == McpServerStatus.State.STARTING) {
+            throw new IllegalStateException("MCP server " + serverName + " is still starting");
+        }
+
+        McpClient previous = clients.get(serverName);
+        if (previous != null) {
+            if (!replacingServers.add(serverName)) {
+                throw new IllegalStateException("MCP server " + serverName + " is already being replaced");
+            }
+            log.info("Reconfiguring MCP server {}", serverName);
+            return replaceServer(serverConfig, previous);
+        }
+
+        serverConfigs.put(serverName, serverConfig);
+        log.info("Adding MCP server {}", serverName);
+        CompletableFuture<Void> startup = launchServer(serverConfig, McpServerStatus.starting(serverName));
+        if (startup == null) {
+            return CompletableFuture.completedFuture(serverStatus.get(serverName));
+        }
+        return startup.thenApply(ignored -> serverStatus.get(serverName));
+    }
+
+    /**
+     * Stop a server and remove its tools at once. Calls in flight are finished in the background
+     * before the client is closed. Returns false if no such server is configured.
+     */
+    public boolean removeServer(String serverName) {
+        McpServerConfig.McpServer serverConfig = serverConfigs.remove(serverName);
+        if (serverConfig == null) {
+            return false;
+        }
+
+        log.info("Removing MCP server {}", serverName);
+        // A server still starting notices it was removed once it has listed its tools
+        McpClient client = clients.remove(serverName);
+        processes.remove(serverName);
+        removeGuard(serverName);
+        serverStatus.remove(serverName);
+        toolRegistry.remove(serverName);
+        notifyToolsChanged(serverName);
+
+        if (client != null) {
+            CompletableFuture.runAsync(() -> drainAndClose(serverName, client, serverConfig.getDrainTimeout()),
+                backgroundExecutor);
+        }
+        return true;
+    }
+
+    /**
+     * Replace the client of a server that stopped responding with a new one, in the background.
+     * The server is degraded while it restarts. The old client and its tools stay until the new client
+     * has listed its tools, so if the relaunch fails the liveness monitor keeps pinging the old one
+     * and restarts it again once enough pings failed.
+     */
+    public CompletableFuture<McpServerStatus> restartServer(String serverName, String reason) {
+        McpServerConfig.McpServer serverConfig = serverConfigs.get(serverName);
+        McpClient previous = clients.get(serverName);
+        if (serverConfig == null || previous == null || !replacingServers.add(serverName)) {
+            // Still starting, or already being replaced
+            return CompletableFuture.completedFuture(serverStatus.get(serverName));
+        }
+
+        log.warn("Restarting MCP server {}: {}", serverName, reason);
+        McpServerStatus status = serverStatus.get(serverName);
+        int toolCount = status != null ? status.toolCount() : 0;
+        long startupMs = status != null ? status.startupMs() : 0;
+        serverStatus.put(serverName, McpServerStatus.degraded(serverName, toolCount, startupMs, reason));
+        return replaceServer(serverConfig, previous).thenApply(result -> {
+            if (result == null || result.state() != McpServerStatus.State.FAILED) {
+                return result;
+            }
+            McpServerStatus degraded = McpServerStatus.degraded(serverName, toolCount, startupMs,
+                reason + ", restart failed: " + result.error());
+            // Unless it was removed meanwhile
+            return serverStatus.computeIfPresent(serverName, (name, current) -> degraded);
+        });
+    }
+
+    /**
+     * Replace the process of a stdio server with a fresh one without dropping calls. The new client is
+     * started and listed first and then takes over new calls, the old one finishes its calls in flight
+     * before it is closed. If the new one fails to start, the old one stays.
+     */
+    public void recycleServer(String serverName, String reason) {
+        McpServerConfig.McpServer serverConfig = serverConfigs.get(serverName);
+        McpClient previous = clients.get(serverName);
+        if (serverConfig == null || previous == null || !processes.containsKey(serverName)
+                || !replacingServers.add(serverName)) {
+            // Not a running stdio server, or already being replaced
+            return;
+        }
+
+        log.info("Recycling MCP server {}: {}", serverName, reason);
+        replaceServer(serverConfig, previous);
+    }
+
+    /**
+     * Start a new client for a running server and swap it in once it has listed its tools.
+     * The configuration, process and guard of the new client are committed with the swap, so a
+     * replacement that fails leaves the server exactly as it was. The caller has added the server
+     * to replacingServers.
+     */
+    private CompletableFuture<McpServerStatus> replaceServer(McpServerConfig.McpServer serverConfig, McpClient previous) {
+        String serverName = serverConfig.getName();
+        return CompletableFuture.supplyAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            ServerClient replacement = null;
+            try {
+                replacement = wrapClient(serverConfig);
+                replacement.client().initialize();
+                List<McpClient.McpTool> tools = replacement.client().listTools();
+                if (!clients.replace(serverName, previous, replacement.client())) {
+                    // Restarted or removed meanwhile
+                    replacement.client().close();
+                    return serverStatus.get(serverName);
+                }
+                if (serverConfigs.computeIfPresent(serverName, (name, current) -> serverConfig) == null) {
+                    // Removed between the swap and now, removeServer may not have seen the replacement
+                    clients.remove(serverName, replacement.client());
+                    replacement.client().close();
+                    return serverStatus.get(serverName);
+                }
+                commit(serverName, replacement);
+                toolRegistry.update(serverName, tools);
+                long duration = System.currentTimeMillis() - startTime;
+                serverStatus.put(serverName, McpServerStatus.ready(serverName, tools.size(), duration));
+                log.info("MCP server {} replaced with {} tools in {}ms", serverName, tools.size(), duration);
+                notifyToolsChanged(serverName);
+
+                drainAndClose(serverName, previous, serverConfig.getDrainTimeout());
+            } catch (Exception e) {
+                log.warn("Failed to replace MCP server {}, keeping the current client: {}", serverName, e.getMessage());
+                if (replacement != null && clients.get(serverName) != replacement.client()) {
+                    replacement.client().close();
+                }
+                return McpServerStatus.failed(serverName, System.currentTimeMillis() - startTime,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            } finally {
+                replacingServers.remove(serverName);
+            }
+            return serverStatus.get(serverName);
+        }, backgroundExecutor);
+    }
+
+    /**
+     * Close a client that no longer receives calls once it has answered those in flight, at most after the
+     * drain timeout.
+     */
+    private void drainAndClose(String serverName, McpClient client, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            // Calls that picked up the client just before it was taken out may not have been sent yet
+            Thread.sleep(DRAIN_POLL_INTERVAL.toMillis());
+            while (client.inFlightCalls() > 0) {
+                if (System.nanoTime() > deadline) {
+                    log.warn("MCP server {} still had {} calls in flight after {}, closing it anyway",
+                        serverName, client.inFlightCalls(), timeout);
+                    break;
+                }
+                Thread.sleep(DRAIN_POLL_INTERVAL.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        client.close();
+        log.debug("Closed replaced client of MCP server {}", serverName);
+    }
+
+    /**
+     * A client that has been created but not necessarily started, with its unwrapped process
+     * (stdio servers only) and its guard (out-of-process servers only).
+     */
+    private record ServerClient(McpClient client, StdioMcpClient process, McpServerGuard guard) {
+    }
+
+    /**
+     * Create the client of a server with its instrumentation and guard, listening for its notifications.
+     * Nothing is registered until the client is committed.
+     */
+    private ServerClient wrapClient(McpServerConfig.McpServer serverConfig) {
+        McpClient client = createClient(serverConfig);
+        McpServerGuard guard = guardFor(serverConfig);
+        McpClient wrapped = instrument(serverConfig, client);
+        if (guard != null) {
+            wrapped = new GuardedMcpClient(wrapped, guard);
+        }
+        wrapped.addNotificationListener(this::onNotification);
+        return new ServerClient(wrapped, client instanceof StdioMcpClient process ? process : null, guard);
+    }
+
+    /**
+     * Register the process and guard of a client that has just taken over its server.
+     */
+    private void commit(String serverName, ServerClient started) {
+        if (started.process() != null) {
+            processes.put(serverName, started.process());
+        } else {
+            processes.remove(serverName);
+        }
+        if (started.guard() == null) {
+            removeGuard(serverName);
+        } else if (serverGuards.put(serverName, started.guard()) != started.guard()) {
+            clientMetrics.registerGuard(serverName, started.guard());
+        }
+    }
+
+    private void startServer(McpServerConfig.McpServer serverConfig, ServerClient started) {
+        String serverName = serverConfig.getName();
+        McpClient client = started.client();
+        long startTime = System.currentTimeMillis();
+
+        try {
+            client.initialize();
+
+            // Cache tools
+            List<McpClient.McpTool> tools = client.listTools();
+            if (serverConfigs.get(serverName) != serverConfig) {
+                log.info("MCP server {} was removed while starting", serverName);
+                client.close();
+                return;
+            }
+            clients.put(serverName, client);
+            commit(serverName, started);
+            toolRegistry.update(serverName, tools);
+
+            long duration = System.currentTimeMillis() - startTime;
+            serverStatus.put(serverName, McpServerStatus.ready(serverName, tools.size(), duration));
+            log.info("MCP server {} initialized with {} tools in {}ms", serverName, tools.size(), duration);
+
+            notifyToolsChanged(serverName);
+            
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            serverStatus.put(serverName, McpServerStatus.failed(serverName, duration, e.getMessage()));
+            log.error("Failed to initialize MCP server: {}", serverName, e);
+            client.close();
+        }
+    }
     
     private McpClient createClient(McpServerConfig.McpServer config) {
         if ("stdio".equals(config.getType())) {
@@ -61,29 +383,79 @@ public class McpDiscoveryService {
                 config.getCommand(),
                 config.getArgs(),
                 config.getEnv(),
-                tracer
+                tracer,
+                config.isBatchRequests(),
+                clientMetrics,
+                payloadCapture
+            );
+        }
+        if ("in-process".equals(config.getType())) {
+            return new InProcessMcpClient(config.getName(), findToolBeans(config.getName()));
+        }
+        if ("http".equals(config.getType()) || "streamable-http".equals(config.getType())) {
+            return new HttpMcpClient(
+                config.getName(),
+                config.getUrl(),
+                config.getHeaders(),
+                httpClient,
+                tracer,
+                payloadCapture
             );
         }
         throw new IllegalArgumentException("Unsupported MCP server type: " + config.getType());
     }
     
+    private McpClient instrument(McpServerConfig.McpServer config, McpClient client) {
+        return new InstrumentedMcpClient(config.getName(), client, clientMetrics);
+    }
+
+    /**
+     * The circuit breaker and bulkhead for the tool calls of an out-of-process server, null for in-process
+     * servers. A client for the configuration in use shares the current guard, so a restarted or recycled
+     * server keeps its breaker state; a new configuration gets a new guard with its settings.
+     */
+    private McpServerGuard guardFor(McpServerConfig.McpServer config) {
+        if ("in-process".equals(config.getType())) {
+            return null;
+        }
+        McpServerGuard current = serverGuards.get(config.getName());
+        if (current != null && serverConfigs.get(config.getName()) == config) {
+            return current;
+        }
+        return new McpServerGuard(config.getName(), config.getCircuitBreaker(), config.getBulkhead(), clientMetrics);
+    }
+
+    private void removeGuard(String serverName) {
+        if (serverGuards.remove(serverName) != null) {
+            clientMetrics.removeGuard(serverName);
+        }
+    }
+
+    private List<Object> findToolBeans(String serverName) {
+        return applicationContext.getBeansWithAnnotation(McpToolBean.class).values().stream()
+            .filter(bean -> serverName.equals(
+                AnnotationUtils.findAnnotation(AopUtils.getTargetClass(bean), McpToolBean.class).server()))
+            .toList();
+    }
+    
     public McpClient getClient(String serverName) {
         return clients.get(serverName);
     }
 
     /**
-     * Find the server name that provides a given tool.
+     * The unwrapped client of a stdio server, for process accounting. Calls must go through {@link #getClient}.
+     */
+    StdioMcpClient getProcess(String serverName) {
+        return processes.get(serverName);
+    }
+
+    /**
+     * Find the server name that provides a given tool, by the name exposed to the LLM.
      * Returns null if no server provides the tool.
      */
     public String findServerForTool(String toolName) {
-        for (Map.Entry<String, List<McpClient.McpTool>> entry : toolsCache.entrySet()) {
-            for (McpClient.McpTool tool : entry.getValue()) {
-                if (tool.getName().equals(toolName)) {
-                    return entry.getKey();
-                }
-            }
-        }
-        return null;
+        McpToolRegistry.RegisteredTool tool = toolRegistry.find(toolName);
+        return tool != null ? tool.serverName() : null;
     }
 
     /**
@@ -96,14 +468,122 @@ public class McpDiscoveryService {
     }
 
     public Map<String, List<McpClient.McpTool>> getAllTools() {
-        return Collections.unmodifiableMap(toolsCache);
+        return toolRegistry.getToolsByServer();
+    }
+
+    /**
+     * Get the circuit breaker and bulkhead of every out-of-process server.
+     */
+    public Map<String, McpServerGuard> getServerGuards() {
+        return Collections.unmodifiableMap(serverGuards);
+    }
+
+    /**
+     * Get the configuration of every enabled server, including those added at runtime.
+     */
+    public Map<String, McpServerConfig.McpServer> getServerConfigs() {
+        return Collections.unmodifiableMap(serverConfigs);
+    }
+
+    /**
+     * Get the policy of a tool from the configuration the server currently runs with.
+     */
+    public McpServerConfig.ToolPolicy getToolPolicy(String serverName, String toolName) {
+        McpServerConfig.McpServer serverConfig = serverConfigs.get(serverName);
+        return serverConfig != null
+            ? serverConfig.getToolPolicy(toolName)
+            : mcpServerConfig.getToolPolicy(serverName, toolName);
+    }
+
+    /**
+     * Get the startup state of every enabled server.
+     */
+    public Map<String, McpServerStatus> getServerStatus() {
+        return Collections.unmodifiableMap(serverStatus);
+    }
+
+    /**
+     * Register a listener for the notifications of all servers.
+     */
+    public void addNotificationListener(McpNotificationListener listener) {
+        notificationListeners.add(listener);
+    }
+
+    private void onNotification(String serverName, String method, JsonNode params) {
+        if (TOOLS_LIST_CHANGED.equals(method)) {
+            scheduleToolRefresh(serverName);
+        }
+        for (McpNotificationListener listener : notificationListeners) {
+            try {
+                listener.onNotification(serverName, method, params);
+            } catch (Exception e) {
+                log.warn("Notification listener failed for {} from {}: {}", method, serverName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Re-list the tools of a server in the background.
+     * A burst of list_changed notifications results in a single re-list.
+     */
+    private void scheduleToolRefresh(String serverName) {
+        if (!pendingToolRefreshes.add(serverName)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            // Cleared before listing, so a change during the re-list schedules another one
+            pendingToolRefreshes.remove(serverName);
+            refreshTools(serverName);
+        }, backgroundExecutor);
+    }
+
+    private void refreshTools(String serverName) {
+        McpClient client = clients.get(serverName);
+        if (client == null) {
+            // Not started yet, startServer lists the tools anyway
+            return;
+        }
+
+        try {
+            List<McpClient.McpTool> tools = client.listTools();
+            toolRegistry.update(serverName, tools);
+
+            McpServerStatus status = serverStatus.get(serverName);
+            long startupMs = status != null ? status.startupMs() : 0;
+            serverStatus.put(serverName, McpServerStatus.ready(serverName, tools.size(), startupMs));
+            log.info("Tools of MCP server {} changed, now {} tools", serverName, tools.size());
+
+            notifyToolsChanged(serverName);
+        } catch (Exception e) {
+            log.warn("Failed to re-list tools of MCP server {}: {}", serverName, e.getMessage());
+        }
+    }
+
+    /**
+     * Register a listener that is called with the server name whenever
+     * the tool list of a server changes (a server finished starting or sent tools/list_changed).
+     */
+    public void addToolsChangedListener(Consumer<String> listener) {
+        toolsChangedListeners.add(listener);
+    }
+
+    private void notifyToolsChanged(String serverName) {
+        for (Consumer<String> listener : toolsChangedListeners) {
+            try {
+                listener.accept(serverName);
+            } catch (Exception e) {
+                log.warn("Tools changed listener failed for {}: {}", serverName, e.getMessage());
+            }
+        }
     }
 
     @PreDestroy
     public void shutdown() {
         log.info("Shutting down MCP servers...");
+        backgroundExecutor.shutdownNow();
         clients.values().forEach(McpClient::close);
         clients.clear();
-        toolsCache.clear();
+        toolRegistry.clear();
+        httpClient.shutdownNow();
     }
 }
@@ -0,0 +1,161 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pings idle out-of-process MCP servers. isConnected only knows whether the process is alive,
+ * a server that is alive but stuck would otherwise be noticed when a user's call times out.
+ * After unhealthy-pings consecutive failed or slow pings the server is restarted. Servers with
+ * traffic are not pinged, their calls show whether they respond. The pings also keep servers
+ * warm that unload their dependencies while idle, like Node servers started with npx.
+ * Servers added, reconfigured or removed at runtime are followed as their tools change.
+ */
+@Slf4j
+@Component
+public class McpLivenessMonitor {
+
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> unhealthyPings = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("mcp-liveness").factory());
+
+    /**
+     * The periodic check of a server, with the settings it was scheduled for.
+     */
+    private record Schedule(McpServerConfig.Liveness settings, ScheduledFuture<?> task) {
+    }
+
+    public McpLivenessMonitor(McpDiscoveryService mcpDiscoveryService, MeterRegistry meterRegistry) {
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        mcpDiscoveryService.getServerConfigs().keySet().forEach(this::reschedule);
+        mcpDiscoveryService.addToolsChangedListener(this::reschedule);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedule the checks of a server for the settings it currently runs with, or stop them if it
+     * was removed or no longer wants them.
+     */
+    private void reschedule(String serverName) {
+        McpServerConfig.Liveness settings = settings(serverName);
+        schedules.compute(serverName, (name, current) -> {
+            if (current != null && current.settings() == settings) {
+                return current;
+            }
+            if (current != null) {
+                current.task().cancel(false);
+            }
+            unhealthyPings.remove(name);
+            if (settings == null) {
+                return null;
+            }
+            // Checked twice per interval, so no server stays quiet for longer than the interval
+            long period = Math.max(settings.getPingInterval().toMillis() / 2, 1);
+            return new Schedule(settings,
+                scheduler.scheduleWithFixedDelay(() -> check(name), period, period, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    /**
+     * The liveness settings of a server, null if it is not to be pinged.
+     */
+    private McpServerConfig.Liveness settings(String serverName) {
+        McpServerConfig.McpServer server = mcpDiscoveryService.getServerConfigs().get(serverName);
+        // In-process servers share the JVM, there is nothing to ping
+        if (server == null || !server.getLiveness().isEnabled() || "in-process".equals(server.getType())) {
+            return null;
+        }
+        return server.getLiveness();
+    }
+
+    /**
+     * Ping the server if it has been idle, and restart it once too many pings in a row failed.
+     */
+    void check(String serverName) {
+        McpServerConfig.Liveness settings = settings(serverName);
+        McpClient client = mcpDiscoveryService.getClient(serverName);
+        if (settings == null || client == null) {
+            // Removed, starting or restarting
+            return;
+        }
+        if (client.idleTime().compareTo(settings.getPingInterval().dividedBy(2)) < 0) {
+            return;
+        }
+
+        String problem = ping(serverName, client, settings);
+        AtomicInteger unhealthy = unhealthyPings.computeIfAbsent(serverName, name -> new AtomicInteger());
+        if (problem == null) {
+            unhealthy.set(0);
+            return;
+        }
+        int count = unhealthy.incrementAndGet();
+        log.warn("MCP server {} {} ({} of {} before a restart)", serverName, problem, count, settings.getUnhealthyPings());
+        if (count >= settings.getUnhealthyPings()) {
+            unhealthy.set(0);
+            restartCounter(serverName).increment();
+            mcpDiscoveryService.restartServer(serverName, count + " pings in a row failed, last: " + problem);
+        }
+    }
+
+    /**
+     * Returns what was wrong with the ping, null if the server answered in time.
+     */
+    private String ping(String serverName, McpClient client, McpServerConfig.Liveness settings) {
+        long start = System.nanoTime();
+        try {
+            client.ping(settings.getPingTimeout());
+        } catch (Exception e) {
+            pingTimer(serverName, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return "did not answer a ping: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+        long roundTrip = System.nanoTime() - start;
+        if (roundTrip > settings.getSlowPing().toNanos()) {
+            pingTimer(serverName, "slow").record(roundTrip, TimeUnit.NANOSECONDS);
+            return "answered a ping after " + TimeUnit.NANOSECONDS.toMillis(roundTrip) + "ms";
+        }
+        pingTimer(serverName, "success").record(roundTrip, TimeUnit.NANOSECONDS);
+        log.debug("MCP server {} answered a ping in {}ms", serverName, TimeUnit.NANOSECONDS.toMillis(roundTrip));
+        return null;
+    }
+
+    private Timer pingTimer(String serverName, String outcome) {
+        return Timer.builder("mcp.client.ping")
+            .description("Round trip of liveness pings to idle MCP servers")
+            .tag("server", serverName)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Counter restartCounter(String serverName) {
+        return Counter.builder("mcp.server.restarts")
+            .description("Restarts of MCP servers that stopped answering pings")
+            .tag("server", serverName)
+            .register(meterRegistry);
+    }
+}
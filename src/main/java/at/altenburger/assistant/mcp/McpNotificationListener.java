@@ -0,0 +1,16 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Receives JSON-RPC notifications sent by an MCP server, e.g. notifications/tools/list_changed.
+ * Called on the transport's reader thread, so implementations must not block.
+ */
+@FunctionalInterface
+public interface McpNotificationListener {
+
+    /**
+     * @param params the notification params, a missing node if the notification has none
+     */
+    void onNotification(String serverName, String method, JsonNode params);
+}
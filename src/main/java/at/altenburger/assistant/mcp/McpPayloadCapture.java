@@ -0,0 +1,152 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether tool parameters and results of an MCP call go into spans and logs.
+ * All MCP payload logging goes through here: tool payloads can be large and contain personal data,
+ * so by default nothing is captured. Payloads are rendered lazily and only up to the size cap,
+ * so a disabled capture or a disabled log level never serializes anything.
+ */
+@Component
+public class McpPayloadCapture {
+
+    private static final Object NOT_CAPTURED = new Object() {
+        @Override
+        public String toString() {
+            return "[not captured]";
+        }
+    };
+
+    private final McpServerConfig.PayloadCapture settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public McpPayloadCapture(McpServerConfig mcpServerConfig) {
+        this.settings = mcpServerConfig.getPayloadCapture();
+    }
+
+    /**
+     * Capture that never renders anything, for clients created without a policy.
+     */
+    public static McpPayloadCapture disabled() {
+        return new McpPayloadCapture(new McpServerConfig());
+    }
+
+    /**
+     * Decide for one call, so its parameters and result are captured together or not at all.
+     */
+    public Call start() {
+        boolean captured = switch (settings.getMode()) {
+            case OFF -> false;
+            case CAPPED -> true;
+            case SAMPLED -> ThreadLocalRandom.current().nextDouble() < settings.getSampleRate();
+        };
+        return new Call(captured);
+    }
+
+    /**
+     * Serialize a payload, stopping at the size cap instead of rendering it in full
+     * (Jackson writes in chunks of its output buffer, so at most one chunk past the cap is built).
+     */
+    String render(Object payload) {
+        int maxChars = (int) Math.min(Integer.MAX_VALUE, settings.getMaxSize().toBytes());
+        if (payload instanceof String text) {
+            return text.length() <= maxChars ? text : text.substring(0, maxChars) + "… [truncated]";
+        }
+        CappedWriter writer = new CappedWriter(maxChars);
+        try {
+            objectMapper.writeValue(writer, payload);
+        } catch (CapReachedException e) {
+            return writer + "… [truncated]";
+        } catch (IOException e) {
+            return "[unrenderable: " + e.getMessage() + "]";
+        }
+        return writer.toString();
+    }
+
+    public final class Call {
+
+        private final boolean captured;
+
+        private Call(boolean captured) {
+            this.captured = captured;
+        }
+
+        public boolean isCaptured() {
+            return captured;
+        }
+
+        /**
+         * Tag the span with the payload if this call is captured.
+         */
+        public void tag(Span span, String key, Object payload) {
+            if (captured) {
+                span.tag(key, render(payload));
+            }
+        }
+
+        /**
+         * A log argument that renders the payload only when the log statement is actually written.
+         */
+        public Object lazy(Object payload) {
+            if (!captured) {
+                return NOT_CAPTURED;
+            }
+            return new Object() {
+                @Override
+                public String toString() {
+                    return render(payload);
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects characters up to the cap, then aborts serialization.
+     */
+    private static final class CappedWriter extends Writer {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final int maxChars;
+
+        CappedWriter(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            int remaining = maxChars - buffer.length();
+            buffer.append(chars, offset, Math.min(length, remaining));
+            if (length > remaining) {
+                throw new CapReachedException();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    private static final class CapReachedException extends RuntimeException {
+
+        CapReachedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Samples CPU and memory of the stdio server processes and recycles a process once it reaches
+ * one of the limits of its recycle settings. Long running Node and Python servers tend to grow
+ * over days of uptime; a fresh process is cheaper than finding out why. Every sample uses the
+ * configuration the server currently runs with, so servers added or reconfigured at runtime are covered.
+ * <p>
+ * A process allocates most of its memory while it starts, so its RSS is first compared to max-rss
+ * after rss-warmup. The first RSS after the warm-up is its baseline: a max-rss at or below it would
+ * recycle every fresh process again, so it is reported and not applied to that process.
+ */
+@Slf4j
+@Component
+public class McpProcessMonitor {
+
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final MeterRegistry meterRegistry;
+    private final Duration sampleInterval;
+    // Servers whose gauges are registered
+    private final Set<String> gauged = ConcurrentHashMap.newKeySet();
+    private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("mcp-process-monitor").factory());
+
+    /**
+     * Latest usage of a server's process, with the CPU used per second since the sample before.
+     *
+     * @param baselineRss RSS of the process once it had warmed up, -1 while it is warming up
+     */
+    record Sample(StdioMcpClient process, ProcessUsage usage, long sampledNanos, double cpuUsage, long baselineRss) {
+    }
+
+    public McpProcessMonitor(McpServerConfig mcpServerConfig, McpDiscoveryService mcpDiscoveryService,
+                             MeterRegistry meterRegistry) {
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.meterRegistry = meterRegistry;
+        this.sampleInterval = mcpServerConfig.getProcessSampleInterval();
+    }
+
+    @PostConstruct
+    public void start() {
+        long period = Math.max(sampleInterval.toMillis(), 1);
+        scheduler.scheduleWithFixedDelay(this::checkAll, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void checkAll() {
+        Map<String, McpServerConfig.McpServer> servers = mcpDiscoveryService.getServerConfigs();
+        // Removed servers report no values
+        samples.keySet().retainAll(servers.keySet());
+        for (McpServerConfig.McpServer server : servers.values()) {
+            if (!"stdio".equals(server.getType())) {
+                continue;
+            }
+            String serverName = server.getName();
+            try {
+                check(serverName);
+            } catch (Exception e) {
+                log.warn("Failed to sample the process of MCP server {}: {}", serverName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sample the server's process and recycle it if it is over one of its limits.
+     */
+    void check(String serverName) {
+        McpServerConfig.McpServer server = mcpDiscoveryService.getServerConfigs().get(serverName);
+        StdioMcpClient process = mcpDiscoveryService.getProcess(serverName);
+        ProcessUsage usage = server != null && process != null ? process.sampleUsage() : null;
+        if (usage == null) {
+            // Starting or restarting
+            samples.remove(serverName);
+            return;
+        }
+        long now = System.nanoTime();
+        Sample previous = samples.get(serverName);
+        boolean sameProcess = previous != null && previous.process() == process;
+        double cpuUsage = 0;
+        if (sameProcess && now > previous.sampledNanos()) {
+            // A new process starts counting at zero again
+            cpuUsage = (double) usage.cpuTime().minus(previous.usage().cpuTime()).toNanos()
+                    / (now - previous.sampledNanos());
+        }
+        McpServerConfig.Recycle recycle = server.getRecycle();
+        long baselineRss = sameProcess ? previous.baselineRss() : -1;
+        if (baselineRss < 0 && process.getUptime().compareTo(recycle.getRssWarmup()) >= 0) {
+            baselineRss = usage.rssBytes();
+            if (recycle.getMaxRss() != null && baselineRss >= recycle.getMaxRss().toBytes()) {
+                log.warn("MCP server {} uses {} MB after warming up, max-rss of {} MB would recycle every new process; "
+                        + "not applying it", serverName, baselineRss / (1024 * 1024), recycle.getMaxRss().toMegabytes());
+            }
+        }
+        samples.put(serverName, new Sample(process, usage, now, Math.max(cpuUsage, 0), baselineRss));
+        if (gauged.add(serverName)) {
+            registerGauges(serverName);
+        }
+
+        String reason = recycleReason(recycle, process, usage, baselineRss);
+        if (reason != null) {
+            recycleCounter(serverName, reason).increment();
+            mcpDiscoveryService.recycleServer(serverName, reason + " limit reached");
+        }
+    }
+
+    /**
+     * The limit the process has reached, null if it is within all of them.
+     */
+    private static String recycleReason(McpServerConfig.Recycle settings, StdioMcpClient process, ProcessUsage usage,
+                                        long baselineRss) {
+        if (settings.getMaxCalls() > 0 && process.getToolCalls() >= settings.getMaxCalls()) {
+            return "calls";
+        }
+        // Not while warming up, and not if the process needed that much from the start
+        if (settings.getMaxRss() != null && baselineRss >= 0 && baselineRss < settings.getMaxRss().toBytes()
+                && usage.rssBytes() >= settings.getMaxRss().toBytes()) {
+            return "rss";
+        }
+        if (settings.getMaxAge() != null && process.getUptime().compareTo(settings.getMaxAge()) >= 0) {
+            return "age";
+        }
+        return null;
+    }
+
+    private void registerGauges(String serverName) {
+        Gauge.builder("mcp.process.rss", samples, s -> value(s, serverName, sample -> sample.usage().rssBytes()))
+            .description("Resident memory of an MCP server process and its children")
+            .baseUnit("bytes")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.process.cpu.time", samples,
+                s -> value(s, serverName, sample -> sample.usage().cpuTime().toNanos() / 1e9))
+            .description("CPU time used by an MCP server process and its children since it started")
+            .baseUnit("seconds")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.process.cpu.usage", samples, s -> value(s, serverName, Sample::cpuUsage))
+            .description("CPU cores used by an MCP server process and its children since the last sample")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.process.age", samples,
+                s -> value(s, serverName, sample -> sample.process().getUptime().toMillis() / 1000.0))
+            .description("Time since the current process of an MCP server was started")
+            .baseUnit("seconds")
+            .tag("server", serverName)
+            .register(meterRegistry);
+        Gauge.builder("mcp.process.calls", samples, s -> value(s, serverName, sample -> sample.process().getToolCalls()))
+            .description("Tool calls handled by the current process of an MCP server")
+            .tag("server", serverName)
+            .register(meterRegistry);
+    }
+
+    private static double value(Map<String, Sample> samples, String serverName,
+                                ToDoubleFunction<Sample> metric) {
+        Sample sample = samples.get(serverName);
+        return sample != null ? metric.applyAsDouble(sample) : Double.NaN;
+    }
+
+    private Counter recycleCounter(String serverName, String reason) {
+        return Counter.builder("mcp.process.recycles")
+            .description("MCP server processes replaced after reaching a recycle limit")
+            .tag("server", serverName)
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,112 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Routes the notifications/progress of a tool call to whoever waits for that call.
+ * The caller sets a listener for the current thread, the client sends its request id as progress
+ * token and hands the server's progress notifications for that token to the listener.
+ * Servers only report progress for requests that carry a token.
+ */
+@Slf4j
+final class McpProgress {
+
+    static final String NOTIFICATION = "notifications/progress";
+
+    private static final ThreadLocal<Listener> currentListener = new ThreadLocal<>();
+
+    private McpProgress() {
+    }
+
+    @FunctionalInterface
+    interface Listener {
+
+        /**
+         * @param total   null if the server does not know how much there is to do
+         * @param message null if the server sent none
+         */
+        void onProgress(double progress, Double total, String message);
+    }
+
+    /**
+     * Run a call with a listener for the progress of the tool calls it makes on this thread.
+     */
+    static <T> T withListener(Listener listener, Callable<T> call) throws Exception {
+        Listener previous = currentListener.get();
+        currentListener.set(listener);
+        try {
+            return call.call();
+        } finally {
+            if (previous != null) {
+                currentListener.set(previous);
+            } else {
+                currentListener.remove();
+            }
+        }
+    }
+
+    /**
+     * The listener of the current thread, null if nobody waits for progress.
+     */
+    static Listener current() {
+        return currentListener.get();
+    }
+
+    /**
+     * Send a request, reporting its progress to the listener of the calling thread if there is one.
+     * The listener is registered in the client's listeners under the request id while the request is
+     * in flight, so the client can {@link #dispatch} the server's notifications to it.
+     *
+     * @param send sends the request and waits for its response
+     */
+    static JsonNode sendWithProgress(ObjectNode request, Map<Long, Listener> listeners,
+                                     Callable<JsonNode> send) throws Exception {
+        Listener listener = currentListener.get();
+        if (listener == null) {
+            return send.call();
+        }
+        long token = request.get("id").asLong();
+        requestProgress(request, token);
+        listeners.put(token, listener);
+        try {
+            return send.call();
+        } finally {
+            listeners.remove(token);
+        }
+    }
+
+    /**
+     * Ask the server to report progress for a request, under the request's id.
+     */
+    static void requestProgress(ObjectNode request, long token) {
+        ((ObjectNode) request.get("params")).putObject("_meta").put("progressToken", token);
+    }
+
+    /**
+     * Hand a progress notification to the listener of its token.
+     * Returns false if the message is no progress notification or nobody waits for it.
+     */
+    static boolean dispatch(String serverName, JsonNode message, Map<Long, Listener> listeners) {
+        if (!NOTIFICATION.equals(message.path("method").asText())) {
+            return false;
+        }
+        JsonNode params = message.path("params");
+        Listener listener = listeners.get(params.path("progressToken").asLong(-1));
+        if (listener == null) {
+            return false;
+        }
+        try {
+            listener.onProgress(params.path("progress").asDouble(),
+                params.path("total").isNumber() ? params.get("total").asDouble() : null,
+                params.path("message").isTextual() ? params.get("message").asText() : null);
+        } catch (Exception e) {
+            log.warn("Progress listener failed for {}: {}", serverName, e.getMessage());
+        }
+        return true;
+    }
+}
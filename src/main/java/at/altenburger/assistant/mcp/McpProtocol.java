@@ -0,0 +1,178 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-RPC message building and parsing shared by all MCP transports.
+ */
+@Slf4j
+final class McpProtocol {
+
+    static final String CLIENT_NAME = "local-ai-assistant";
+    static final String CLIENT_VERSION = "1.0.0";
+
+    private static final ObjectMapper PARAMETER_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> PARAMETER_TYPE = new TypeReference<>() {
+    };
+
+    private McpProtocol() {
+    }
+
+    static ObjectNode request(ObjectMapper objectMapper, long id, String method) {
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("id", id);
+        request.put("method", method);
+        return request;
+    }
+
+    static ObjectNode notification(ObjectMapper objectMapper, String method) {
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        return notification;
+    }
+
+    static ObjectNode initializeRequest(ObjectMapper objectMapper, long id, String protocolVersion) {
+        ObjectNode initRequest = request(objectMapper, id, "initialize");
+
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("protocolVersion", protocolVersion);
+
+        ObjectNode clientInfo = objectMapper.createObjectNode();
+        clientInfo.put("name", CLIENT_NAME);
+        clientInfo.put("version", CLIENT_VERSION);
+        params.set("clientInfo", clientInfo);
+
+        // MCP protocol requires capabilities object
+        ObjectNode capabilities = objectMapper.createObjectNode();
+        capabilities.set("roots", objectMapper.createObjectNode());
+        capabilities.set("sampling", objectMapper.createObjectNode());
+        params.set("capabilities", capabilities);
+
+        initRequest.set("params", params);
+        return initRequest;
+    }
+
+    static ObjectNode toolCallRequest(ObjectMapper objectMapper, long id, String toolName, JsonNode arguments) {
+        ObjectNode request = request(objectMapper, id, "tools/call");
+
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("name", toolName);
+        params.set("arguments", arguments);
+
+        request.set("params", params);
+        return request;
+    }
+
+    /**
+     * Tool arguments as parameter map, for clients that call Java methods rather than send JSON.
+     */
+    static Map<String, Object> toParameters(JsonNode arguments) {
+        if (arguments == null || arguments.isNull() || arguments.isMissingNode()) {
+            return Map.of();
+        }
+        return PARAMETER_MAPPER.convertValue(arguments, PARAMETER_TYPE);
+    }
+
+    /**
+     * Get the result of a tools/call response, or fail with the JSON-RPC error.
+     */
+    static JsonNode toolResult(String serverName, String toolName, JsonNode response) {
+        JsonNode result = response.get("result");
+        if (result == null) {
+            throw new McpServerException("MCP tool " + toolName + " failed on " + serverName + ": " + response.get("error"));
+        }
+        return result;
+    }
+
+    /**
+     * Fail with the JSON-RPC error if the server rejected a ping.
+     */
+    static void checkPing(String serverName, JsonNode response) {
+        if (response.get("result") == null) {
+            throw new McpServerException("MCP server " + serverName + " rejected ping: " + response.get("error"));
+        }
+    }
+
+    /**
+     * Whether a message is a request the server sends to us rather than the response to one of ours.
+     */
+    static boolean isServerRequest(JsonNode message) {
+        return message.has("method") && message.has("id");
+    }
+
+    /**
+     * The reply to a request from the server: an empty result for ping, method not found for
+     * anything else, since the client advertises no capability the server could ask for.
+     */
+    static ObjectNode serverRequestReply(ObjectMapper objectMapper, String serverName, JsonNode request) {
+        ObjectNode reply = objectMapper.createObjectNode();
+        reply.put("jsonrpc", "2.0");
+        reply.set("id", request.get("id"));
+        String method = request.path("method").asText();
+        if ("ping".equals(method)) {
+            reply.set("result", objectMapper.createObjectNode());
+        } else {
+            log.debug("Rejecting request {} from {}", method, serverName);
+            ObjectNode error = objectMapper.createObjectNode();
+            error.put("code", -32601);
+            error.put("message", "Method not found: " + method);
+            reply.set("error", error);
+        }
+        return reply;
+    }
+
+    /**
+     * Hand a notification to all listeners. A failing listener does not affect the others.
+     */
+    static void dispatchNotification(String serverName, JsonNode message, List<McpNotificationListener> listeners) {
+        String method = message.path("method").asText();
+        log.debug("Received notification {} from {}", method, serverName);
+        for (McpNotificationListener listener : listeners) {
+            try {
+                listener.onNotification(serverName, method, message.path("params"));
+            } catch (Exception e) {
+                log.warn("Notification listener failed for {} from {}: {}", method, serverName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parse the tools of a tools/list response. Returns an empty list for malformed responses.
+     */
+    static List<McpClient.McpTool> parseTools(String serverName, JsonNode response) {
+        List<McpClient.McpTool> result = new ArrayList<>();
+
+        // Handle response - check for result and tools
+        JsonNode resultNode = response.get("result");
+        if (resultNode == null) {
+            log.warn("No result in tools/list response from {}: {}", serverName, response);
+            return result;
+        }
+
+        JsonNode tools = resultNode.get("tools");
+        if (tools == null || !tools.isArray()) {
+            log.warn("No tools array in response from {}: {}", serverName, resultNode);
+            return result;
+        }
+
+        for (JsonNode tool : tools) {
+            McpClient.McpTool mcpTool = new McpClient.McpTool();
+            mcpTool.setName(tool.get("name").asText());
+            mcpTool.setDescription(tool.has("description") ? tool.get("description").asText() : "");
+            mcpTool.setInputSchema(tool.get("inputSchema"));
+            result.add(mcpTool);
+        }
+        return result;
+    }
+}
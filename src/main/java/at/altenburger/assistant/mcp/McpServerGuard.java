@@ -0,0 +1,87 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.core.exception.McpServerUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker and bulkhead for the tool calls to one MCP server.
+ * Rejected calls fail fast with {@link McpServerUnavailableException} instead of waiting for the
+ * server's timeout; they count neither as failures nor towards the breaker's window.
+ */
+@Slf4j
+public class McpServerGuard {
+
+    private final String serverName;
+    private final McpCircuitBreaker circuitBreaker;
+    private final McpBulkhead bulkhead;
+    private final McpClientMetrics metrics;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public McpServerGuard(String serverName, McpServerConfig.CircuitBreaker circuitBreakerSettings,
+                          McpServerConfig.Bulkhead bulkheadSettings, McpClientMetrics metrics) {
+        this.serverName = serverName;
+        this.circuitBreaker = new McpCircuitBreaker(serverName, circuitBreakerSettings, System::nanoTime);
+        this.bulkhead = new McpBulkhead(bulkheadSettings);
+        this.metrics = metrics;
+    }
+
+    public <T> T call(Callable<T> call) throws Exception {
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject("circuit_open", "MCP server " + serverName + " is unavailable (circuit open)");
+        }
+
+        McpBulkhead.Admission admission;
+        long waitStart = System.nanoTime();
+        try {
+            admission = bulkhead.acquire();
+            metrics.recordQueueWait(serverName, "bulkhead", System.nanoTime() - waitStart);
+        } catch (InterruptedException e) {
+            // The permitted call never ran, it is neither a success nor a failure
+            circuitBreaker.releasePermission();
+            throw e;
+        }
+        if (admission != McpBulkhead.Admission.ACQUIRED) {
+            circuitBreaker.releasePermission();
+            throw reject(admission == McpBulkhead.Admission.QUEUE_FULL ? "bulkhead_full" : "queue_timeout",
+                "MCP server " + serverName + " is unavailable (too many concurrent calls)");
+        }
+
+        long startTime = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            bulkhead.release();
+            circuitBreaker.onResult(System.nanoTime() - startTime, failed);
+        }
+    }
+
+    public McpCircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    public int getActiveCalls() {
+        return bulkhead.activeCalls();
+    }
+
+    public int getQueuedCalls() {
+        return bulkhead.queuedCalls();
+    }
+
+    private McpServerUnavailableException reject(String reason, String message) {
+        rejectedCalls.incrementAndGet();
+        metrics.recordRejected(serverName, reason);
+        log.debug("Rejected call to {}: {}", serverName, reason);
+        return new McpServerUnavailableException(message);
+    }
+}
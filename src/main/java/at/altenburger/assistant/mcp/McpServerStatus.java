@@ -0,0 +1,37 @@
+package at.altenburger.assistant.mcp;
+
+/**
+ * Startup state of a single MCP server, as reported by the readiness health indicator.
+ * A server that stopped answering pings is degraded until its restart has finished. A configured
+ * server that is disabled or was stopped is only reported as stopped by the mcpservers endpoint.
+ */
+public record McpServerStatus(String serverName, State state, int toolCount, long startupMs, String error) {
+
+    public enum State {
+        STARTING,
+        READY,
+        DEGRADED,
+        FAILED,
+        STOPPED
+    }
+
+    public static McpServerStatus starting(String serverName) {
+        return new McpServerStatus(serverName, State.STARTING, 0, 0, null);
+    }
+
+    public static McpServerStatus ready(String serverName, int toolCount, long startupMs) {
+        return new McpServerStatus(serverName, State.READY, toolCount, startupMs, null);
+    }
+
+    public static McpServerStatus degraded(String serverName, int toolCount, long startupMs, String error) {
+        return new McpServerStatus(serverName, State.DEGRADED, toolCount, startupMs, error);
+    }
+
+    public static McpServerStatus failed(String serverName, long startupMs, String error) {
+        return new McpServerStatus(serverName, State.FAILED, 0, startupMs, error);
+    }
+
+    public static McpServerStatus stopped(String serverName) {
+        return new McpServerStatus(serverName, State.STOPPED, 0, 0, null);
+    }
+}
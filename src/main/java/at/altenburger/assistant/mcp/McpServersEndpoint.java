@@ -0,0 +1,203 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.OptionalParameter;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+/**
+ * Actuator endpoint (mcpservers) to stop, start and reconfigure the configured MCP servers without
+ * restarting the application. Writing to {name} (re)starts the server with its configured settings,
+ * overlaid with the given settings, and answers once it has started, at most after the startup
+ * timeout; deleting it stops the server. Only servers defined in the configuration can be started,
+ * and how they are launched (type, command, arguments, environment, URL, headers) cannot be changed
+ * here. Changes are gone after a restart.
+ * <p>
+ * The endpoint is read-only over HTTP by default. Its write operations are meant for JMX with
+ * authentication, see application.properties.
+ */
+@Component
+@Endpoint(id = "mcpservers")
+@RequiredArgsConstructor
+public class McpServersEndpoint {
+
+    private static final String SERVERS_PREFIX = "assistant.mcp.servers";
+    // Settings that change how a server's calls are handled, never what is launched
+    private static final Set<String> CONFIGURABLE_SETTINGS = Set.of(
+        "description", "batchrequests", "draintimeout", "circuitbreaker", "bulkhead", "statemirror",
+        "liveness", "recycle", "tools");
+
+    private final McpServerConfig mcpServerConfig;
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final Environment environment;
+
+    /**
+     * Every configured server, stopped and disabled ones included, so they can be started from here.
+     */
+    @ReadOperation
+    public Map<String, ServerReport> servers() {
+        Set<String> names = new TreeSet<>(configuredServers().keySet());
+        names.addAll(mcpDiscoveryService.getServerConfigs().keySet());
+        Map<String, ServerReport> servers = new LinkedHashMap<>();
+        names.forEach(name -> servers.put(name, report(name)));
+        return servers;
+    }
+
+    @ReadOperation
+    public ServerReport server(@Selector String name) {
+        // null answers 404
+        return configuredServers().containsKey(name) || mcpDiscoveryService.getServerConfigs().containsKey(name)
+            ? report(name)
+            : null;
+    }
+
+    /**
+     * Start a configured server, or restart it with other settings.
+     *
+     * @param settings settings relative to the server, in property form, e.g.
+     *                 {@code bulkhead.max-concurrent-calls=4} or {@code tools[GetLiveContext].cache=never}
+     */
+    @WriteOperation
+    public WebEndpointResponse<Object> configureServer(@Selector String name,
+                                                       @OptionalParameter Map<String, String> settings) {
+        McpServerConfig.McpServer serverConfig;
+        try {
+            serverConfig = configuredServer(name, settings != null ? settings : Map.of());
+        } catch (IllegalArgumentException | BindException e) {
+            return new WebEndpointResponse<>(Map.of("error", String.valueOf(e.getMessage())),
+                WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (serverConfig == null) {
+            return new WebEndpointResponse<>(Map.of("error", "MCP server " + name + " is not configured"),
+                WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        McpServerStatus status;
+        try {
+            status = mcpDiscoveryService.addServer(serverConfig)
+                .get(mcpServerConfig.getStartupTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), 409);
+        } catch (TimeoutException e) {
+            // Continues starting in the background, like a server at application startup
+            return new WebEndpointResponse<>(report(name), 202);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(report(name), 202);
+        } catch (ExecutionException e) {
+            return new WebEndpointResponse<>(Map.of("error", String.valueOf(e.getCause().getMessage())),
+                WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+
+        ServerReport report = report(name, status);
+        int httpStatus = status != null && status.state() == McpServerStatus.State.FAILED
+            ? WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR
+            : WebEndpointResponse.STATUS_OK;
+        return new WebEndpointResponse<>(report, httpStatus);
+    }
+
+    /**
+     * Stop a running server. It stays configured and can be started again.
+     */
+    @DeleteOperation
+    public WebEndpointResponse<Void> stopServer(@Selector String name) {
+        return new WebEndpointResponse<>(mcpDiscoveryService.removeServer(name)
+            ? WebEndpointResponse.STATUS_NO_CONTENT
+            : WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    /**
+     * A fresh copy of a server's configuration with the settings applied, null if no such server is
+     * configured. A copy, so the configuration the server runs with now stays untouched until the new
+     * one has taken over.
+     */
+    private McpServerConfig.McpServer configuredServer(String name, Map<String, String> settings) {
+        List<McpServerConfig.McpServer> servers = mcpServerConfig.getServers();
+        int index = servers != null
+            ? IntStream.range(0, servers.size()).filter(i -> name.equals(servers.get(i).getName())).findFirst().orElse(-1)
+            : -1;
+        if (index < 0) {
+            return null;
+        }
+        for (String key : settings.keySet()) {
+            String setting = key.split("[.\\[]", 2)[0].replace("-", "").toLowerCase(Locale.ROOT);
+            if (!CONFIGURABLE_SETTINGS.contains(setting)) {
+                throw new IllegalArgumentException("Setting " + key + " cannot be changed at runtime");
+            }
+        }
+
+        McpServerConfig.McpServer serverConfig = Binder.get(environment)
+            .bind(SERVERS_PREFIX + "[" + index + "]", McpServerConfig.McpServer.class)
+            .orElseGet(McpServerConfig.McpServer::new);
+        Map<String, String> overrides = new LinkedHashMap<>();
+        settings.forEach((key, value) -> overrides.put("server." + key, value));
+        new Binder(new MapConfigurationPropertySource(overrides)).bind("server", Bindable.ofInstance(serverConfig));
+        serverConfig.setName(name);
+        serverConfig.setEnabled(true);
+        serverConfig.validate();
+        return serverConfig;
+    }
+
+    private Map<String, McpServerConfig.McpServer> configuredServers() {
+        Map<String, McpServerConfig.McpServer> servers = new LinkedHashMap<>();
+        if (mcpServerConfig.getServers() != null) {
+            mcpServerConfig.getServers().forEach(server -> servers.putIfAbsent(server.getName(), server));
+        }
+        return servers;
+    }
+
+    /**
+     * The report of a running server, or of a configured one that is not running as stopped.
+     */
+    private ServerReport report(String name) {
+        McpServerStatus status = mcpDiscoveryService.getServerStatus().get(name);
+        if (status == null && !mcpDiscoveryService.getServerConfigs().containsKey(name)) {
+            status = McpServerStatus.stopped(name);
+        }
+        return report(name, status);
+    }
+
+    private ServerReport report(String name, McpServerStatus status) {
+        McpServerConfig.McpServer serverConfig = mcpDiscoveryService.getServerConfigs().get(name);
+        if (serverConfig == null) {
+            serverConfig = configuredServers().get(name);
+        }
+        McpClient client = mcpDiscoveryService.getClient(name);
+        return new ServerReport(
+            serverConfig != null ? serverConfig.getType() : null,
+            status != null ? status.state() : null,
+            status != null ? status.toolCount() : 0,
+            status != null ? status.startupMs() : 0,
+            client != null ? client.inFlightCalls() : 0,
+            status != null ? status.error() : null);
+    }
+
+    /**
+     * State of one server; startupMs is the time from launching it until its tools were listed.
+     */
+    public record ServerReport(String type, McpServerStatus.State state, int tools, long startupMs,
+                               int inFlightCalls, String error) {
+    }
+}
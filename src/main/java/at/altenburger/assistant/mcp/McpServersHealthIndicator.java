@@ -0,0 +1,51 @@
+package at.altenburger.assistant.mcp;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the startup state of each MCP server, and its circuit breaker and bulkhead.
+ * Part of the readiness group, so deployments can see which servers are still starting.
+ * Servers that fail or are still starting don't take the application out of service -
+ * their tools are simply not offered to the LLM until they are ready.
+ */
+@Component
+@RequiredArgsConstructor
+public class McpServersHealthIndicator implements HealthIndicator {
+
+    private final McpDiscoveryService mcpDiscoveryService;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+
+        for (McpServerStatus status : mcpDiscoveryService.getServerStatus().values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("state", status.state());
+            if (status.state() != McpServerStatus.State.STARTING) {
+                details.put("startupMs", status.startupMs());
+            }
+            if (status.state() == McpServerStatus.State.READY || status.state() == McpServerStatus.State.DEGRADED) {
+                details.put("tools", status.toolCount());
+            }
+            if (status.error() != null) {
+                details.put("error", status.error());
+            }
+            McpServerGuard guard = mcpDiscoveryService.getServerGuards().get(status.serverName());
+            if (guard != null) {
+                details.put("circuit", guard.getCircuitState());
+                details.put("activeCalls", guard.getActiveCalls());
+                details.put("queuedCalls", guard.getQueuedCalls());
+                details.put("rejectedCalls", guard.getRejectedCalls());
+            }
+            builder.withDetail(status.serverName(), details);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,323 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the results of state-read tools, e.g. Home Assistant's GetLiveContext.
+ * The model reads the state before every change, so without the mirror each smart-home command
+ * costs an extra round trip through the server. The mirror is filled once a server has started,
+ * refreshed in the background and on the server's change notifications, and serves reads only
+ * while they are younger than max-staleness. Every state-changing call to the server invalidates
+ * the mirror of that server, so the model never reads its own change as not yet applied.
+ * Calls with arguments are only mirrored while they are read: one not read within max-staleness
+ * is dropped instead of refreshed, and beyond max-entries per server the least recently read go.
+ * Mirror settings come from the configuration a server currently runs with; a reconfigured
+ * server starts over with an empty mirror.
+ */
+@Slf4j
+@Component
+public class McpStateMirror {
+
+    // Give the server a moment to apply a change before the mirror reads the new state
+    private static final Duration SETTLE_DELAY = Duration.ofSeconds(1);
+
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+    // Servers whose age gauge is registered
+    private final Set<String> gauged = ConcurrentHashMap.newKeySet();
+    private final Map<McpToolKey, MirrorEntry> entries = new ConcurrentHashMap<>();
+    // Bumped by every write, so reads that started before it do not store their outdated state
+    private final Map<String, AtomicLong> writeGenerations = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("mcp-state-mirror").factory());
+
+    /**
+     * The periodic refresh of a server's mirror, with the settings it was scheduled for.
+     */
+    private record Schedule(McpServerConfig.StateMirror settings, ScheduledFuture<?> task) {
+    }
+
+    public McpStateMirror(McpDiscoveryService mcpDiscoveryService, MeterRegistry meterRegistry) {
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        mcpDiscoveryService.getServerConfigs().keySet().forEach(this::reschedule);
+        // Fill the mirror as soon as a server is up, and follow servers added, reconfigured or removed
+        mcpDiscoveryService.addToolsChangedListener(serverName -> {
+            reschedule(serverName);
+            if (settings(serverName) != null) {
+                scheduleRefresh(serverName, Duration.ZERO);
+            }
+        });
+        mcpDiscoveryService.addNotificationListener((serverName, method, params) -> {
+            McpServerConfig.StateMirror settings = settings(serverName);
+            if (settings != null && settings.getRefreshOn().contains(method)) {
+                scheduleRefresh(serverName, Duration.ZERO);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isMirrored(String serverName, String toolName) {
+        McpServerConfig.StateMirror settings = settings(serverName);
+        return settings != null && settings.getTools().contains(toolName);
+    }
+
+    /**
+     * The mirror settings of a server, null if it mirrors no tools.
+     */
+    private McpServerConfig.StateMirror settings(String serverName) {
+        McpServerConfig.McpServer server = mcpDiscoveryService.getServerConfigs().get(serverName);
+        if (server == null || server.getStateMirror().getTools().isEmpty()) {
+            return null;
+        }
+        return server.getStateMirror();
+    }
+
+    /**
+     * Schedule the refresh of a server's mirror for the settings it currently runs with. A server that
+     * was reconfigured or removed loses its mirrored state, it may no longer be valid for it.
+     */
+    private void reschedule(String serverName) {
+        McpServerConfig.StateMirror settings = settings(serverName);
+        schedules.compute(serverName, (name, current) -> {
+            if (current != null && current.settings() == settings) {
+                return current;
+            }
+            if (current != null) {
+                current.task().cancel(false);
+                entries.keySet().removeIf(key -> key.serverName().equals(name));
+            }
+            if (settings == null) {
+                return null;
+            }
+            if (gauged.add(name)) {
+                Gauge.builder("mcp.state.mirror.age", this, mirror -> mirror.oldestAgeSeconds(name))
+                    .description("Age of the oldest mirrored state of an MCP server")
+                    .baseUnit("seconds")
+                    .tag("server", name)
+                    .register(meterRegistry);
+            }
+            long interval = settings.getRefreshInterval().toMillis();
+            return new Schedule(settings,
+                scheduler.scheduleWithFixedDelay(() -> refresh(name), interval, interval, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    /**
+     * Serve a state read from the mirror if it is fresh enough, otherwise make the live call and keep its result.
+     */
+    public JsonNode read(McpToolKey key, JsonNode arguments, Callable<JsonNode> liveCall) throws Exception {
+        McpServerConfig.StateMirror settings = settings(key.serverName());
+        if (settings == null) {
+            // Reconfigured since the caller checked isMirrored
+            return liveCall.call();
+        }
+        MirrorEntry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastReadNanos().set(System.nanoTime());
+        }
+        if (entry != null && entry.valid()) {
+            long ageNanos = System.nanoTime() - entry.refreshedAtNanos();
+            if (ageNanos <= settings.getMaxStaleness().toNanos()) {
+                readCounter(key, "hit").increment();
+                stalenessTimer(key).record(ageNanos, TimeUnit.NANOSECONDS);
+                log.debug("Serving MCP tool {} on {} from the state mirror", key.toolName(), key.serverName());
+                return entry.result();
+            }
+            readCounter(key, "stale").increment();
+        } else {
+            readCounter(key, "miss").increment();
+        }
+
+        long generation = generation(key.serverName()).get();
+        JsonNode result = liveCall.call();
+        store(key, arguments, result, generation);
+        return result;
+    }
+
+    /**
+     * A state-changing call went to the server: stop serving its mirrored state and refresh it.
+     */
+    public void invalidate(String serverName) {
+        if (settings(serverName) == null) {
+            return;
+        }
+        AtomicLong generation = generation(serverName);
+        synchronized (generation) {
+            generation.incrementAndGet();
+            entries.replaceAll((key, entry) -> key.serverName().equals(serverName) ? entry.invalidated() : entry);
+        }
+        scheduleRefresh(serverName, SETTLE_DELAY);
+    }
+
+    private void scheduleRefresh(String serverName, Duration delay) {
+        if (!pendingRefreshes.add(serverName)) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            // Cleared first, so a change during the refresh schedules another one
+            pendingRefreshes.remove(serverName);
+            refresh(serverName);
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Re-read every mirrored call of a server. Configured tools are read without arguments
+     * even before the model asked for them, so the first read is already a hit.
+     */
+    void refresh(String serverName) {
+        McpServerConfig.StateMirror settings = settings(serverName);
+        McpClient client = mcpDiscoveryService.getClient(serverName);
+        if (settings == null || client == null) {
+            // Removed, or not started yet - the tools changed listener refreshes once it is
+            return;
+        }
+
+        Map<McpToolKey, JsonNode> calls = new HashMap<>();
+        for (String toolName : settings.getTools()) {
+            JsonNode noArguments = objectMapper.createObjectNode();
+            calls.put(McpToolKey.of(serverName, toolName, noArguments), noArguments);
+        }
+        long unreadSince = System.nanoTime() - settings.getMaxStaleness().toNanos();
+        entries.forEach((key, entry) -> {
+            if (!key.serverName().equals(serverName) || calls.containsKey(key)) {
+                return;
+            }
+            if (entry.lastReadNanos().get() - unreadSince < 0) {
+                // Nobody asked for it since it was last served, a read would only hit a stale copy
+                entries.remove(key, entry);
+            } else {
+                calls.put(key, entry.arguments());
+            }
+        });
+
+        for (Map.Entry<McpToolKey, JsonNode> call : calls.entrySet()) {
+            McpToolKey key = call.getKey();
+            long generation = generation(serverName).get();
+            try {
+                store(key, call.getValue(), client.callTool(key.toolName(), call.getValue()), generation);
+            } catch (Exception e) {
+                // Keeps serving the previous state until it is older than max-staleness
+                log.debug("Failed to refresh mirrored state of {} on {}: {}", key.toolName(), serverName, e.getMessage());
+            }
+        }
+    }
+
+    private void store(McpToolKey key, JsonNode arguments, JsonNode result, long generation) {
+        if (result.path("isError").asBoolean(false)) {
+            return;
+        }
+        AtomicLong currentGeneration = generation(key.serverName());
+        boolean added;
+        synchronized (currentGeneration) {
+            if (currentGeneration.get() != generation) {
+                return;
+            }
+            long now = System.nanoTime();
+            MirrorEntry current = entries.get(key);
+            // A refresh is not a read, the entry keeps the time it was last read
+            AtomicLong lastRead = current != null ? current.lastReadNanos() : new AtomicLong(now);
+            entries.put(key, new MirrorEntry(arguments, result, now, true, lastRead));
+            added = current == null;
+        }
+        McpServerConfig.StateMirror settings = settings(key.serverName());
+        if (added && settings != null) {
+            evictLeastRecentlyRead(key.serverName(), settings.getMaxEntries());
+        }
+    }
+
+    /**
+     * Drop the least recently read calls of a server beyond max-entries, so calls with ever new
+     * arguments cannot grow the mirror without bound.
+     */
+    private void evictLeastRecentlyRead(String serverName, int maxEntries) {
+        List<Map.Entry<McpToolKey, MirrorEntry>> serverEntries = entries.entrySet().stream()
+            .filter(entry -> entry.getKey().serverName().equals(serverName))
+            .toList();
+        int excess = serverEntries.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        serverEntries.stream()
+            .sorted(Comparator.comparingLong(entry -> entry.getValue().lastReadNanos().get()))
+            .limit(excess)
+            .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        log.debug("Dropped {} least recently read mirrored calls of {}", excess, serverName);
+    }
+
+    private AtomicLong generation(String serverName) {
+        return writeGenerations.computeIfAbsent(serverName, name -> new AtomicLong());
+    }
+
+    private double oldestAgeSeconds(String serverName) {
+        long now = System.nanoTime();
+        return entries.entrySet().stream()
+            .filter(entry -> entry.getKey().serverName().equals(serverName) && entry.getValue().valid())
+            .mapToLong(entry -> now - entry.getValue().refreshedAtNanos())
+            .max()
+            .orElse(0) / 1e9;
+    }
+
+    private Counter readCounter(McpToolKey key, String result) {
+        return Counter.builder("mcp.state.mirror.reads")
+            .description("State reads by whether the mirror could answer them (hit, stale, miss)")
+            .tag("server", key.serverName())
+            .tag("tool", key.toolName())
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private Timer stalenessTimer(McpToolKey key) {
+        return Timer.builder("mcp.state.mirror.staleness")
+            .description("Age of the mirrored state served instead of a live read")
+            .tag("server", key.serverName())
+            .tag("tool", key.toolName())
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param lastReadNanos when the model last asked for this call, shared by the entries that replace it
+     */
+    private record MirrorEntry(JsonNode arguments, JsonNode result, long refreshedAtNanos, boolean valid,
+                               AtomicLong lastReadNanos) {
+
+        MirrorEntry invalidated() {
+            return new MirrorEntry(arguments, result, refreshedAtNanos, false, lastReadNanos);
+        }
+    }
+}
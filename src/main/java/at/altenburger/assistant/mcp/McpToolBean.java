@@ -0,0 +1,25 @@
+package at.altenburger.assistant.mcp;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Spring bean whose {@link McpToolMethod} methods are served in-process
+ * by an MCP server of type {@code in-process}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Component
+public @interface McpToolBean {
+
+    /**
+     * Name of the configured in-process MCP server that exposes the tools of this bean.
+     */
+    String server() default "local-tools";
+}
@@ -1,19 +1,35 @@
 package at.altenburger.assistant.mcp;
 
+import at.altenburger.assistant.core.exception.McpServerUnavailableException;
 import at.altenburger.assistant.service.anonymization.AnonymizationResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ToolContext;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.definition.ToolDefinition;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Provides Spring AI ToolCallbacks for MCP tools.
@@ -25,18 +41,42 @@ import java.util.function.Function;
 public class McpToolCallbackProvider {
 
     private final McpDiscoveryService mcpDiscoveryService;
+    private final McpToolRegistry toolRegistry;
+    private final McpToolInvoker toolInvoker;
+    private final ToolResultReducer resultReducer;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Single thread, so callback rebuilds never overlap
+    private final ExecutorService callbackExecutor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("mcp-tool-callbacks").factory());
 
-    // Thread-local to track tool calls during a request
-    private static final ThreadLocal<List<ToolCall>> toolCallsTracker = ThreadLocal.withInitial(ArrayList::new);
+    // Thread-local to track tool calls during a request (synchronized, tool calls of a turn may run concurrently)
+    private static final ThreadLocal<List<ToolCall>> toolCallsTracker =
+            ThreadLocal.withInitial(() -> Collections.synchronizedList(new ArrayList<>()));
 
     // Thread-local to store anonymization context for deanonymizing tool parameters
     private static final ThreadLocal<AnonymizationResult> anonymizationContext = new ThreadLocal<>();
 
-    // Cache for tool callbacks to avoid rebuilding on every request
-    private volatile List<ToolCallback> cachedCallbacks = null;
-    private volatile long cacheTimestamp = 0;
-    private static final long CACHE_TTL_MS = 5 * 60 * 1000; // 5 minutes
+    // Thread-local to route tool activity into the stream of the request, if it streams
+    private static final ThreadLocal<Consumer<ToolEvent>> toolEventListener = new ThreadLocal<>();
+
+    // Lets clients tell apart concurrent calls of the same tool
+    private static final AtomicLong toolCallIds = new AtomicLong();
+
+    // Callbacks of one registry version, replaced in the background whenever the registry changes
+    private volatile CallbackSnapshot cachedCallbacks = CallbackSnapshot.EMPTY;
+
+    @PostConstruct
+    public void registerToolsChangedListener() {
+        mcpDiscoveryService.addToolsChangedListener(serverName -> callbackExecutor.execute(this::refreshCallbacks));
+        // Servers that finished starting before the listener was registered
+        refreshCallbacks();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callbackExecutor.shutdownNow();
+    }
 
     /**
      * Clear the tool calls tracker (call at the start of a request).
@@ -49,7 +89,45 @@ public class McpToolCallbackProvider {
      * Get the list of tool calls made during the current request.
      */
     public List<ToolCall> getToolCalls() {
-        return new ArrayList<>(toolCallsTracker.get());
+        List<ToolCall> toolCalls = toolCallsTracker.get();
+        synchronized (toolCalls) {
+            return new ArrayList<>(toolCalls);
+        }
+    }
+
+    /**
+     * Capture the request-scoped state of the current thread,
+     * so tool calls can run on other threads.
+     */
+    public RequestContext captureContext() {
+        return new RequestContext(toolCallsTracker.get(), anonymizationContext.get(), toolEventListener.get());
+    }
+
+    /**
+     * Run an action on the current thread with a captured request context.
+     */
+    public <T> T callWithContext(RequestContext context, Supplier<T> action) {
+        List<ToolCall> previousToolCalls = toolCallsTracker.get();
+        AnonymizationResult previousAnonymization = anonymizationContext.get();
+        Consumer<ToolEvent> previousToolEvents = toolEventListener.get();
+        toolCallsTracker.set(context.toolCalls());
+        anonymizationContext.set(context.anonymization());
+        toolEventListener.set(context.toolEvents());
+        try {
+            return action.get();
+        } finally {
+            toolCallsTracker.set(previousToolCalls);
+            if (previousAnonymization != null) {
+                anonymizationContext.set(previousAnonymization);
+            } else {
+                anonymizationContext.remove();
+            }
+            if (previousToolEvents != null) {
+                toolEventListener.set(previousToolEvents);
+            } else {
+                toolEventListener.remove();
+            }
+        }
     }
 
     /**
@@ -67,92 +145,90 @@ public class McpToolCallbackProvider {
         anonymizationContext.remove();
     }
 
+    /**
+     * Set the listener for the tool activity of the current request: start, progress and finish of each call.
+     */
+    public void setToolEventListener(Consumer<ToolEvent> listener) {
+        toolEventListener.set(listener);
+    }
+
+    /**
+     * Remove all request-scoped state from the current thread, once a captured context has taken it
+     * over for tool calls that run on other threads. Pooled request threads would keep it otherwise.
+     */
+    public void clearContext() {
+        toolCallsTracker.remove();
+        anonymizationContext.remove();
+        toolEventListener.remove();
+    }
+
     /**
      * Get all MCP tools as Spring AI ToolCallbacks.
-     * Uses caching to avoid rebuilding callbacks on every request.
+     * Never rebuilds on the calling thread, a change to the tools shows up once the
+     * background refresh has published it.
      */
     public List<ToolCallback> getToolCallbacks() {
-        long now = System.currentTimeMillis();
+        return cachedCallbacks.callbacks();
+    }
 
-        // Check if cache is still valid
-        if (cachedCallbacks != null && (now - cacheTimestamp) < CACHE_TTL_MS) {
-            log.debug("Using cached tool callbacks ({} tools)", cachedCallbacks.size());
-            return cachedCallbacks;
+    /**
+     * Bring the callbacks up to date with the registry.
+     * Callbacks of tools that did not change are reused, only new or changed tools get new ones.
+     */
+    private void refreshCallbacks() {
+        CallbackSnapshot current = cachedCallbacks;
+        // Read before the tools: if the registry changes in between, the next refresh catches up
+        long version = toolRegistry.getVersion();
+        if (current.version() == version) {
+            return;
         }
 
-        // Rebuild cache
-        synchronized (this) {
-            // Double-check after acquiring lock
-            if (cachedCallbacks != null && (now - cacheTimestamp) < CACHE_TTL_MS) {
-                return cachedCallbacks;
-            }
-
-            List<ToolCallback> callbacks = new ArrayList<>();
-            Map<String, List<McpClient.McpTool>> allTools = mcpDiscoveryService.getAllTools();
-
-            for (Map.Entry<String, List<McpClient.McpTool>> entry : allTools.entrySet()) {
-                String serverName = entry.getKey();
-
-                for (McpClient.McpTool tool : entry.getValue()) {
-                    ToolCallback callback = createCallback(serverName, tool);
-                    callbacks.add(callback);
-                    log.debug("Registered MCP tool: {}", tool.getName());
-                }
+        Map<McpToolRegistry.RegisteredTool, ToolCallback> byTool = new LinkedHashMap<>();
+        int created = 0;
+        for (McpToolRegistry.RegisteredTool tool : toolRegistry.getTools()) {
+            ToolCallback callback = current.byTool().get(tool);
+            if (callback == null) {
+                callback = createCallback(tool);
+                created++;
+                log.debug("Registered MCP tool: {}", tool.exposedName());
             }
-
-            cachedCallbacks = callbacks;
-            cacheTimestamp = now;
-            log.info("Rebuilt tool callback cache: {} MCP tools registered", callbacks.size());
-            return callbacks;
+            byTool.put(tool, callback);
         }
-    }
 
-    /**
-     * Force refresh of the tool callback cache.
-     * Call this when MCP server configuration changes.
-     */
-    public void invalidateCache() {
-        synchronized (this) {
-            cachedCallbacks = null;
-            cacheTimestamp = 0;
-            log.info("Tool callback cache invalidated");
-        }
+        cachedCallbacks = new CallbackSnapshot(version, byTool, List.copyOf(byTool.values()));
+        log.info("Updated tool callbacks to registry version {}: {} MCP tools, {} new",
+                version, byTool.size(), created);
     }
 
-    private ToolCallback createCallback(String serverName, McpClient.McpTool tool) {
-        // Create a function that calls the MCP tool
-        Function<McpToolRequest, String> toolFunction = request -> {
+    private ToolCallback createCallback(McpToolRegistry.RegisteredTool registeredTool) {
+        String serverName = registeredTool.serverName();
+        McpClient.McpTool tool = registeredTool.tool();
+
+        // Create a function that calls the MCP tool with the (deanonymized) arguments
+        Function<JsonNode, String> toolFunction = arguments -> {
             long startTime = System.currentTimeMillis();
+            AnonymizationResult anonymization = anonymizationContext.get();
+            ToolEvents events = new ToolEvents(toolEventListener.get(), toolCallIds.incrementAndGet(),
+                    serverName, tool.getName());
             try {
                 log.info("Calling MCP tool: {} on {}", tool.getName(), serverName);
+                events.started();
 
-                McpClient client = mcpDiscoveryService.getClient(serverName);
-                if (client == null) {
-                    return "Error: MCP server not available: " + serverName;
-                }
-
-                // Convert request to parameters map
-                Map<String, Object> params = request.toMap();
-
-                // Deanonymize parameters before calling MCP server
-                // This restores original values like "Wohnzimmer" from "[ROOM_1]"
-                AnonymizationResult anonymization = anonymizationContext.get();
-                if (anonymization != null && anonymization.hasAnonymizedEntities()) {
-                    params = deanonymizeParams(params, anonymization);
-                    log.debug("Deanonymized MCP tool parameters for {}", tool.getName());
-                }
-
-                JsonNode result = client.callTool(tool.getName(), params);
+                JsonNode result = McpProgress.withListener(events::progress,
+                        () -> toolInvoker.callTool(serverName, tool.getName(), arguments));
 
                 long duration = System.currentTimeMillis() - startTime;
-                log.debug("MCP tool {} returned: {} bytes in {}ms", tool.getName(), result.toString().length(), duration);
+                log.debug("MCP tool {} returned in {}ms", tool.getName(), duration);
 
                 // Track the tool call
-                toolCallsTracker.get().add(new ToolCall(serverName, tool.getName(), duration));
+                toolCallsTracker.get().add(new ToolCall(serverName, tool.getName(), startTime, duration));
+                events.finished(duration, null);
+
+                // Reduce large results to the tool's budget, the LLM pays for every byte
+                String responseStr = resultReducer.reduce(serverName, tool.getName(), result);
 
                 // Anonymize the response before returning to LLM
                 // This ensures sensitive data in tool responses is also protected
-                String responseStr = result.toString();
                 if (anonymization != null && anonymization.hasAnonymizedEntities()) {
                     responseStr = anonymization.anonymizeWithExistingMappings(responseStr);
                     log.debug("Anonymized MCP tool response for {}", tool.getName());
@@ -160,55 +236,26 @@ public class McpToolCallbackProvider {
 
                 return responseStr;
 
+            } catch (McpServerUnavailableException e) {
+                // Rejected without reaching the server, tell the LLM right away
+                log.warn("MCP tool {} unavailable: {}", tool.getName(), e.getMessage());
+                long duration = System.currentTimeMillis() - startTime;
+                toolCallsTracker.get().add(new ToolCall(serverName, tool.getName(), startTime, duration, e.getMessage()));
+                events.finished(duration, e.getMessage());
+                return "Tool unavailable: " + e.getMessage();
             } catch (Exception e) {
                 log.error("Error calling MCP tool {}: {}", tool.getName(), e.getMessage());
                 long duration = System.currentTimeMillis() - startTime;
-                toolCallsTracker.get().add(new ToolCall(serverName, tool.getName(), duration, e.getMessage()));
+                toolCallsTracker.get().add(new ToolCall(serverName, tool.getName(), startTime, duration, e.getMessage()));
+                events.finished(duration, e.getMessage());
                 return "Error calling tool: " + e.getMessage();
             }
         };
 
-        // Create a custom ToolCallback that uses the MCP tool's actual inputSchema
-        String inputSchemaStr = tool.getInputSchema() != null
-                ? tool.getInputSchema().toString()
-                : "{\"type\":\"object\",\"properties\":{}}";
-
-        return new McpToolCallback(tool.getName(), tool.getDescription(), inputSchemaStr, toolFunction);
-    }
-
-    /**
-     * Deanonymize all string values in a parameter map.
-     * Recursively handles nested maps and lists.
-     */
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> deanonymizeParams(Map<String, Object> params, AnonymizationResult anonymization) {
-        Map<String, Object> result = new HashMap<>();
-        for (Map.Entry<String, Object> entry : params.entrySet()) {
-            Object value = entry.getValue();
-            if (value instanceof String strValue) {
-                // Deanonymize string values
-                result.put(entry.getKey(), anonymization.deanonymize(strValue));
-            } else if (value instanceof Map) {
-                // Recursively handle nested maps
-                result.put(entry.getKey(), deanonymizeParams((Map<String, Object>) value, anonymization));
-            } else if (value instanceof List<?> list) {
-                // Handle lists
-                List<Object> newList = new ArrayList<>();
-                for (Object item : list) {
-                    if (item instanceof String strItem) {
-                        newList.add(anonymization.deanonymize(strItem));
-                    } else if (item instanceof Map) {
-                        newList.add(deanonymizeParams((Map<String, Object>) item, anonymization));
-                    } else {
-                        newList.add(item);
-                    }
-                }
-                result.put(entry.getKey(), newList);
-            } else {
-                result.put(entry.getKey(), value);
-            }
-        }
-        return result;
+        // The definition carries the MCP tool's actual inputSchema, precomputed by the registry.
+        // Arguments are checked against the original schema, that is the one the server validates with.
+        return new McpToolCallback(registeredTool.toolDefinition(), serverName, tool.getName(),
+                ToolArgumentValidator.compile(tool.getInputSchema()), toolFunction);
     }
 
     /**
@@ -217,47 +264,121 @@ public class McpToolCallbackProvider {
     public static class ToolCall {
         private final String serverName;
         private final String toolName;
+        private final long startedAtMs;
         private final long durationMs;
         private final String error;
 
-        public ToolCall(String serverName, String toolName, long durationMs) {
-            this(serverName, toolName, durationMs, null);
+        public ToolCall(String serverName, String toolName, long startedAtMs, long durationMs) {
+            this(serverName, toolName, startedAtMs, durationMs, null);
         }
 
-        public ToolCall(String serverName, String toolName, long durationMs, String error) {
+        public ToolCall(String serverName, String toolName, long startedAtMs, long durationMs, String error) {
             this.serverName = serverName;
             this.toolName = toolName;
+            this.startedAtMs = startedAtMs;
             this.durationMs = durationMs;
             this.error = error;
         }
 
         public String getServerName() { return serverName; }
         public String getToolName() { return toolName; }
+        public long getStartedAtMs() { return startedAtMs; }
         public long getDurationMs() { return durationMs; }
         public String getError() { return error; }
         public boolean isSuccess() { return error == null; }
     }
 
+    /**
+     * Activity of a tool call, streamed to the client while the LLM waits for the result.
+     * Events of one call share its id; progress, total and message are only set on progress
+     * events, durationMs only on finished ones, error only if the call failed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ToolEvent(Type type, long id, String server, String tool, Double progress, Double total,
+                            String message, Long durationMs, String error) {
+
+        public enum Type {
+            STARTED,
+            PROGRESS,
+            FINISHED
+        }
+    }
+
+    /**
+     * Emits the events of one tool call, if the request listens for them.
+     */
+    private record ToolEvents(Consumer<ToolEvent> listener, long id, String server, String tool) {
+
+        void started() {
+            emit(new ToolEvent(ToolEvent.Type.STARTED, id, server, tool, null, null, null, null, null));
+        }
+
+        void progress(double progress, Double total, String message) {
+            emit(new ToolEvent(ToolEvent.Type.PROGRESS, id, server, tool, progress, total, message, null, null));
+        }
+
+        void finished(long durationMs, String error) {
+            emit(new ToolEvent(ToolEvent.Type.FINISHED, id, server, tool, null, null, null, durationMs, error));
+        }
+
+        private void emit(ToolEvent event) {
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                // The stream may already be gone, the call itself goes on
+                log.debug("Tool event listener failed for {}: {}", tool, e.getMessage());
+            }
+        }
+    }
+
+    private record CallbackSnapshot(long version, Map<McpToolRegistry.RegisteredTool, ToolCallback> byTool,
+                                    List<ToolCallback> callbacks) {
+
+        static final CallbackSnapshot EMPTY = new CallbackSnapshot(-1, Map.of(), List.of());
+    }
+
+    /**
+     * Request-scoped state captured from the request thread.
+     */
+    public record RequestContext(List<ToolCall> toolCalls, AnonymizationResult anonymization,
+                                 Consumer<ToolEvent> toolEvents) {
+
+        // Key of the context in the tool context of a prompt, for tool calls that run on other threads
+        public static final String TOOL_CONTEXT_KEY = "mcp.requestContext";
+    }
+
     /**
      * Custom ToolCallback implementation that uses the MCP tool's actual inputSchema.
      */
     private class McpToolCallback implements ToolCallback {
-        private final String name;
-        private final String description;
-        private final String inputSchema;
-        private final Function<McpToolRequest, String> toolFunction;
         private final ToolDefinition toolDefinition;
-
-        McpToolCallback(String name, String description, String inputSchema, Function<McpToolRequest, String> toolFunction) {
-            this.name = name;
-            this.description = description;
-            this.inputSchema = inputSchema;
+        private final String serverName;
+        private final String toolName;
+        private final ToolArgumentValidator argumentValidator;
+        private final Function<JsonNode, String> toolFunction;
+        private final Timer validationTimer;
+        private final Counter rejectedCounter;
+
+        McpToolCallback(ToolDefinition toolDefinition, String serverName, String toolName,
+                        ToolArgumentValidator argumentValidator, Function<JsonNode, String> toolFunction) {
+            this.toolDefinition = toolDefinition;
+            this.serverName = serverName;
+            this.toolName = toolName;
+            this.argumentValidator = argumentValidator;
             this.toolFunction = toolFunction;
-            this.toolDefinition = ToolDefinition.builder()
-                    .name(name)
-                    .description(description != null ? description : "")
-                    .inputSchema(inputSchema)
-                    .build();
+            this.validationTimer = Timer.builder("mcp.tool.arguments.validation")
+                    .description("Time to check tool arguments against the tool's input schema")
+                    .tag("server", serverName)
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
+            this.rejectedCounter = Counter.builder("mcp.tool.arguments.rejected")
+                    .description("Tool calls answered locally because their arguments did not match the input schema")
+                    .tag("server", serverName)
+                    .tag("tool", toolName)
+                    .register(meterRegistry);
         }
 
         @Override
@@ -268,51 +389,44 @@ public class McpToolCallbackProvider {
         @Override
         public String call(String toolInput) {
             try {
-                // Parse the JSON input into McpToolRequest
-                McpToolRequest request = objectMapper.readValue(toolInput, McpToolRequest.class);
-                return toolFunction.apply(request);
+                // Placeholders like "[ROOM_1]" are restored to "Wohnzimmer" while parsing,
+                // the arguments then go to the MCP server as they are
+                AnonymizationResult anonymization = anonymizationContext.get();
+                JsonNode arguments = anonymization != null && anonymization.hasAnonymizedEntities()
+                        ? ToolArguments.parse(objectMapper, toolInput, anonymization::deanonymize)
+                        : ToolArguments.parse(objectMapper, toolInput, UnaryOperator.identity());
+
+                // The server would reject the call anyway, tell the model what to fix without the round trip
+                long validationStart = System.nanoTime();
+                List<String> violations = argumentValidator.validate(arguments);
+                validationTimer.record(System.nanoTime() - validationStart, TimeUnit.NANOSECONDS);
+                if (!violations.isEmpty()) {
+                    rejectedCounter.increment();
+                    log.info("Rejected call of MCP tool {} on {} with invalid arguments: {}",
+                            toolName, serverName, violations);
+                    toolCallsTracker.get().add(new ToolCall(serverName, toolName, System.currentTimeMillis(), 0,
+                            "Invalid arguments"));
+                    return "Invalid arguments for tool " + toolDefinition.name() + ", the tool was not called:\n- "
+                            + String.join("\n- ", violations);
+                }
+
+                return toolFunction.apply(arguments);
             } catch (Exception e) {
-                log.error("Error parsing tool input for {}: {}", name, e.getMessage());
+                log.error("Error parsing tool input for {}: {}", toolDefinition.name(), e.getMessage());
                 return "Error parsing tool input: " + e.getMessage();
             }
         }
-    }
-
-    /**
-     * Dynamic request class for MCP tool parameters.
-     * Uses Jackson annotations to capture ANY parameter the LLM sends.
-     * This allows us to support any MCP tool without hardcoding parameter names.
-     */
-    public static class McpToolRequest {
-        private final Map<String, Object> dynamicProperties = new HashMap<>();
-
-        /**
-         * Captures any JSON property that doesn't match a specific field.
-         * This is the key to supporting arbitrary tool parameters.
-         */
-        @com.fasterxml.jackson.annotation.JsonAnySetter
-        public void setDynamicProperty(String name, Object value) {
-            dynamicProperties.put(name, value);
-        }
 
         /**
-         * Returns all dynamic properties for serialization.
+         * Called by Spring AI's own tool calling, with the request context of a streaming request.
          */
-        @com.fasterxml.jackson.annotation.JsonAnyGetter
-        public Map<String, Object> getDynamicProperties() {
-            return dynamicProperties;
-        }
-
-        /**
-         * Convert all captured parameters to a map for the MCP call.
-         */
-        public Map<String, Object> toMap() {
-            return new HashMap<>(dynamicProperties);
-        }
-
         @Override
-        public String toString() {
-            return "McpToolRequest" + dynamicProperties;
+        public String call(String toolInput, ToolContext toolContext) {
+            if (toolContext != null
+                    && toolContext.getContext().get(RequestContext.TOOL_CONTEXT_KEY) instanceof RequestContext context) {
+                return callWithContext(context, () -> call(toolInput));
+            }
+            return call(toolInput);
         }
     }
-}
\ No newline at end of file
+}
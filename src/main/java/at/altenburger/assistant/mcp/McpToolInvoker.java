@@ -0,0 +1,161 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes MCP tool calls on behalf of the tool callbacks.
+ * Results of tools classified as cacheable are served from the mcp-tool-results cache,
+ * keyed by server, tool and canonical arguments. Concurrent identical calls to read-only
+ * tools are coalesced into a single request to the server. State-read tools are answered
+ * by the {@link McpStateMirror} while its copy is fresh. Calls that run in a {@link McpCallBatch}
+ * reach the server through the batch.
+ */
+@Slf4j
+@Component
+public class McpToolInvoker {
+
+    private static final String CACHE_NAME = "mcp-tool-results";
+
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final McpStateMirror stateMirror;
+    private final MeterRegistry meterRegistry;
+    private final Cache resultCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<McpToolKey, CompletableFuture<JsonNode>> inFlightCalls = new ConcurrentHashMap<>();
+
+    public McpToolInvoker(McpDiscoveryService mcpDiscoveryService, McpStateMirror stateMirror, CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.stateMirror = stateMirror;
+        this.meterRegistry = meterRegistry;
+        this.resultCache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * Call a tool on the given server.
+     */
+    public JsonNode callTool(String serverName, String toolName, Map<String, Object> params) throws Exception {
+        return callTool(serverName, toolName, (JsonNode) objectMapper.valueToTree(params));
+    }
+
+    /**
+     * Call a tool on the given server with JSON arguments, which are sent as they are.
+     */
+    public JsonNode callTool(String serverName, String toolName, JsonNode arguments) throws Exception {
+        McpClient client = mcpDiscoveryService.getClient(serverName);
+        if (client == null) {
+            throw new McpServerException("MCP server not available: " + serverName);
+        }
+
+        McpServerConfig.ToolPolicy policy = mcpDiscoveryService.getToolPolicy(serverName, toolName);
+        if (!policy.isReadOnly()) {
+            // State-changing tools always run, never cached or shared
+            try {
+                return McpCallBatch.callTool(client, serverName, toolName, arguments);
+            } finally {
+                stateMirror.invalidate(serverName);
+            }
+        }
+
+        McpToolKey key = McpToolKey.of(serverName, toolName, arguments);
+        if (stateMirror.isMirrored(serverName, toolName)) {
+            return stateMirror.read(key, arguments,
+                () -> callCoalesced(key, () -> McpCallBatch.callTool(client, serverName, toolName, arguments)));
+        }
+        boolean cacheable = policy.getCache() != McpServerConfig.CachePolicy.NEVER && resultCache != null;
+        if (cacheable) {
+            CachedToolResult cached = resultCache.get(key, CachedToolResult.class);
+            if (cached != null) {
+                cacheCounter(serverName, toolName, "hit").increment();
+                latencySavedTimer(serverName, toolName).record(cached.latencyNanos(), TimeUnit.NANOSECONDS);
+                log.debug("Serving MCP tool {} on {} from cache", toolName, serverName);
+                return cached.result();
+            }
+            cacheCounter(serverName, toolName, "miss").increment();
+        }
+
+        return callCoalesced(key, () -> {
+            long startTime = System.nanoTime();
+            JsonNode result = McpCallBatch.callTool(client, serverName, toolName, arguments);
+            long latencyNanos = System.nanoTime() - startTime;
+
+            // Errors are worth retrying, don't pin them
+            if (cacheable && !result.path("isError").asBoolean(false)) {
+                resultCache.put(key, new CachedToolResult(result,
+                    policy.getCache() == McpServerConfig.CachePolicy.TTL ? policy.getTtl() : null, latencyNanos));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Single-flight: concurrent calls with the same key share the call that is already in flight.
+     */
+    private JsonNode callCoalesced(McpToolKey key, Callable<JsonNode> call) throws Exception {
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        CompletableFuture<JsonNode> inFlight = inFlightCalls.putIfAbsent(key, future);
+        if (inFlight != null) {
+            coalescedCounter(key.serverName(), key.toolName()).increment();
+            log.debug("Joining in-flight MCP tool call {} on {}", key.toolName(), key.serverName());
+            // The call in flight may be waiting in a batch for this one
+            McpCallBatch.leave();
+            try {
+                return inFlight.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            JsonNode result = call.call();
+            future.complete(result);
+            return result;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, future);
+        }
+    }
+
+    private Counter cacheCounter(String serverName, String toolName, String result) {
+        return Counter.builder("mcp.tool.cache.requests")
+            .description("MCP tool result cache lookups")
+            .tag("server", serverName)
+            .tag("tool", toolName)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private Counter coalescedCounter(String serverName, String toolName) {
+        return Counter.builder("mcp.tool.coalesced")
+            .description("MCP tool calls that joined an identical call already in flight")
+            .tag("server", serverName)
+            .tag("tool", toolName)
+            .register(meterRegistry);
+    }
+
+    private Timer latencySavedTimer(String serverName, String toolName) {
+        return Timer.builder("mcp.tool.cache.latency.saved")
+            .description("Tool call latency avoided by cache hits")
+            .tag("server", serverName)
+            .tag("tool", toolName)
+            .register(meterRegistry);
+    }
+}
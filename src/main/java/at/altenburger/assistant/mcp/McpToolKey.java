@@ -0,0 +1,56 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Identifies a tool call by server, tool and canonical arguments.
+ * Arguments are rendered with sorted object keys and normalized numbers,
+ * so {"b":1,"a":2.0} and {"a":2,"b":1} produce the same key.
+ */
+public record McpToolKey(String serverName, String toolName, String arguments) {
+
+    public static McpToolKey of(String serverName, String toolName, JsonNode arguments) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(arguments, canonical);
+        return new McpToolKey(serverName, toolName, canonical.toString());
+    }
+
+    private static void appendCanonical(JsonNode node, StringBuilder out) {
+        if (node == null || node.isMissingNode() || node.isNull()) {
+            out.append("null");
+        } else if (node.isObject()) {
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            out.append('{');
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(TextNode.valueOf(names.get(i))).append(':');
+                appendCanonical(node.get(names.get(i)), out);
+            }
+            out.append('}');
+        } else if (node.isArray()) {
+            out.append('[');
+            Iterator<JsonNode> elements = node.elements();
+            while (elements.hasNext()) {
+                appendCanonical(elements.next(), out);
+                if (elements.hasNext()) {
+                    out.append(',');
+                }
+            }
+            out.append(']');
+        } else if (node.isNumber()) {
+            out.append(node.decimalValue().stripTrailingZeros().toPlainString());
+        } else {
+            out.append(node);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package at.altenburger.assistant.mcp;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exposes a method of a {@link McpToolBean} as an MCP tool.
+ * Parameters are bound by name from the tool arguments, the return value
+ * becomes the text content of the tool result.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface McpToolMethod {
+
+    /**
+     * Tool name, defaults to the method name.
+     */
+    String name() default "";
+
+    String description();
+}
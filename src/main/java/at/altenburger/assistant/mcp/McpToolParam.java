@@ -0,0 +1,25 @@
+package at.altenburger.assistant.mcp;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes a parameter of a {@link McpToolMethod} in the generated input schema.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface McpToolParam {
+
+    /**
+     * Argument name, defaults to the Java parameter name.
+     */
+    String name() default "";
+
+    String description() default "";
+
+    boolean required() default true;
+}
@@ -0,0 +1,214 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Index of the tools of all started MCP servers, keyed by the name exposed to the LLM.
+ * Reads go to an immutable snapshot without locking; every change of a server's tool list
+ * builds a new snapshot and publishes it at once. Tool definitions are compacted
+ * ({@link ToolSchemaCompactor}) and serialized when a tool is registered.
+ * <p>
+ * Tools are ordered by server in configuration order and by name within a server, not in the
+ * order a server happens to list them. The tool array then stays byte-identical across requests,
+ * so the provider's prompt cache can reuse the prefix of system prompt and tools.
+ * <p>
+ * Tool names are not unique across servers. By default the first server in configuration
+ * order keeps the plain name and the others are shadowed. With namespace-colliding-tools
+ * enabled, every colliding tool is exposed as {@code <server>__<tool>} instead.
+ */
+@Slf4j
+@Component
+public class McpToolRegistry {
+
+    static final String NAMESPACE_SEPARATOR = "__";
+
+    private static final String EMPTY_SCHEMA = "{\"type\":\"object\",\"properties\":{}}";
+
+    private final McpServerConfig mcpServerConfig;
+    private final ToolSchemaCompactor schemaCompactor;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public McpToolRegistry(McpServerConfig mcpServerConfig) {
+        this.mcpServerConfig = mcpServerConfig;
+        this.schemaCompactor = new ToolSchemaCompactor(mcpServerConfig.getSchemaCompaction());
+    }
+
+    /**
+     * Replace the tools of a server.
+     */
+    public synchronized void update(String serverName, List<McpClient.McpTool> tools) {
+        Map<String, List<McpClient.McpTool>> serverTools = new HashMap<>(snapshot.serverTools());
+        serverTools.put(serverName, List.copyOf(tools));
+        publish(serverTools);
+    }
+
+    /**
+     * Remove all tools of a server.
+     */
+    public synchronized void remove(String serverName) {
+        if (!snapshot.serverTools().containsKey(serverName)) {
+            return;
+        }
+        Map<String, List<McpClient.McpTool>> serverTools = new HashMap<>(snapshot.serverTools());
+        serverTools.remove(serverName);
+        publish(serverTools);
+    }
+
+    public synchronized void clear() {
+        publish(Map.of());
+    }
+
+    /**
+     * Find a tool by the name exposed to the LLM. Returns null if no server provides it.
+     */
+    public RegisteredTool find(String exposedName) {
+        return snapshot.tools().get(exposedName);
+    }
+
+    /**
+     * All registered tools, in configuration order of their servers.
+     */
+    public Collection<RegisteredTool> getTools() {
+        return snapshot.tools().values();
+    }
+
+    /**
+     * The tool lists per server, in configuration order.
+     */
+    public Map<String, List<McpClient.McpTool>> getToolsByServer() {
+        return snapshot.serverTools();
+    }
+
+    /**
+     * Incremented with every change, so callers can cache what they derive from the registry.
+     */
+    public long getVersion() {
+        return snapshot.version();
+    }
+
+    private void publish(Map<String, List<McpClient.McpTool>> serverTools) {
+        Map<String, List<McpClient.McpTool>> ordered = orderByConfiguration(serverTools);
+        Set<String> collisions = findCollisions(ordered);
+
+        Map<String, RegisteredTool> tools = new LinkedHashMap<>();
+        for (Map.Entry<String, List<McpClient.McpTool>> entry : ordered.entrySet()) {
+            String serverName = entry.getKey();
+            Map<String, McpClient.McpTool> byExposedName = new TreeMap<>();
+            for (McpClient.McpTool tool : entry.getValue()) {
+                String exposedName = mcpServerConfig.isNamespaceCollidingTools() && collisions.contains(tool.getName())
+                    ? serverName + NAMESPACE_SEPARATOR + tool.getName()
+                    : tool.getName();
+                byExposedName.putIfAbsent(exposedName, tool);
+            }
+
+            for (Map.Entry<String, McpClient.McpTool> named : byExposedName.entrySet()) {
+                String exposedName = named.getKey();
+                McpClient.McpTool tool = named.getValue();
+                RegisteredTool existing = tools.get(exposedName);
+                if (existing != null) {
+                    log.warn("MCP tool {} of {} is shadowed by the one of {}",
+                        tool.getName(), serverName, existing.serverName());
+                    continue;
+                }
+                tools.put(exposedName, register(exposedName, serverName, tool));
+            }
+        }
+
+        snapshot = new Snapshot(snapshot.version() + 1,
+            Collections.unmodifiableMap(ordered), Collections.unmodifiableMap(tools));
+        log.debug("Tool registry version {}: {} tools from {} servers", snapshot.version(), tools.size(), ordered.size());
+    }
+
+    /**
+     * Configured servers first, in configuration order, so shadowing is deterministic.
+     */
+    private Map<String, List<McpClient.McpTool>> orderByConfiguration(Map<String, List<McpClient.McpTool>> serverTools) {
+        Map<String, List<McpClient.McpTool>> ordered = new LinkedHashMap<>();
+        if (mcpServerConfig.getServers() != null) {
+            for (McpServerConfig.McpServer server : mcpServerConfig.getServers()) {
+                List<McpClient.McpTool> tools = serverTools.get(server.getName());
+                if (tools != null) {
+                    ordered.put(server.getName(), tools);
+                }
+            }
+        }
+        serverTools.keySet().stream()
+            .filter(serverName -> !ordered.containsKey(serverName))
+            .sorted()
+            .forEach(serverName -> ordered.put(serverName, serverTools.get(serverName)));
+        return ordered;
+    }
+
+    private Set<String> findCollisions(Map<String, List<McpClient.McpTool>> serverTools) {
+        Set<String> seen = new HashSet<>();
+        Set<String> collisions = new HashSet<>();
+        for (List<McpClient.McpTool> tools : serverTools.values()) {
+            for (McpClient.McpTool tool : tools) {
+                if (!seen.add(tool.getName())) {
+                    collisions.add(tool.getName());
+                }
+            }
+        }
+        return collisions;
+    }
+
+    /**
+     * Build the definition sent to the LLM. Unchanged tools keep the definition of the previous
+     * snapshot, so compaction and serialization run once per tool, not once per version.
+     */
+    private RegisteredTool register(String exposedName, String serverName, McpClient.McpTool tool) {
+        RegisteredTool previous = snapshot.tools().get(exposedName);
+        if (previous != null && previous.serverName().equals(serverName) && previous.tool().equals(tool)) {
+            return previous;
+        }
+
+        String originalSchema = tool.getInputSchema() != null ? tool.getInputSchema().toString() : EMPTY_SCHEMA;
+        String description = schemaCompactor.compactDescription(tool.getDescription());
+        JsonNode compactedSchema = schemaCompactor.compactSchema(tool.getInputSchema());
+
+        ToolDefinition toolDefinition = ToolDefinition.builder()
+            .name(exposedName)
+            .description(description != null ? description : "")
+            .inputSchema(compactedSchema != null ? compactedSchema.toString() : EMPTY_SCHEMA)
+            .build();
+        int originalTokens = ToolSchemaCompactor.estimateTokens(exposedName, tool.getDescription(), originalSchema);
+        return new RegisteredTool(exposedName, serverName, tool, toolDefinition, originalTokens);
+    }
+
+    /**
+     * A tool as exposed to the LLM: the exposed name differs from the tool name when namespaced.
+     *
+     * @param originalTokens estimated tokens of the definition before compaction
+     */
+    public record RegisteredTool(String exposedName, String serverName, McpClient.McpTool tool,
+                                 ToolDefinition toolDefinition, int originalTokens) {
+
+        /**
+         * Estimated tokens of the definition as sent to the LLM.
+         */
+        public int tokens() {
+            return ToolSchemaCompactor.estimateTokens(
+                toolDefinition.name(), toolDefinition.description(), toolDefinition.inputSchema());
+        }
+    }
+
+    private record Snapshot(long version, Map<String, List<McpClient.McpTool>> serverTools,
+                            Map<String, RegisteredTool> tools) {
+
+        static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of());
+    }
+}
@@ -0,0 +1,130 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.ToolSelectionConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the tools attached to a query, so the prompt does not carry every tool definition.
+ * Tools are ranked against the (anonymized) query; the top K and the pinned tools are attached.
+ * The top K is always filled, also with tools that share no term with the query: many questions
+ * ("is it warm in the living room?") have nothing in common with the tool that answers them. Tools
+ * that read state or context answer such questions, they belong among the pinned tools.
+ * When no tool matches at all, every tool is attached - a query in another language than the
+ * tool descriptions must not lose its tools.
+ * <p>
+ * The model only sees the attached tools, so it never asks for one that was left out; recall cannot
+ * be observed at runtime. McpToolSelectorTest measures it offline on a set of labelled queries.
+ */
+@Slf4j
+@Component
+public class McpToolSelector {
+
+    private final ToolSelectionConfig config;
+    private final ToolScorer scorer;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary tokensSaved;
+
+    // Index of the callback list it was built for, rebuilt when the provider publishes a new list
+    private volatile IndexedTools indexedTools;
+
+    public McpToolSelector(ToolSelectionConfig config, ObjectProvider<ToolScorer> scorerProvider,
+                           MeterRegistry meterRegistry) {
+        this.config = config;
+        this.scorer = scorerProvider.getIfAvailable(Bm25ToolScorer::new);
+        this.meterRegistry = meterRegistry;
+        this.tokensSaved = DistributionSummary.builder("mcp.tool.selection.tokens.saved")
+            .description("Estimated prompt tokens saved per query by not attaching tool definitions")
+            .baseUnit("tokens")
+            .register(meterRegistry);
+        if (config.isEnabled()) {
+            log.info("Tool selection enabled: the tools attached to a request change with its query, "
+                + "so the prompt cache only covers the system prompt");
+        }
+    }
+
+    /**
+     * Select the tools for a query. Keeps the order of the given callbacks.
+     */
+    public List<ToolCallback> select(String query, List<ToolCallback> callbacks) {
+        if (!config.isEnabled() || callbacks.size() <= config.getTopK()) {
+            return callbacks;
+        }
+
+        IndexedTools indexed = index(callbacks);
+        double[] scores = indexed.index().score(query);
+
+        if (Arrays.stream(scores).noneMatch(score -> score > 0)) {
+            selectionCounter("no-match").increment();
+            log.debug("No tool matches the query, attaching all {} tools", callbacks.size());
+            return callbacks;
+        }
+
+        // Ties keep the registry order
+        Set<Integer> selected = new HashSet<>();
+        IntStream.range(0, scores.length)
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+            .limit(config.getTopK())
+            .forEach(selected::add);
+
+        List<String> pinned = config.getPinnedTools();
+        List<ToolCallback> result = new ArrayList<>();
+        long droppedTokens = 0;
+        for (int i = 0; i < callbacks.size(); i++) {
+            ToolCallback callback = callbacks.get(i);
+            if (selected.contains(i) || pinned.contains(callback.getToolDefinition().name())) {
+                result.add(callback);
+            } else {
+                droppedTokens += indexed.tokenEstimates()[i];
+            }
+        }
+
+        selectionCounter("selected").increment();
+        tokensSaved.record(droppedTokens);
+        log.debug("Selected {} of {} tools (~{} prompt tokens saved)", result.size(), callbacks.size(), droppedTokens);
+        return result;
+    }
+
+    private IndexedTools index(List<ToolCallback> callbacks) {
+        IndexedTools indexed = indexedTools;
+        if (indexed != null && indexed.callbacks() == callbacks) {
+            return indexed;
+        }
+
+        List<ToolDefinition> definitions = callbacks.stream().map(ToolCallback::getToolDefinition).toList();
+        int[] tokenEstimates = definitions.stream()
+            .mapToInt(definition -> ToolSchemaCompactor.estimateTokens(
+                definition.name(), definition.description(), definition.inputSchema()))
+            .toArray();
+
+        indexed = new IndexedTools(callbacks, scorer.index(definitions), tokenEstimates);
+        indexedTools = indexed;
+        log.debug("Indexed {} tools for tool selection", callbacks.size());
+        return indexed;
+    }
+
+    private Counter selectionCounter(String outcome) {
+        return Counter.builder("mcp.tool.selection.requests")
+            .description("Queries that went through tool selection")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private record IndexedTools(List<ToolCallback> callbacks, ToolScorer.ToolIndex index, int[] tokenEstimates) {
+    }
+}
@@ -0,0 +1,55 @@
+package at.altenburger.assistant.mcp;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint (/actuator/mcptools) reporting the size of the tool definitions
+ * sent to the LLM per server, before and after schema compaction.
+ */
+@Component
+@Endpoint(id = "mcptools")
+@RequiredArgsConstructor
+public class McpToolsEndpoint {
+
+    private final McpToolRegistry toolRegistry;
+
+    @ReadOperation
+    public ToolsReport tools() {
+        Map<String, ServerReport> servers = new LinkedHashMap<>();
+        int originalTokens = 0;
+        int compactedTokens = 0;
+
+        for (McpToolRegistry.RegisteredTool tool : toolRegistry.getTools()) {
+            servers.merge(tool.serverName(), new ServerReport(1, tool.originalTokens(), tool.tokens()), ServerReport::plus);
+            originalTokens += tool.originalTokens();
+            compactedTokens += tool.tokens();
+        }
+
+        return new ToolsReport(toolRegistry.getVersion(), new ServerReport(toolRegistry.getTools().size(),
+            originalTokens, compactedTokens), servers);
+    }
+
+    public record ToolsReport(long registryVersion, ServerReport total, Map<String, ServerReport> servers) {
+    }
+
+    /**
+     * Estimated prompt tokens of the tool definitions of one server.
+     */
+    public record ServerReport(int tools, int originalTokens, int compactedTokens) {
+
+        public int getReductionPercent() {
+            return originalTokens > 0 ? 100 - compactedTokens * 100 / originalTokens : 0;
+        }
+
+        ServerReport plus(ServerReport other) {
+            return new ServerReport(tools + other.tools, originalTokens + other.originalTokens,
+                compactedTokens + other.compactedTokens);
+        }
+    }
+}
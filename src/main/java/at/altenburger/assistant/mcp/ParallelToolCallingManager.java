@@ -0,0 +1,204 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.DefaultToolCallingManager;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the tool calls of one assistant message concurrently instead of one after another.
+ * Replaces Spring AI's default manager, which runs them sequentially.
+ * At most max-concurrency calls of a turn run at the same time; responses are
+ * reassembled in the order the model requested them. Calls of a turn to the same stdio server
+ * with batch-requests enabled reach it as one JSON-RPC batch; being a single request, a batch
+ * is not held back by max-concurrency.
+ */
+@Slf4j
+@Component
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private final ToolCallingManager delegate = DefaultToolCallingManager.builder().build();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final McpToolCallbackProvider toolCallbackProvider;
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final Tracer tracer;
+    private final int maxConcurrency;
+
+    public ParallelToolCallingManager(McpToolCallbackProvider toolCallbackProvider, McpDiscoveryService mcpDiscoveryService,
+                                      Tracer tracer,
+                                      @Value("${assistant.mcp.tool-execution.max-concurrency:4}") int maxConcurrency) {
+        this.toolCallbackProvider = toolCallbackProvider;
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.tracer = tracer;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+            .map(Generation::getOutput)
+            .filter(AssistantMessage::hasToolCalls)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+        Map<String, ToolCallback> callbacks = callbacksByName(prompt);
+        if (!toolCalls.stream().allMatch(call -> callbacks.containsKey(call.name()))) {
+            // Tools resolved by name only - let Spring AI resolve and run them
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+
+        // Tool callbacks rely on request-scoped thread locals
+        McpToolCallbackProvider.RequestContext context = requestContext(prompt);
+        List<String> results = toolCalls.size() == 1
+            ? List.of(toolCallbackProvider.callWithContext(context,
+                () -> execute(callbacks.get(toolCalls.get(0).name()), toolCalls.get(0))))
+            : executeConcurrently(toolCalls, callbacks, context);
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>();
+        boolean returnDirect = true;
+        for (int i = 0; i < toolCalls.size(); i++) {
+            AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+            responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(), results.get(i)));
+            returnDirect &= callbacks.get(toolCall.name()).getToolMetadata().returnDirect();
+        }
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(ToolResponseMessage.builder().responses(responses).build());
+
+        return ToolExecutionResult.builder()
+            .conversationHistory(conversationHistory)
+            .returnDirect(returnDirect)
+            .build();
+    }
+
+    private List<String> executeConcurrently(List<AssistantMessage.ToolCall> toolCalls, Map<String, ToolCallback> callbacks,
+                                             McpToolCallbackProvider.RequestContext context) {
+        log.debug("Executing {} tool calls concurrently (max {})", toolCalls.size(), maxConcurrency);
+
+        // The calls run on other threads, with the request context and the current span
+        Span parentSpan = tracer.currentSpan();
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Map<String, McpCallBatch> batches = batches(toolCalls);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ToolCallback callback = callbacks.get(toolCall.name());
+            McpCallBatch batch = batches.get(mcpDiscoveryService.findServerForTool(toolCall.name()));
+            if (batch != null) {
+                // Members wait for each other, so they must not wait for permits held by one another
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try (Tracer.SpanInScope ws = parentSpan != null ? tracer.withSpan(parentSpan) : null) {
+                        return batch.run(() -> toolCallbackProvider.callWithContext(context, () -> execute(callback, toolCall)));
+                    }
+                }, executor));
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return "Error calling tool: interrupted";
+                }
+                try (Tracer.SpanInScope ws = parentSpan != null ? tracer.withSpan(parentSpan) : null) {
+                    return toolCallbackProvider.callWithContext(context, () -> execute(callback, toolCall));
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * A batch for each stdio server with batch-requests enabled that gets more than one call of the turn.
+     */
+    private Map<String, McpCallBatch> batches(List<AssistantMessage.ToolCall> toolCalls) {
+        Map<String, Integer> callsByServer = new HashMap<>();
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            String serverName = mcpDiscoveryService.findServerForTool(toolCall.name());
+            McpServerConfig.McpServer server = serverName != null ? mcpDiscoveryService.getServerConfigs().get(serverName) : null;
+            if (server != null && server.isBatchRequests() && "stdio".equals(server.getType())) {
+                callsByServer.merge(serverName, 1, Integer::sum);
+            }
+        }
+
+        Map<String, McpCallBatch> batches = new HashMap<>();
+        callsByServer.forEach((serverName, calls) -> {
+            if (calls > 1) {
+                batches.put(serverName, new McpCallBatch(serverName, calls));
+                log.debug("Sending {} tool calls to {} as one batch", calls, serverName);
+            }
+        });
+        return batches;
+    }
+
+    private String execute(ToolCallback callback, AssistantMessage.ToolCall toolCall) {
+        try {
+            return callback.call(toolCall.arguments());
+        } catch (Exception e) {
+            log.error("Error executing tool {}: {}", toolCall.name(), e.getMessage());
+            return "Error calling tool: " + e.getMessage();
+        }
+    }
+
+    /**
+     * A streaming request runs its tool calls on a Reactor thread, its context comes with the prompt.
+     * Otherwise the tool calls run on the request thread, which holds the context.
+     */
+    private McpToolCallbackProvider.RequestContext requestContext(Prompt prompt) {
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options && options.getToolContext() != null
+                && options.getToolContext().get(McpToolCallbackProvider.RequestContext.TOOL_CONTEXT_KEY)
+                    instanceof McpToolCallbackProvider.RequestContext context) {
+            return context;
+        }
+        return toolCallbackProvider.captureContext();
+    }
+
+    private Map<String, ToolCallback> callbacksByName(Prompt prompt) {
+        Map<String, ToolCallback> callbacks = new HashMap<>();
+        if (prompt.getOptions() instanceof ToolCallingChatOptions options) {
+            for (ToolCallback callback : options.getToolCallbacks()) {
+                callbacks.put(callback.getToolDefinition().name(), callback);
+            }
+        }
+        return callbacks;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
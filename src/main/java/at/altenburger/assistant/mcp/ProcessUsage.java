@@ -0,0 +1,49 @@
+package at.altenburger.assistant.mcp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * CPU time and resident memory of a server process together with its descendants - npx runs the
+ * actual Node server as a child, and that child is the one that grows. CPU time comes from
+ * {@link ProcessHandle}, RSS from /proc and is 0 where there is no /proc.
+ */
+record ProcessUsage(Duration cpuTime, long rssBytes, int processes) {
+
+    private static final Path PROC = Path.of("/proc");
+
+    static ProcessUsage of(ProcessHandle root) {
+        List<ProcessHandle> tree;
+        try (Stream<ProcessHandle> descendants = root.descendants()) {
+            tree = Stream.concat(Stream.of(root), descendants).filter(ProcessHandle::isAlive).toList();
+        }
+        Duration cpuTime = Duration.ZERO;
+        long rssBytes = 0;
+        for (ProcessHandle process : tree) {
+            cpuTime = cpuTime.plus(process.info().totalCpuDuration().orElse(Duration.ZERO));
+            rssBytes += rssBytes(process.pid());
+        }
+        return new ProcessUsage(cpuTime, rssBytes, tree.size());
+    }
+
+    /**
+     * VmRSS of /proc/[pid]/status, in kB there.
+     */
+    static long rssBytes(long pid) {
+        Path status = PROC.resolve(Long.toString(pid)).resolve("status");
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmRSS:"))
+                .findFirst()
+                .map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024)
+                .orElse(0L);
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            // Not Linux, or the process just exited
+            return 0;
+        }
+    }
+}
@@ -1,21 +1,32 @@
 package at.altenburger.assistant.mcp;
 
+import at.altenburger.assistant.core.exception.McpServerException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.Tracer;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 @Slf4j
 public class StdioMcpClient implements McpClient {
+
+    private static final String PROTOCOL_VERSION = "2024-11-05";
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
     
     private final String serverName;
     private final String command;
@@ -23,22 +34,57 @@ public class StdioMcpClient implements McpClient {
     private final Map<String, String> env;
     private final ObjectMapper objectMapper;
     private final Tracer tracer;
+    private final McpClientMetrics metrics;
+    private final McpPayloadCapture payloadCapture;
+    
+    private final boolean batchRequests;
     
     private Process process;
     private BufferedWriter writer;
     private BufferedReader reader;
     private Thread readerThread;
+    private volatile Thread writerThread;
+    // Outgoing messages, drained by the writer loop which flushes once per drain
+    private final Queue<OutgoingMessage> outbox = new ConcurrentLinkedQueue<>();
     private final AtomicLong requestId = new AtomicLong(1);
     private final Map<Long, CompletableFuture<JsonNode>> pendingRequests = new ConcurrentHashMap<>();
+    private final List<McpNotificationListener> notificationListeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, McpProgress.Listener> progressListeners = new ConcurrentHashMap<>();
     private boolean connected = false;
+    private volatile long lastReceivedNanos = System.nanoTime();
+    private volatile long startedNanos;
+    private final AtomicLong toolCalls = new AtomicLong();
     
     public StdioMcpClient(String serverName, String command, List<String> args, Map<String, String> env, Tracer tracer) {
+        this(serverName, command, args, env, tracer, false);
+    }
+
+    /**
+     * @param batchRequests send {@link #callTools} as a single JSON-RPC batch array;
+     *                      only enable for servers that accept batches
+     */
+    public StdioMcpClient(String serverName, String command, List<String> args, Map<String, String> env,
+                          Tracer tracer, boolean batchRequests) {
+        this(serverName, command, args, env, tracer, batchRequests,
+            new McpClientMetrics(new SimpleMeterRegistry()), McpPayloadCapture.disabled());
+    }
+
+    /**
+     * @param metrics        records how long messages wait in the outbox before they are written to the pipe
+     * @param payloadCapture decides whether tool parameters and results go into spans and logs
+     */
+    public StdioMcpClient(String serverName, String command, List<String> args, Map<String, String> env,
+                          Tracer tracer, boolean batchRequests, McpClientMetrics metrics,
+                          McpPayloadCapture payloadCapture) {
         this.serverName = serverName;
         this.command = command;
         this.args = args != null ? args : List.of();
         this.env = env != null ? env : Map.of();
         this.objectMapper = new ObjectMapper();
         this.tracer = tracer;
+        this.batchRequests = batchRequests;
+        this.metrics = metrics;
+        this.payloadCapture = payloadCapture;
     }
     
     @Override
@@ -65,48 +111,30 @@ public class StdioMcpClient implements McpClient {
             }
             
             process = pb.start();
-            writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+            startedNanos = System.nanoTime();
+            writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()), WRITE_BUFFER_SIZE);
             reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
             
             // Start reader thread
             readerThread = new Thread(this::readLoop, "MCP-" + serverName + "-Reader");
             readerThread.setDaemon(true);
             readerThread.start();
+
+            // Start writer thread
+            Thread writerLoop = new Thread(this::writeLoop, "MCP-" + serverName + "-Writer");
+            writerLoop.setDaemon(true);
+            writerThread = writerLoop;
+            writerLoop.start();
             
             // Send initialize request
-            ObjectNode initRequest = objectMapper.createObjectNode();
-            initRequest.put("jsonrpc", "2.0");
-            initRequest.put("id", requestId.getAndIncrement());
-            initRequest.put("method", "initialize");
-
-            ObjectNode params = objectMapper.createObjectNode();
-            params.put("protocolVersion", "2024-11-05");
-
-            ObjectNode clientInfo = objectMapper.createObjectNode();
-            clientInfo.put("name", "local-ai-assistant");
-            clientInfo.put("version", "1.0.0");
-            params.set("clientInfo", clientInfo);
-
-            // MCP protocol requires capabilities object
-            ObjectNode capabilities = objectMapper.createObjectNode();
-            capabilities.set("roots", objectMapper.createObjectNode());
-            capabilities.set("sampling", objectMapper.createObjectNode());
-            params.set("capabilities", capabilities);
-
-            initRequest.set("params", params);
+            ObjectNode initRequest = McpProtocol.initializeRequest(
+                objectMapper, requestId.getAndIncrement(), PROTOCOL_VERSION);
             
             JsonNode response = sendRequest(initRequest);
 
             // Send initialized notification (required by MCP protocol)
-            ObjectNode initializedNotification = objectMapper.createObjectNode();
-            initializedNotification.put("jsonrpc", "2.0");
-            initializedNotification.put("method", "notifications/initialized");
-            String notificationJson = objectMapper.writeValueAsString(initializedNotification);
-            synchronized (writer) {
-                writer.write(notificationJson);
-                writer.newLine();
-                writer.flush();
-            }
+            ObjectNode initializedNotification = McpProtocol.notification(objectMapper, "notifications/initialized");
+            enqueue(objectMapper.writeValueAsString(initializedNotification));
 
             long duration = System.currentTimeMillis() - startTime;
             span.tag("mcp.init.duration_ms", String.valueOf(duration));
@@ -130,37 +158,13 @@ public class StdioMcpClient implements McpClient {
         try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
             long startTime = System.currentTimeMillis();
 
-            ObjectNode request = objectMapper.createObjectNode();
-            request.put("jsonrpc", "2.0");
-            request.put("id", requestId.getAndIncrement());
-            request.put("method", "tools/list");
+            ObjectNode request = McpProtocol.request(objectMapper, requestId.getAndIncrement(), "tools/list");
             // Don't include params - some servers don't want it
 
             JsonNode response = sendRequest(request);
             log.debug("tools/list response from {}: {}", serverName, response);
 
-            List<McpTool> result = new ArrayList<>();
-
-            // Handle response - check for result and tools
-            JsonNode resultNode = response.get("result");
-            if (resultNode == null) {
-                log.warn("No result in tools/list response from {}: {}", serverName, response);
-                return result;
-            }
-
-            JsonNode tools = resultNode.get("tools");
-            if (tools == null || !tools.isArray()) {
-                log.warn("No tools array in response from {}: {}", serverName, resultNode);
-                return result;
-            }
-
-            for (JsonNode tool : tools) {
-                McpTool mcpTool = new McpTool();
-                mcpTool.setName(tool.get("name").asText());
-                mcpTool.setDescription(tool.has("description") ? tool.get("description").asText() : "");
-                mcpTool.setInputSchema(tool.get("inputSchema"));
-                result.add(mcpTool);
-            }
+            List<McpTool> result = McpProtocol.parseTools(serverName, response);
 
             long duration = System.currentTimeMillis() - startTime;
             span.tag("mcp.tools.count", String.valueOf(result.size()));
@@ -179,36 +183,38 @@ public class StdioMcpClient implements McpClient {
     
     @Override
     public JsonNode callTool(String toolName, Map<String, Object> parameters) throws Exception {
+        return callTool(toolName, (JsonNode) objectMapper.valueToTree(parameters));
+    }
+
+    /**
+     * The arguments become the params of the request as they are, without a conversion.
+     */
+    @Override
+    public JsonNode callTool(String toolName, JsonNode arguments) throws Exception {
         Span span = tracer.nextSpan().name("mcp.call_tool").start();
         span.tag("mcp.server", serverName);
         span.tag("mcp.tool", toolName);
-        span.tag("mcp.params", objectMapper.writeValueAsString(parameters));
+        McpPayloadCapture.Call capture = payloadCapture.start();
+        capture.tag(span, "mcp.params", arguments);
         
         try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
             long startTime = System.currentTimeMillis();
             
-            log.info("Calling MCP tool: server={}, tool={}, params={}", serverName, toolName, parameters);
-            
-            ObjectNode request = objectMapper.createObjectNode();
-            request.put("jsonrpc", "2.0");
-            request.put("id", requestId.getAndIncrement());
-            request.put("method", "tools/call");
+            log.debug("Calling MCP tool: server={}, tool={}, params={}", serverName, toolName, capture.lazy(arguments));
             
-            ObjectNode params = objectMapper.createObjectNode();
-            params.put("name", toolName);
-            params.set("arguments", objectMapper.valueToTree(parameters));
+            ObjectNode request = McpProtocol.toolCallRequest(
+                objectMapper, requestId.getAndIncrement(), toolName, arguments);
+            toolCalls.incrementAndGet();
             
-            request.set("params", params);
-            
-            JsonNode response = sendRequest(request);
-            JsonNode result = response.get("result");
+            JsonNode response = McpProgress.sendWithProgress(request, progressListeners, () -> sendRequest(request));
+            JsonNode result = McpProtocol.toolResult(serverName, toolName, response);
             
             long duration = System.currentTimeMillis() - startTime;
             span.tag("mcp.duration_ms", String.valueOf(duration));
-            span.tag("mcp.result.size", String.valueOf(result.toString().length()));
+            capture.tag(span, "mcp.result", result);
             
-            log.info("MCP tool call completed: server={}, tool={}, duration={}ms, result={}",
-                serverName, toolName, duration, result);
+            log.debug("MCP tool call completed: server={}, tool={}, duration={}ms, result={}",
+                serverName, toolName, duration, capture.lazy(result));
             
             return result;
         } catch (Exception e) {
@@ -220,36 +226,149 @@ public class StdioMcpClient implements McpClient {
         }
     }
     
+    /**
+     * Call several tools at once. With batching enabled the calls go out as one JSON-RPC
+     * batch array, otherwise they are pipelined and group-committed by the writer loop.
+     * Results are returned in the order of the invocations.
+     */
+    @Override
+    public List<JsonNode> callTools(List<ToolInvocation> invocations) throws Exception {
+        Span span = tracer.nextSpan().name("mcp.call_tools").start();
+        span.tag("mcp.server", serverName);
+        span.tag("mcp.tools.count", String.valueOf(invocations.size()));
+
+        try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
+            long startTime = System.currentTimeMillis();
+
+            List<ObjectNode> requests = new ArrayList<>();
+            List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+            for (ToolInvocation invocation : invocations) {
+                ObjectNode request = McpProtocol.toolCallRequest(objectMapper, requestId.getAndIncrement(),
+                    invocation.toolName(), objectMapper.valueToTree(invocation.parameters()));
+                requests.add(request);
+                futures.add(registerPending(request));
+            }
+            toolCalls.addAndGet(invocations.size());
+
+            if (batchRequests) {
+                ArrayNode batch = objectMapper.createArrayNode();
+                batch.addAll(requests);
+                enqueue(objectMapper.writeValueAsString(batch));
+            } else {
+                for (ObjectNode request : requests) {
+                    enqueue(objectMapper.writeValueAsString(request));
+                }
+            }
+
+            List<JsonNode> results = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT_SECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                JsonNode response = await(requests.get(i), futures.get(i), deadline - System.nanoTime());
+                results.add(McpProtocol.toolResult(serverName, invocations.get(i).toolName(), response));
+            }
+
+            long duration = System.currentTimeMillis() - startTime;
+            span.tag("mcp.duration_ms", String.valueOf(duration));
+            log.info("MCP batch of {} tool calls completed: server={}, batched={}, duration={}ms",
+                invocations.size(), serverName, batchRequests, duration);
+
+            return results;
+        } catch (Exception e) {
+            span.error(e);
+            log.error("MCP batch tool call failed: server={}, error={}", serverName, e.getMessage(), e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+    
     private JsonNode sendRequest(ObjectNode request) throws Exception {
-        long id = request.get("id").asLong();
+        CompletableFuture<JsonNode> future = registerPending(request);
+        enqueue(objectMapper.writeValueAsString(request));
+        return await(request, future, TimeUnit.SECONDS.toNanos(REQUEST_TIMEOUT_SECONDS));
+    }
+
+    private CompletableFuture<JsonNode> registerPending(ObjectNode request) {
+        if (writerThread == null) {
+            throw new McpServerException("MCP server " + serverName + " is not initialized");
+        }
         CompletableFuture<JsonNode> future = new CompletableFuture<>();
-        pendingRequests.put(id, future);
-        
-        String jsonRequest = objectMapper.writeValueAsString(request);
-        synchronized (writer) {
-            writer.write(jsonRequest);
-            writer.newLine();
-            writer.flush();
+        pendingRequests.put(request.get("id").asLong(), future);
+        return future;
+    }
+
+    private JsonNode await(ObjectNode request, CompletableFuture<JsonNode> future, long timeoutNanos) throws Exception {
+        try {
+            return future.get(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS);
+        } finally {
+            pendingRequests.remove(request.get("id").asLong());
         }
-        
-        return future.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Hand a message to the writer loop. Never blocks and never touches the pipe.
+     */
+    private void enqueue(String message) {
+        Thread thread = writerThread;
+        if (thread == null) {
+            throw new McpServerException("MCP server " + serverName + " is not initialized");
+        }
+        outbox.add(new OutgoingMessage(message, System.nanoTime()));
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Drains all queued messages into the buffered writer and flushes once,
+     * so a burst of concurrent requests costs a single write syscall.
+     */
+    private void writeLoop() {
+        try {
+            while (writerThread == Thread.currentThread()) {
+                OutgoingMessage message;
+                long oldestEnqueued = Long.MAX_VALUE;
+                int written = 0;
+                while ((message = outbox.poll()) != null) {
+                    writer.write(message.json());
+                    writer.newLine();
+                    oldestEnqueued = Math.min(oldestEnqueued, message.enqueuedNanos());
+                    written++;
+                }
+                if (written > 0) {
+                    writer.flush();
+                    // Wait of the oldest message until its flush, the others of the drain waited less
+                    metrics.recordQueueWait(serverName, "outbox", System.nanoTime() - oldestEnqueued);
+                    if (written > 1) {
+                        log.trace("Group-committed {} messages to MCP server {}", written, serverName);
+                    }
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } catch (IOException e) {
+            if (connected) {
+                log.error("Error writing to MCP server {}", serverName, e);
+            }
+            failPendingRequests(e);
+        }
+    }
+
+    private void failPendingRequests(Exception cause) {
+        pendingRequests.values().forEach(future -> future.completeExceptionally(cause));
+        pendingRequests.clear();
     }
     
     private void readLoop() {
         try {
             String line;
             while ((line = reader.readLine()) != null) {
+                lastReceivedNanos = System.nanoTime();
                 try {
                     JsonNode message = objectMapper.readTree(line);
-                    
-                    if (message.has("id")) {
-                        long id = message.get("id").asLong();
-                        CompletableFuture<JsonNode> future = pendingRequests.remove(id);
-                        if (future != null) {
-                            future.complete(message);
-                        }
+                    if (message.isArray()) {
+                        // Response to a batch request
+                        message.forEach(this::handleMessage);
                     } else {
-                        log.debug("Received notification from {}: {}", serverName, message);
+                        handleMessage(message);
                     }
                 } catch (Exception e) {
                     log.error("Error parsing message from {}: {}", serverName, line, e);
@@ -259,15 +378,82 @@ public class StdioMcpClient implements McpClient {
             log.error("Error reading from MCP server {}", serverName, e);
         }
     }
+
+    private void handleMessage(JsonNode message) {
+        if (McpProtocol.isServerRequest(message)) {
+            // Servers may ping us as well; an unanswered ping looks like a dead client to them
+            enqueue(McpProtocol.serverRequestReply(objectMapper, serverName, message).toString());
+        } else if (message.has("id")) {
+            long id = message.get("id").asLong();
+            CompletableFuture<JsonNode> future = pendingRequests.remove(id);
+            if (future != null) {
+                future.complete(message);
+            }
+        } else if (!McpProgress.dispatch(serverName, message, progressListeners)) {
+            McpProtocol.dispatchNotification(serverName, message, notificationListeners);
+        }
+    }
+
+    @Override
+    public void addNotificationListener(McpNotificationListener listener) {
+        notificationListeners.add(listener);
+    }
     
+    /**
+     * A process that is alive but stuck does not answer, isConnected cannot tell.
+     */
+    @Override
+    public void ping(Duration timeout) throws Exception {
+        ObjectNode request = McpProtocol.request(objectMapper, requestId.getAndIncrement(), "ping");
+        CompletableFuture<JsonNode> future = registerPending(request);
+        enqueue(objectMapper.writeValueAsString(request));
+        McpProtocol.checkPing(serverName, await(request, future, timeout.toNanos()));
+    }
+
+    @Override
+    public Duration idleTime() {
+        return Duration.ofNanos(System.nanoTime() - lastReceivedNanos);
+    }
+
     @Override
     public boolean isConnected() {
         return connected && process != null && process.isAlive();
     }
+
+    /**
+     * CPU time and memory of the server process and its children, null while it is not running.
+     */
+    ProcessUsage sampleUsage() {
+        Process current = process;
+        return current != null && current.isAlive() ? ProcessUsage.of(current.toHandle()) : null;
+    }
+
+    /**
+     * Tool calls sent to this process since it was started.
+     */
+    long getToolCalls() {
+        return toolCalls.get();
+    }
+
+    /**
+     * Requests sent and not yet answered.
+     */
+    int getPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    Duration getUptime() {
+        return startedNanos == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - startedNanos);
+    }
     
     @Override
     public void close() {
         connected = false;
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
         try {
             if (writer != null) writer.close();
             if (reader != null) reader.close();
@@ -276,4 +462,7 @@ public class StdioMcpClient implements McpClient {
             log.error("Error closing MCP client", e);
         }
     }
+
+    private record OutgoingMessage(String json, long enqueuedNanos) {
+    }
 }
@@ -0,0 +1,401 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Checks tool arguments against the tool's inputSchema before the call goes to the server.
+ * The schema is compiled once into a tree of rules, so a check is a walk over the arguments
+ * without looking at the schema again. Covers what tool schemas use in practice: type, enum,
+ * const, properties, required, additionalProperties, items, length, item count and number
+ * bounds, pattern, allOf/anyOf/oneOf/not and local $refs. Keywords it does not know are
+ * accepted - the server still validates, the check only has to catch what it would reject.
+ */
+final class ToolArgumentValidator {
+
+    static final ToolArgumentValidator ACCEPT_ALL = new ToolArgumentValidator(Rule.ACCEPT);
+
+    // Enough for the model to fix its call, more only makes the answer longer
+    private static final int MAX_VIOLATIONS = 10;
+    private static final String ROOT_PATH = "arguments";
+
+    private final Rule root;
+
+    private ToolArgumentValidator(Rule root) {
+        this.root = root;
+    }
+
+    static ToolArgumentValidator compile(JsonNode schema) {
+        if (schema == null || !schema.isObject()) {
+            return ACCEPT_ALL;
+        }
+        return new ToolArgumentValidator(new Compiler(schema).compile(schema));
+    }
+
+    /**
+     * The violations of the arguments, each with the path of the offending value. Empty if they are valid.
+     */
+    List<String> validate(JsonNode arguments) {
+        List<String> violations = new ArrayList<>();
+        root.check(arguments, ROOT_PATH, violations);
+        return violations.size() > MAX_VIOLATIONS ? violations.subList(0, MAX_VIOLATIONS) : violations;
+    }
+
+    @FunctionalInterface
+    private interface Rule {
+
+        Rule ACCEPT = (value, path, violations) -> { };
+
+        void check(JsonNode value, String path, List<String> violations);
+
+        default boolean matches(JsonNode value) {
+            List<String> violations = new ArrayList<>();
+            check(value, ROOT_PATH, violations);
+            return violations.isEmpty();
+        }
+    }
+
+    private static final class Compiler {
+
+        private final JsonNode rootSchema;
+        private final Map<String, RefRule> refs = new HashMap<>();
+
+        Compiler(JsonNode rootSchema) {
+            this.rootSchema = rootSchema;
+        }
+
+        Rule compile(JsonNode schema) {
+            if (schema.isBoolean()) {
+                return schema.booleanValue()
+                    ? Rule.ACCEPT
+                    : (value, path, violations) -> violations.add(path + ": is not allowed");
+            }
+            if (!schema.isObject()) {
+                return Rule.ACCEPT;
+            }
+
+            List<Rule> rules = new ArrayList<>();
+            JsonNode ref = schema.get("$ref");
+            if (ref != null && ref.isTextual()) {
+                rules.add(ref(ref.asText()));
+            }
+            addTypeRule(schema.get("type"), rules);
+            addValueRules(schema, rules);
+            addObjectRules(schema, rules);
+            addArrayRules(schema, rules);
+            addStringRules(schema, rules);
+            addNumberRules(schema, rules);
+            addCombinatorRules(schema, rules);
+
+            return switch (rules.size()) {
+                case 0 -> Rule.ACCEPT;
+                case 1 -> rules.get(0);
+                default -> (value, path, violations) -> {
+                    for (Rule rule : rules) {
+                        rule.check(value, path, violations);
+                    }
+                };
+            };
+        }
+
+        /**
+         * Local references only, resolved once. A reference to a schema that is still being
+         * compiled (a recursive schema) gets the rule that is completed afterwards.
+         */
+        private Rule ref(String ref) {
+            RefRule rule = refs.get(ref);
+            if (rule == null) {
+                rule = new RefRule();
+                refs.put(ref, rule);
+                JsonNode target = ref.startsWith("#") ? rootSchema.at(ref.substring(1)) : null;
+                rule.target = target != null && !target.isMissingNode() ? compile(target) : Rule.ACCEPT;
+            }
+            return rule;
+        }
+
+        private void addTypeRule(JsonNode type, List<Rule> rules) {
+            List<String> types = new ArrayList<>();
+            if (type != null && type.isTextual()) {
+                types.add(type.asText());
+            } else if (type != null && type.isArray()) {
+                type.forEach(t -> types.add(t.asText()));
+            }
+            if (types.isEmpty()) {
+                return;
+            }
+            String expected = String.join(" or ", types);
+            rules.add((value, path, violations) -> {
+                for (String t : types) {
+                    if (hasType(value, t)) {
+                        return;
+                    }
+                }
+                violations.add(path + ": expected " + expected + ", got " + typeOf(value));
+            });
+        }
+
+        private void addValueRules(JsonNode schema, List<Rule> rules) {
+            JsonNode allowed = schema.get("enum");
+            if (allowed != null && allowed.isArray()) {
+                Set<JsonNode> values = new HashSet<>();
+                allowed.forEach(values::add);
+                rules.add((value, path, violations) -> {
+                    if (!values.contains(value)) {
+                        violations.add(path + ": must be one of " + allowed);
+                    }
+                });
+            }
+            JsonNode constant = schema.get("const");
+            if (constant != null) {
+                rules.add((value, path, violations) -> {
+                    if (!constant.equals(value)) {
+                        violations.add(path + ": must be " + constant);
+                    }
+                });
+            }
+        }
+
+        private void addObjectRules(JsonNode schema, List<Rule> rules) {
+            Map<String, Rule> properties = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = schema.path("properties").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                properties.put(field.getKey(), compile(field.getValue()));
+            }
+            List<String> required = new ArrayList<>();
+            schema.path("required").forEach(name -> required.add(name.asText()));
+            JsonNode additional = schema.get("additionalProperties");
+            Rule additionalRule = additional != null && !additional.isBoolean() ? compile(additional) : null;
+            boolean closed = additional != null && additional.isBoolean() && !additional.booleanValue();
+            if (properties.isEmpty() && required.isEmpty() && additionalRule == null && !closed) {
+                return;
+            }
+
+            String allowedNames = String.join(", ", properties.keySet());
+            rules.add((value, path, violations) -> {
+                if (!value.isObject()) {
+                    return;
+                }
+                for (String name : required) {
+                    if (!value.has(name)) {
+                        violations.add(path + "." + name + ": required property is missing");
+                    }
+                }
+                Iterator<Map.Entry<String, JsonNode>> entries = value.fields();
+                while (entries.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = entries.next();
+                    String entryPath = path + "." + entry.getKey();
+                    Rule rule = properties.get(entry.getKey());
+                    if (rule != null) {
+                        rule.check(entry.getValue(), entryPath, violations);
+                    } else if (closed) {
+                        violations.add(entryPath + ": unknown property"
+                            + (allowedNames.isEmpty() ? "" : ", allowed are " + allowedNames));
+                    } else if (additionalRule != null) {
+                        additionalRule.check(entry.getValue(), entryPath, violations);
+                    }
+                }
+            });
+        }
+
+        private void addArrayRules(JsonNode schema, List<Rule> rules) {
+            JsonNode items = schema.get("items");
+            if (items != null && (items.isObject() || items.isBoolean())) {
+                Rule itemRule = compile(items);
+                rules.add((value, path, violations) -> {
+                    if (value.isArray()) {
+                        for (int i = 0; i < value.size(); i++) {
+                            itemRule.check(value.get(i), path + "[" + i + "]", violations);
+                        }
+                    }
+                });
+            }
+            if (schema.has("minItems")) {
+                int minItems = schema.get("minItems").asInt();
+                rules.add((value, path, violations) -> {
+                    if (value.isArray() && value.size() < minItems) {
+                        violations.add(path + ": must have at least " + minItems + " items");
+                    }
+                });
+            }
+            if (schema.has("maxItems")) {
+                int maxItems = schema.get("maxItems").asInt();
+                rules.add((value, path, violations) -> {
+                    if (value.isArray() && value.size() > maxItems) {
+                        violations.add(path + ": must have at most " + maxItems + " items");
+                    }
+                });
+            }
+        }
+
+        private void addStringRules(JsonNode schema, List<Rule> rules) {
+            if (schema.has("minLength")) {
+                int minLength = schema.get("minLength").asInt();
+                rules.add((value, path, violations) -> {
+                    if (value.isTextual() && length(value) < minLength) {
+                        violations.add(path + ": must be at least " + minLength + " characters long");
+                    }
+                });
+            }
+            if (schema.has("maxLength")) {
+                int maxLength = schema.get("maxLength").asInt();
+                rules.add((value, path, violations) -> {
+                    if (value.isTextual() && length(value) > maxLength) {
+                        violations.add(path + ": must be at most " + maxLength + " characters long");
+                    }
+                });
+            }
+            JsonNode patternNode = schema.get("pattern");
+            if (patternNode != null && patternNode.isTextual()) {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(patternNode.asText());
+                } catch (PatternSyntaxException e) {
+                    // ECMA 262 syntax Java does not understand, left to the server
+                    return;
+                }
+                rules.add((value, path, violations) -> {
+                    if (value.isTextual() && !pattern.matcher(value.asText()).find()) {
+                        violations.add(path + ": must match the pattern " + pattern.pattern());
+                    }
+                });
+            }
+        }
+
+        private void addNumberRules(JsonNode schema, List<Rule> rules) {
+            // Draft 4 marks minimum and maximum as exclusive with a boolean
+            boolean draft4ExclusiveMinimum = schema.path("exclusiveMinimum").asBoolean(false);
+            boolean draft4ExclusiveMaximum = schema.path("exclusiveMaximum").asBoolean(false);
+            if (schema.path("minimum").isNumber()) {
+                addBound(rules, schema.get("minimum").doubleValue(), true, draft4ExclusiveMinimum);
+            }
+            if (schema.path("maximum").isNumber()) {
+                addBound(rules, schema.get("maximum").doubleValue(), false, draft4ExclusiveMaximum);
+            }
+            if (schema.path("exclusiveMinimum").isNumber()) {
+                addBound(rules, schema.get("exclusiveMinimum").doubleValue(), true, true);
+            }
+            if (schema.path("exclusiveMaximum").isNumber()) {
+                addBound(rules, schema.get("exclusiveMaximum").doubleValue(), false, true);
+            }
+        }
+
+        private static void addBound(List<Rule> rules, double bound, boolean lower, boolean exclusive) {
+            String operator = (lower ? ">" : "<") + (exclusive ? "" : "=");
+            String formatted = bound == Math.rint(bound) ? String.valueOf((long) bound) : String.valueOf(bound);
+            rules.add((value, path, violations) -> {
+                if (!value.isNumber()) {
+                    return;
+                }
+                double number = value.doubleValue();
+                boolean inRange = lower
+                    ? (exclusive ? number > bound : number >= bound)
+                    : (exclusive ? number < bound : number <= bound);
+                if (!inRange) {
+                    violations.add(path + ": must be " + operator + " " + formatted);
+                }
+            });
+        }
+
+        private void addCombinatorRules(JsonNode schema, List<Rule> rules) {
+            if (schema.path("allOf").isArray()) {
+                for (JsonNode subschema : schema.get("allOf")) {
+                    rules.add(compile(subschema));
+                }
+            }
+            if (schema.path("anyOf").isArray()) {
+                List<Rule> options = compileAll(schema.get("anyOf"));
+                rules.add((value, path, violations) -> {
+                    for (Rule option : options) {
+                        if (option.matches(value)) {
+                            return;
+                        }
+                    }
+                    violations.add(path + ": does not match any of the allowed schemas");
+                });
+            }
+            if (schema.path("oneOf").isArray()) {
+                List<Rule> options = compileAll(schema.get("oneOf"));
+                rules.add((value, path, violations) -> {
+                    long matching = options.stream().filter(option -> option.matches(value)).count();
+                    if (matching == 0) {
+                        violations.add(path + ": does not match any of the allowed schemas");
+                    } else if (matching > 1) {
+                        violations.add(path + ": matches more than one of the allowed schemas");
+                    }
+                });
+            }
+            if (schema.has("not")) {
+                Rule excluded = compile(schema.get("not"));
+                rules.add((value, path, violations) -> {
+                    if (excluded.matches(value)) {
+                        violations.add(path + ": matches a schema it must not match");
+                    }
+                });
+            }
+        }
+
+        private List<Rule> compileAll(JsonNode subschemas) {
+            List<Rule> compiled = new ArrayList<>();
+            subschemas.forEach(subschema -> compiled.add(compile(subschema)));
+            return compiled;
+        }
+    }
+
+    private static final class RefRule implements Rule {
+
+        // Set once while compiling, before the validator is published
+        private Rule target = Rule.ACCEPT;
+
+        @Override
+        public void check(JsonNode value, String path, List<String> violations) {
+            target.check(value, path, violations);
+        }
+    }
+
+    private static boolean hasType(JsonNode value, String type) {
+        return switch (type) {
+            case "object" -> value.isObject();
+            case "array" -> value.isArray();
+            case "string" -> value.isTextual();
+            case "boolean" -> value.isBoolean();
+            case "null" -> value.isNull();
+            case "number" -> value.isNumber();
+            // 1.0 is an integer in JSON Schema
+            case "integer" -> value.isIntegralNumber()
+                || (value.isNumber() && value.doubleValue() == Math.rint(value.doubleValue()));
+            default -> true;
+        };
+    }
+
+    private static String typeOf(JsonNode value) {
+        if (value.isObject()) {
+            return "object";
+        } else if (value.isArray()) {
+            return "array";
+        } else if (value.isTextual()) {
+            return "string";
+        } else if (value.isBoolean()) {
+            return "boolean";
+        } else if (value.isNull()) {
+            return "null";
+        }
+        return hasType(value, "integer") ? "integer" : "number";
+    }
+
+    private static int length(JsonNode value) {
+        // JSON Schema counts code points, not UTF-16 chars
+        String text = value.asText();
+        return text.codePointCount(0, text.length());
+    }
+}
@@ -0,0 +1,81 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads the argument JSON of a tool call as the LLM sent it, in a single pass over its tokens.
+ * String values go through a mapping on the way (deanonymization of placeholders), and the
+ * resulting tree is sent as the arguments of the tools/call request as it is.
+ */
+final class ToolArguments {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private ToolArguments() {
+    }
+
+    /**
+     * Parse the arguments, mapping every string value. Blank input is an empty argument object.
+     */
+    static ObjectNode parse(ObjectMapper objectMapper, String json, UnaryOperator<String> strings) throws IOException {
+        if (json == null || json.isBlank()) {
+            return NODES.objectNode();
+        }
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new McpServerException("Tool arguments must be a JSON object: " + json);
+            }
+            ObjectNode arguments = readObject(parser, strings);
+            if (parser.nextToken() != null) {
+                throw new McpServerException("Unexpected content after tool arguments: " + json);
+            }
+            return arguments;
+        }
+    }
+
+    private static ObjectNode readObject(JsonParser parser, UnaryOperator<String> strings) throws IOException {
+        ObjectNode object = NODES.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            object.set(name, readValue(parser, strings));
+        }
+        return object;
+    }
+
+    private static ArrayNode readArray(JsonParser parser, UnaryOperator<String> strings) throws IOException {
+        ArrayNode array = NODES.arrayNode();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            array.add(readValue(parser, strings));
+        }
+        return array;
+    }
+
+    private static JsonNode readValue(JsonParser parser, UnaryOperator<String> strings) throws IOException {
+        return switch (parser.currentToken()) {
+            case START_OBJECT -> readObject(parser, strings);
+            case START_ARRAY -> readArray(parser, strings);
+            case VALUE_STRING -> NODES.textNode(strings.apply(parser.getText()));
+            case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                case INT -> NODES.numberNode(parser.getIntValue());
+                case LONG -> NODES.numberNode(parser.getLongValue());
+                default -> NODES.numberNode(parser.getBigIntegerValue());
+            };
+            case VALUE_NUMBER_FLOAT -> NODES.numberNode(parser.getDoubleValue());
+            case VALUE_TRUE -> NODES.booleanNode(true);
+            case VALUE_FALSE -> NODES.booleanNode(false);
+            case VALUE_NULL -> NODES.nullNode();
+            default -> throw new McpServerException("Unexpected token in tool arguments: " + parser.currentToken());
+        };
+    }
+}
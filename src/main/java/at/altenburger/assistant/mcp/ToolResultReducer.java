@@ -0,0 +1,298 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shrinks tool results before they go back to the LLM, which pays for every byte in the follow-up call.
+ * JSON is reduced structurally - empty fields are dropped, arrays keep their first items and long
+ * strings are truncated - so the LLM always gets valid JSON. Limits tighten step by step until the
+ * result fits the tool's byte budget. JSON returned as text content (common for MCP servers) is
+ * reduced the same way; plain text is cut at a line or word. A result that does not fit even the
+ * tightest step is cut down to a single text item with a truncation note, so it never exceeds the budget.
+ */
+@Slf4j
+@Component
+public class ToolResultReducer {
+
+    // Room for the "more chars" note appended to cut plain text, escaped for JSON
+    private static final int CUT_NOTE_BYTES = 32;
+
+    // Applied in order until the result fits; configured per-tool limits are never exceeded
+    private static final List<Limits> REDUCTION_STEPS = List.of(
+        new Limits(50, 2000),
+        new Limits(20, 1000),
+        new Limits(10, 500),
+        new Limits(5, 200),
+        new Limits(1, 100));
+
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ToolResultReducer(McpDiscoveryService mcpDiscoveryService, MeterRegistry meterRegistry) {
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Reduce a tools/call result to the budget of the tool and serialize it for the LLM.
+     */
+    public String reduce(String serverName, String toolName, JsonNode result) {
+        McpServerConfig.ToolPolicy policy = mcpDiscoveryService.getToolPolicy(serverName, toolName);
+        String original = result.toString();
+        int originalBytes = utf8Length(original);
+        long budget = policy.getMaxResultSize().toBytes();
+
+        String reduced = original;
+        if (originalBytes > budget || policy.getMaxArrayItems() > 0 || policy.getMaxStringLength() > 0) {
+            reduced = reduce(result, policy, budget);
+        }
+        int reducedBytes = reduced == original ? originalBytes : utf8Length(reduced);
+
+        sizeSummary(serverName, toolName, "original").record(originalBytes);
+        sizeSummary(serverName, toolName, "reduced").record(reducedBytes);
+        if (reducedBytes < originalBytes) {
+            log.debug("Reduced result of {} on {} from {} to {} bytes", toolName, serverName, originalBytes, reducedBytes);
+        }
+        return reduced;
+    }
+
+    private String reduce(JsonNode result, McpServerConfig.ToolPolicy policy, long budget) {
+        List<TextContent> textContents = textContents(result);
+        long plainTexts = textContents.stream().filter(text -> text.json() == null).count();
+
+        JsonNode reduced = null;
+        for (Limits limits : steps(policy)) {
+            if (!result.isObject()) {
+                reduced = limit(result, limits);
+            } else {
+                ObjectNode limited = objectMapper.createObjectNode();
+                result.fields().forEachRemaining(field -> {
+                    if ("content".equals(field.getKey())) {
+                        // Every content item is kept, only their text is reduced below
+                        limited.set("content", field.getValue().deepCopy());
+                    } else if (!isEmpty(field.getValue())) {
+                        limited.set(field.getKey(), limit(field.getValue(), limits));
+                    }
+                });
+                for (TextContent text : textContents) {
+                    String value = text.json() != null ? limit(text.json(), limits).toString() : "";
+                    ((ObjectNode) limited.get("content").get(text.index())).put("text", value);
+                }
+                if (plainTexts > 0) {
+                    // Plain texts share what the rest of the result leaves of the budget
+                    long textBudget = (budget - utf8Length(limited.toString())) / plainTexts;
+                    for (TextContent text : textContents) {
+                        if (text.json() == null) {
+                            ((ObjectNode) limited.get("content").get(text.index())).put("text", cut(text.text(), textBudget));
+                        }
+                    }
+                }
+                reduced = limited;
+            }
+
+            String serialized = reduced.toString();
+            if (utf8Length(serialized) <= budget) {
+                return serialized;
+            }
+        }
+        return truncate(result, reduced, budget);
+    }
+
+    /**
+     * The last resort for a result that does not fit even the tightest step: its text (or its JSON if
+     * it has no text) cut to the budget as a single text item.
+     */
+    private String truncate(JsonNode result, JsonNode reduced, long budget) {
+        StringBuilder source = new StringBuilder();
+        for (JsonNode item : reduced.path("content")) {
+            if (item.path("text").isTextual()) {
+                if (!source.isEmpty()) {
+                    source.append('\n');
+                }
+                source.append(item.get("text").asText());
+            }
+        }
+        String text = source.isEmpty() ? reduced.toString() : source.toString();
+        String note = "\n… [truncated to " + budget + " bytes]";
+
+        ObjectNode truncated = objectMapper.createObjectNode();
+        ObjectNode content = truncated.putArray("content").addObject().put("type", "text").put("text", "");
+        if (result.path("isError").asBoolean()) {
+            truncated.put("isError", true);
+        }
+        long textBudget = budget - utf8Length(truncated.toString()) - jsonLength(note);
+        content.put("text", text.substring(0, jsonPrefixLength(text, Math.max(0, textBudget))) + note);
+        return truncated.toString();
+    }
+
+    /**
+     * Explicit per-tool limits first, then the reduction steps, never looser than the explicit limits.
+     */
+    private List<Limits> steps(McpServerConfig.ToolPolicy policy) {
+        int maxItems = policy.getMaxArrayItems() > 0 ? policy.getMaxArrayItems() : Integer.MAX_VALUE;
+        int maxString = policy.getMaxStringLength() > 0 ? policy.getMaxStringLength() : Integer.MAX_VALUE;
+
+        List<Limits> steps = new ArrayList<>();
+        steps.add(new Limits(maxItems, maxString));
+        for (Limits step : REDUCTION_STEPS) {
+            steps.add(new Limits(Math.min(step.maxArrayItems(), maxItems), Math.min(step.maxStringLength(), maxString)));
+        }
+        return steps;
+    }
+
+    /**
+     * The text items of an MCP result's content, parsed if they contain JSON.
+     */
+    private List<TextContent> textContents(JsonNode result) {
+        List<TextContent> texts = new ArrayList<>();
+        JsonNode content = result.path("content");
+        for (int i = 0; i < content.size(); i++) {
+            JsonNode item = content.get(i);
+            if (!"text".equals(item.path("type").asText()) || !item.path("text").isTextual()) {
+                continue;
+            }
+            String text = item.get("text").asText();
+            texts.add(new TextContent(i, text, parseJson(text)));
+        }
+        return texts;
+    }
+
+    private JsonNode parseJson(String text) {
+        String trimmed = text.strip();
+        if (!(trimmed.startsWith("{") && trimmed.endsWith("}")) && !(trimmed.startsWith("[") && trimmed.endsWith("]"))) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(trimmed);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private JsonNode limit(JsonNode node, Limits limits) {
+        if (node.isObject()) {
+            ObjectNode result = objectMapper.createObjectNode();
+            node.fields().forEachRemaining(field -> {
+                if (!isEmpty(field.getValue())) {
+                    result.set(field.getKey(), limit(field.getValue(), limits));
+                }
+            });
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = objectMapper.createArrayNode();
+            int kept = Math.min(node.size(), limits.maxArrayItems());
+            for (int i = 0; i < kept; i++) {
+                result.add(limit(node.get(i), limits));
+            }
+            if (kept < node.size()) {
+                result.add("… " + (node.size() - kept) + " more items");
+            }
+            return result;
+        }
+        if (node.isTextual() && node.asText().length() > limits.maxStringLength()) {
+            String text = node.asText();
+            return TextNode.valueOf(text.substring(0, limits.maxStringLength())
+                + "… [" + (text.length() - limits.maxStringLength()) + " more chars]");
+        }
+        return node;
+    }
+
+    private boolean isEmpty(JsonNode node) {
+        return node.isNull()
+            || (node.isTextual() && node.asText().isEmpty())
+            || (node.isContainerNode() && node.isEmpty());
+    }
+
+    /**
+     * Cut plain text to at most the given bytes as a JSON string, at a line or word boundary.
+     */
+    private String cut(String text, long maxBytes) {
+        if (jsonLength(text) <= maxBytes) {
+            return text;
+        }
+        int end = jsonPrefixLength(text, Math.max(0, maxBytes - CUT_NOTE_BYTES));
+        String cut = text.substring(0, end);
+        int boundary = cut.lastIndexOf('\n');
+        if (boundary < end / 2) {
+            boundary = cut.lastIndexOf(' ');
+        }
+        if (boundary > end / 2) {
+            cut = cut.substring(0, boundary);
+        }
+        return cut + "\n… [" + (text.length() - cut.length()) + " more chars]";
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * UTF-8 bytes of the text as the content of a JSON string, with its escapes.
+     */
+    private static long jsonLength(String text) {
+        return text.codePoints().mapToLong(ToolResultReducer::jsonBytes).sum();
+    }
+
+    /**
+     * Length of the longest prefix of the text that takes at most maxBytes as the content of a JSON
+     * string, never splitting a character.
+     */
+    private static int jsonPrefixLength(String text, long maxBytes) {
+        long bytes = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int codePoint = text.codePointAt(end);
+            bytes += jsonBytes(codePoint);
+            if (bytes > maxBytes) {
+                break;
+            }
+            end += Character.charCount(codePoint);
+        }
+        return end;
+    }
+
+    private static int jsonBytes(int codePoint) {
+        if (codePoint == '"' || codePoint == '\\') {
+            return 2;
+        }
+        if (codePoint < 0x20) {
+            // Short escapes for newline, return, tab, backspace and form feed, six bytes for the others
+            return "\n\r\t\b\f".indexOf(codePoint) >= 0 ? 2 : 6;
+        }
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        return codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private DistributionSummary sizeSummary(String serverName, String toolName, String stage) {
+        return DistributionSummary.builder("mcp.tool.result.size")
+            .description("Size of tool results before and after reduction for the LLM")
+            .baseUnit("bytes")
+            .tag("server", serverName)
+            .tag("tool", toolName)
+            .tag("stage", stage)
+            .register(meterRegistry);
+    }
+
+    private record Limits(int maxArrayItems, int maxStringLength) {
+    }
+
+    private record TextContent(int index, String text, JsonNode json) {
+    }
+}
@@ -0,0 +1,312 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Shrinks tool descriptions and input schemas before they are sent to the LLM with every request.
+ * <ul>
+ *   <li>drops keywords the model does not need ($schema, $id, $comment, title, examples, default)</li>
+ *   <li>collapses whitespace and trims long descriptions to a token budget</li>
+ *   <li>merges identical $defs and moves large subschemas that occur more than once into $defs</li>
+ *   <li>drops $defs that nothing refers to</li>
+ * </ul>
+ */
+final class ToolSchemaCompactor {
+
+    static final int CHARS_PER_TOKEN = 4;
+
+    private static final Set<String> NON_ESSENTIAL_KEYWORDS = Set.of(
+        "$schema", "$id", "$comment", "title", "examples", "default");
+    // Keywords whose value maps names to subschemas
+    private static final Set<String> SCHEMA_MAPS = Set.of("properties", "patternProperties", "$defs", "definitions");
+    // Keywords whose value is a subschema or an array of subschemas
+    private static final Set<String> SCHEMA_VALUES = Set.of(
+        "items", "additionalProperties", "not", "contains", "anyOf", "oneOf", "allOf", "prefixItems");
+    // Smaller shared subschemas are not worth a $ref
+    private static final int MIN_SHARED_SCHEMA_CHARS = 200;
+    private static final String DEFS = "$defs";
+    private static final String DEFS_REF_PREFIX = "#/$defs/";
+
+    private final McpServerConfig.SchemaCompaction settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ToolSchemaCompactor(McpServerConfig.SchemaCompaction settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Rough token estimate for tool definition text.
+     */
+    static int estimateTokens(String... parts) {
+        int chars = 0;
+        for (String part : parts) {
+            chars += part != null ? part.length() : 0;
+        }
+        return chars / CHARS_PER_TOKEN;
+    }
+
+    String compactDescription(String description) {
+        if (description == null || !settings.isEnabled()) {
+            return description;
+        }
+        return trim(description, settings.getMaxDescriptionTokens());
+    }
+
+    JsonNode compactSchema(JsonNode schema) {
+        if (schema == null || !schema.isObject() || !settings.isEnabled()) {
+            return schema;
+        }
+        ObjectNode compacted = (ObjectNode) compact(schema);
+        mergeDuplicateDefinitions(compacted);
+        extractSharedSchemas(compacted);
+        removeUnusedDefinitions(compacted);
+        return compacted;
+    }
+
+    private JsonNode compact(JsonNode schema) {
+        if (schema.isArray()) {
+            ArrayNode result = objectMapper.createArrayNode();
+            schema.forEach(item -> result.add(compact(item)));
+            return result;
+        }
+        if (!schema.isObject()) {
+            return schema;
+        }
+
+        ObjectNode result = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = schema.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String keyword = field.getKey();
+            JsonNode value = field.getValue();
+
+            if (NON_ESSENTIAL_KEYWORDS.contains(keyword)) {
+                continue;
+            }
+            if ("description".equals(keyword) && value.isTextual()) {
+                result.put(keyword, trim(value.asText(), settings.getMaxParameterDescriptionTokens()));
+            } else if (SCHEMA_MAPS.contains(keyword) && value.isObject()) {
+                // Keys are names here (a property may well be called "title"), only the values are schemas
+                ObjectNode schemas = result.putObject(keyword);
+                value.fields().forEachRemaining(entry -> schemas.set(entry.getKey(), compact(entry.getValue())));
+            } else if (SCHEMA_VALUES.contains(keyword)) {
+                result.set(keyword, compact(value));
+            } else {
+                result.set(keyword, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Trim to the token budget, at a sentence end if one is close enough, otherwise at a word.
+     */
+    private String trim(String text, int maxTokens) {
+        String collapsed = text.replaceAll("\\s+", " ").trim();
+        int maxChars = maxTokens * CHARS_PER_TOKEN;
+        if (maxTokens <= 0 || collapsed.length() <= maxChars) {
+            return collapsed;
+        }
+
+        String cut = collapsed.substring(0, maxChars);
+        int sentenceEnd = cut.lastIndexOf(". ");
+        if (sentenceEnd >= maxChars / 2) {
+            return cut.substring(0, sentenceEnd + 1);
+        }
+        int wordEnd = cut.lastIndexOf(' ');
+        return (wordEnd > 0 ? cut.substring(0, wordEnd) : cut) + "…";
+    }
+
+    private void mergeDuplicateDefinitions(ObjectNode schema) {
+        JsonNode defs = schema.get(DEFS);
+        if (defs == null || !defs.isObject()) {
+            return;
+        }
+
+        Map<String, String> firstByContent = new HashMap<>();
+        Map<String, String> renamed = new HashMap<>();
+        defs.fields().forEachRemaining(entry -> {
+            String first = firstByContent.putIfAbsent(entry.getValue().toString(), entry.getKey());
+            if (first != null) {
+                renamed.put(entry.getKey(), first);
+            }
+        });
+        if (renamed.isEmpty()) {
+            return;
+        }
+
+        ((ObjectNode) defs).remove(renamed.keySet());
+        forEachObject(schema, node -> {
+            JsonNode ref = node.get("$ref");
+            String name = ref != null ? definitionName(ref.asText()) : null;
+            if (name != null && renamed.containsKey(name)) {
+                // Keep the path of refs that point into the definition
+                String path = ref.asText().substring(DEFS_REF_PREFIX.length());
+                int slash = path.indexOf('/');
+                node.put("$ref", DEFS_REF_PREFIX + escapeRefToken(renamed.get(name))
+                    + (slash >= 0 ? path.substring(slash) : ""));
+            }
+        });
+    }
+
+    /**
+     * Move large subschemas that occur more than once into $defs and refer to them.
+     * Names follow document order, so the same schema always compacts to the same JSON.
+     */
+    private void extractSharedSchemas(ObjectNode schema) {
+        Map<String, Integer> occurrences = new LinkedHashMap<>();
+        Map<String, JsonNode> samples = new HashMap<>();
+        forEachSubschema(schema, node -> {
+            String content = node.toString();
+            if (content.length() >= MIN_SHARED_SCHEMA_CHARS) {
+                occurrences.merge(content, 1, Integer::sum);
+                samples.putIfAbsent(content, node);
+            }
+        });
+
+        Map<String, String> refsByContent = new HashMap<>();
+        ObjectNode defs = null;
+        int index = 1;
+        for (Map.Entry<String, Integer> entry : occurrences.entrySet()) {
+            if (entry.getValue() < 2) {
+                continue;
+            }
+            if (defs == null) {
+                defs = schema.get(DEFS) instanceof ObjectNode existing ? existing : schema.putObject(DEFS);
+            }
+            String name = "shared" + index++;
+            while (defs.has(name)) {
+                name = "shared" + index++;
+            }
+            defs.set(name, samples.get(entry.getKey()).deepCopy());
+            refsByContent.put(entry.getKey(), DEFS_REF_PREFIX + name);
+        }
+
+        if (!refsByContent.isEmpty()) {
+            replaceSubschemas(schema, refsByContent);
+        }
+    }
+
+    private void replaceSubschemas(JsonNode node, Map<String, String> refsByContent) {
+        forEachSchemaChild(node, (container, key, child) -> {
+            String ref = refsByContent.get(child.toString());
+            if (ref != null) {
+                ObjectNode refNode = objectMapper.createObjectNode().put("$ref", ref);
+                if (container instanceof ObjectNode object) {
+                    object.set(key, refNode);
+                } else {
+                    ((ArrayNode) container).set(Integer.parseInt(key), refNode);
+                }
+            } else {
+                replaceSubschemas(child, refsByContent);
+            }
+        });
+    }
+
+    private void removeUnusedDefinitions(ObjectNode schema) {
+        JsonNode defs = schema.get(DEFS);
+        if (defs == null || !defs.isObject()) {
+            return;
+        }
+
+        Set<String> referenced = new HashSet<>();
+        forEachObject(schema, node -> {
+            JsonNode ref = node.get("$ref");
+            String name = ref != null ? definitionName(ref.asText()) : null;
+            if (name != null) {
+                referenced.add(name);
+            }
+        });
+        ((ObjectNode) defs).retain(referenced);
+        if (defs.isEmpty()) {
+            schema.remove(DEFS);
+        }
+    }
+
+    /**
+     * The definition a ref points to or into, such as Foo for #/$defs/Foo/properties/bar,
+     * or null if it does not point into $defs.
+     */
+    private static String definitionName(String ref) {
+        if (!ref.startsWith(DEFS_REF_PREFIX)) {
+            return null;
+        }
+        String path = ref.substring(DEFS_REF_PREFIX.length());
+        int slash = path.indexOf('/');
+        String token = slash >= 0 ? path.substring(0, slash) : path;
+        // JSON pointer escapes, ~1 before ~0 so "~01" stays "~1"
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+
+    private static String escapeRefToken(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+
+    /**
+     * Visit all subschemas below the root, outside $defs.
+     */
+    private void forEachSubschema(JsonNode node, Consumer<JsonNode> action) {
+        forEachSchemaChild(node, (container, key, child) -> {
+            if (child.isObject()) {
+                action.accept(child);
+            }
+            forEachSubschema(child, action);
+        });
+    }
+
+    private void forEachSchemaChild(JsonNode node, SchemaChildVisitor visitor) {
+        if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                visitor.visit(node, String.valueOf(i), node.get(i));
+            }
+            return;
+        }
+        if (!node.isObject()) {
+            return;
+        }
+        for (String keyword : fieldNames(node)) {
+            JsonNode value = node.get(keyword);
+            if (SCHEMA_MAPS.contains(keyword) && !DEFS.equals(keyword) && !"definitions".equals(keyword)
+                    && value.isObject()) {
+                for (String name : fieldNames(value)) {
+                    visitor.visit(value, name, value.get(name));
+                }
+            } else if (SCHEMA_VALUES.contains(keyword)) {
+                visitor.visit(node, keyword, value);
+            }
+        }
+    }
+
+    private void forEachObject(JsonNode node, Consumer<ObjectNode> action) {
+        if (node instanceof ObjectNode object) {
+            action.accept(object);
+        }
+        node.forEach(child -> forEachObject(child, action));
+    }
+
+    // Copied, the visitors replace fields while iterating
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface SchemaChildVisitor {
+        void visit(JsonNode container, String key, JsonNode child);
+    }
+}
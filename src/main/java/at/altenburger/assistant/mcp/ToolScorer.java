@@ -0,0 +1,28 @@
+package at.altenburger.assistant.mcp;
+
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+
+/**
+ * Ranks tools against a query for tool selection.
+ * Keyword ranking ({@link Bm25ToolScorer}) is used unless the application defines a
+ * ToolScorer bean, e.g. one that compares embeddings.
+ */
+@FunctionalInterface
+public interface ToolScorer {
+
+    /**
+     * Prepare scoring for a set of tools. Called once per tool set, not per query.
+     */
+    ToolIndex index(List<ToolDefinition> tools);
+
+    @FunctionalInterface
+    interface ToolIndex {
+
+        /**
+         * Score the indexed tools, in index order. Higher is more relevant, 0 means no match.
+         */
+        double[] score(String query);
+    }
+}
@@ -0,0 +1,50 @@
+package at.altenburger.assistant.mcp.tools;
+
+import at.altenburger.assistant.mcp.McpToolBean;
+import at.altenburger.assistant.mcp.McpToolMethod;
+import at.altenburger.assistant.mcp.McpToolParam;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Date and time helpers served in-process instead of through an external MCP server.
+ */
+@McpToolBean
+public class DateTimeTools {
+
+    private final ZoneId defaultZone;
+
+    public DateTimeTools(@Value("${assistant.tools.default-timezone:Europe/Vienna}") String defaultTimezone) {
+        this.defaultZone = ZoneId.of(defaultTimezone);
+    }
+
+    @McpToolMethod(name = "get_current_datetime",
+        description = "Get the current date, time and weekday, optionally in a specific IANA timezone")
+    public CurrentDateTime getCurrentDateTime(
+            @McpToolParam(description = "IANA timezone such as Europe/Vienna", required = false) String timezone) {
+        ZoneId zone = timezone != null && !timezone.isBlank() ? ZoneId.of(timezone) : defaultZone;
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        return new CurrentDateTime(
+            now.toOffsetDateTime().toString(),
+            now.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH),
+            zone.getId()
+        );
+    }
+
+    @McpToolMethod(name = "days_between",
+        description = "Count the days between two ISO dates (yyyy-MM-dd), negative if end is before start")
+    public long daysBetween(
+            @McpToolParam(description = "Start date, yyyy-MM-dd") String start,
+            @McpToolParam(description = "End date, yyyy-MM-dd") String end) {
+        return ChronoUnit.DAYS.between(LocalDate.parse(start), LocalDate.parse(end));
+    }
+
+    public record CurrentDateTime(String dateTime, String weekday, String timezone) {
+    }
+}
@@ -0,0 +1,90 @@
+package at.altenburger.assistant.mcp.tools;
+
+import at.altenburger.assistant.mcp.McpToolBean;
+import at.altenburger.assistant.mcp.McpToolMethod;
+import at.altenburger.assistant.mcp.McpToolParam;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Unit conversions served in-process instead of through an external MCP server.
+ */
+@McpToolBean
+public class UnitConversionTools {
+
+    private record Unit(String dimension, double toBase) {
+    }
+
+    // Factors to the base unit of each dimension (meter, kilogram, liter, meter per second)
+    private static final Map<String, Unit> UNITS = Map.ofEntries(
+        Map.entry("mm", new Unit("length", 0.001)),
+        Map.entry("cm", new Unit("length", 0.01)),
+        Map.entry("m", new Unit("length", 1)),
+        Map.entry("km", new Unit("length", 1000)),
+        Map.entry("in", new Unit("length", 0.0254)),
+        Map.entry("ft", new Unit("length", 0.3048)),
+        Map.entry("yd", new Unit("length", 0.9144)),
+        Map.entry("mi", new Unit("length", 1609.344)),
+        Map.entry("g", new Unit("mass", 0.001)),
+        Map.entry("kg", new Unit("mass", 1)),
+        Map.entry("t", new Unit("mass", 1000)),
+        Map.entry("oz", new Unit("mass", 0.028349523125)),
+        Map.entry("lb", new Unit("mass", 0.45359237)),
+        Map.entry("ml", new Unit("volume", 0.001)),
+        Map.entry("l", new Unit("volume", 1)),
+        Map.entry("gal", new Unit("volume", 3.785411784)),
+        Map.entry("m/s", new Unit("speed", 1)),
+        Map.entry("km/h", new Unit("speed", 1 / 3.6)),
+        Map.entry("mph", new Unit("speed", 0.44704)),
+        Map.entry("kn", new Unit("speed", 0.514444))
+    );
+
+    @McpToolMethod(name = "convert_units",
+        description = "Convert a value between units of length (mm, cm, m, km, in, ft, yd, mi), mass (g, kg, t, oz, lb), "
+            + "volume (ml, l, gal), speed (m/s, km/h, mph, kn) or temperature (c, f, k)")
+    public Conversion convertUnits(
+            @McpToolParam(description = "Value to convert") double value,
+            @McpToolParam(name = "from_unit", description = "Unit of the value") String fromUnit,
+            @McpToolParam(name = "to_unit", description = "Target unit") String toUnit) {
+        String from = fromUnit.toLowerCase(Locale.ROOT).trim();
+        String to = toUnit.toLowerCase(Locale.ROOT).trim();
+
+        if (isTemperature(from) && isTemperature(to)) {
+            return new Conversion(fromKelvin(toKelvin(value, from), to), to);
+        }
+
+        Unit source = UNITS.get(from);
+        Unit target = UNITS.get(to);
+        if (source == null || target == null) {
+            throw new IllegalArgumentException("Unsupported unit: " + (source == null ? fromUnit : toUnit));
+        }
+        if (!source.dimension().equals(target.dimension())) {
+            throw new IllegalArgumentException("Cannot convert " + source.dimension() + " to " + target.dimension());
+        }
+        return new Conversion(value * source.toBase() / target.toBase(), to);
+    }
+
+    private boolean isTemperature(String unit) {
+        return unit.equals("c") || unit.equals("f") || unit.equals("k");
+    }
+
+    private double toKelvin(double value, String unit) {
+        return switch (unit) {
+            case "c" -> value + 273.15;
+            case "f" -> (value - 32) * 5 / 9 + 273.15;
+            default -> value;
+        };
+    }
+
+    private double fromKelvin(double kelvin, String unit) {
+        return switch (unit) {
+            case "c" -> kelvin - 273.15;
+            case "f" -> (kelvin - 273.15) * 9 / 5 + 32;
+            default -> kelvin;
+        };
+    }
+
+    public record Conversion(double value, String unit) {
+    }
+}
@@ -4,6 +4,7 @@ import at.altenburger.assistant.core.service.ConversationService;
 import at.altenburger.assistant.domain.entity.ConversationEntity;
 import at.altenburger.assistant.domain.entity.MessageEntity;
 import at.altenburger.assistant.mcp.McpToolCallbackProvider;
+import at.altenburger.assistant.mcp.McpToolSelector;
 import at.altenburger.assistant.service.anonymization.AnonymizationResult;
 import at.altenburger.assistant.service.anonymization.AnonymizationService;
 import io.micrometer.tracing.Span;
@@ -14,14 +15,18 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Orchestrates AI query processing using cloud LLM with native tool calling.
@@ -32,19 +37,26 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AiOrchestrationService {
 
-    private final OpenAiChatModel chatModel;
+    private final ChatClient chatClient;
+    private final PromptCacheMetrics promptCacheMetrics;
+    private final ResponseCache responseCache;
     private final McpToolCallbackProvider toolCallbackProvider;
+    private final McpToolSelector toolSelector;
     private final AnonymizationService anonymizationService;
     private final ConversationService conversationService;
     private final Tracer tracer;
 
-    @Value("${assistant.system-prompt:You are a helpful AI assistant. Answer questions directly and concisely. Use available tools when they can help provide accurate, up-to-date information.}")
-    private String systemPrompt;
-
     @Value("${assistant.conversation.max-history:10}")
     private int maxHistoryMessages;
 
     public QueryResult processQuery(String query, String conversationId) {
+        return processQuery(query, conversationId, false);
+    }
+
+    /**
+     * Process a query, answering repeated questions from the response cache unless bypassCache is set.
+     */
+    public QueryResult processQuery(String query, String conversationId, boolean bypassCache) {
         Span span = tracer.nextSpan().name("ai.process_query").start();
 
         try (Tracer.SpanInScope ws = tracer.withSpan(span)) {
@@ -73,19 +85,31 @@ public class AiOrchestrationService {
                 span.tag("history.messages", String.valueOf(conversationHistory.size()));
             }
 
-            // 3. Get MCP tools as tool callbacks and clear previous tracking
+            // 3. Answer repeated questions from the response cache
+            ResponseCache.Key cacheKey = responseCache.isEnabled()
+                ? responseCache.key(anonymizedQuery, conversationHistory, anonymization)
+                : null;
+            if (cacheKey != null && bypassCache) {
+                responseCache.recordBypass();
+            } else if (cacheKey != null) {
+                CachedResponse cached = responseCache.get(cacheKey);
+                span.tag("response_cache", cached != null ? "hit" : "miss");
+                if (cached != null) {
+                    return cachedResult(query, cached, anonymization, traceId, startTime);
+                }
+            }
+
+            // 4. Get the MCP tools relevant to the query as tool callbacks and clear previous tracking
             toolCallbackProvider.clearToolCalls();
             toolCallbackProvider.setAnonymizationContext(anonymization);
-            List<ToolCallback> toolCallbacks = toolCallbackProvider.getToolCallbacks();
+            List<ToolCallback> toolCallbacks = toolSelector.select(anonymizedQuery, toolCallbackProvider.getToolCallbacks());
             log.debug("Registered {} MCP tools for tool calling", toolCallbacks.size());
+            span.tag("tools.attached", String.valueOf(toolCallbacks.size()));
 
-            // 4. Call LLM with tools and conversation history
+            // 5. Call LLM with tools and conversation history, the system prompt comes with the client
             long llmStart = System.currentTimeMillis();
 
-            ChatClient chatClient = ChatClient.builder(chatModel).build();
-
             ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt()
-                .system(systemPrompt)
                 .messages(conversationHistory)
                 .user(anonymizedQuery)
                 .toolCallbacks(toolCallbacks.toArray(new ToolCallback[0]));
@@ -96,14 +120,19 @@ public class AiOrchestrationService {
             log.info("LLM call completed in {}ms", llmDuration);
             span.tag("llm.duration_ms", String.valueOf(llmDuration));
 
-            // 5. De-anonymize the response
+            // 6. Get tool calls made during this request
+            List<McpToolCallbackProvider.ToolCall> toolCalls = toolCallbackProvider.getToolCalls();
+
+            // 7. Cache the answer while it is still anonymized
+            if (cacheKey != null && response != null) {
+                responseCache.put(cacheKey, response, toolCalls, TimeUnit.MILLISECONDS.toNanos(llmDuration));
+            }
+
+            // 8. De-anonymize the response
             if (response != null && anonymization.hasAnonymizedEntities()) {
                 response = anonymization.deanonymize(response);
             }
 
-            // 6. Get tool calls made during this request
-            List<McpToolCallbackProvider.ToolCall> toolCalls = toolCallbackProvider.getToolCalls();
-
             // Build result
             long totalDuration = System.currentTimeMillis() - startTime;
 
@@ -117,6 +146,11 @@ public class AiOrchestrationService {
             result.setToolsUsed(toolCalls.stream()
                 .map(tc -> tc.getServerName() + ":" + tc.getToolName())
                 .toList());
+            // Offsets relative to the request start show which tool calls overlapped
+            result.setToolTimings(toolCalls.stream()
+                .map(tc -> new ToolTiming(tc.getServerName(), tc.getToolName(),
+                    tc.getStartedAtMs() - startTime, tc.getDurationMs(), tc.isSuccess()))
+                .toList());
 
             log.info("Query completed in {}ms (anon={}ms, llm={}ms): history={}, entities={}, tools={}",
                 totalDuration, anonymizationDuration, llmDuration,
@@ -143,9 +177,10 @@ public class AiOrchestrationService {
 
     /**
      * Process a query with streaming response.
-     * Returns a Flux of response chunks for real-time streaming to the client.
+     * Returns a Flux of response chunks for real-time streaming to the client,
+     * merged with the activity of the tool calls as it happens.
      */
-    public Flux<String> processQueryStream(String query, String conversationId) {
+    public Flux<StreamEvent> processQueryStream(String query, String conversationId) {
         log.info("Processing streaming query: '{}'", query);
 
         // 1. Anonymize query for privacy
@@ -164,22 +199,34 @@ public class AiOrchestrationService {
             log.debug("Loaded {} messages from conversation history", conversationHistory.size());
         }
 
-        // 3. Get MCP tools and set anonymization context
+        // 3. Get the MCP tools relevant to the query and set anonymization context
         toolCallbackProvider.clearToolCalls();
         toolCallbackProvider.setAnonymizationContext(anonymization);
-        List<ToolCallback> toolCallbacks = toolCallbackProvider.getToolCallbacks();
+        List<ToolCallback> toolCallbacks = toolSelector.select(anonymizedQuery, toolCallbackProvider.getToolCallbacks());
 
-        // 4. Create streaming request
-        ChatClient chatClient = ChatClient.builder(chatModel).build();
+        // 4. Route tool activity into the stream, concurrent tool calls report from several threads
+        Sinks.Many<McpToolCallbackProvider.ToolEvent> toolEvents = Sinks.many().unicast().onBackpressureBuffer();
+        toolCallbackProvider.setToolEventListener(event -> {
+            synchronized (toolEvents) {
+                toolEvents.tryEmitNext(event);
+            }
+        });
+        // The tool calls run on a Reactor thread, the request context travels with the prompt.
+        // Nothing of it, the original PII least of all, may stay behind on the request thread
+        McpToolCallbackProvider.RequestContext requestContext = toolCallbackProvider.captureContext();
+        toolCallbackProvider.clearContext();
 
         // 5. Stream response with deanonymization applied to each chunk
-        return chatClient.prompt()
-            .system(systemPrompt)
+        Flux<StreamEvent> answer = chatClient.prompt()
             .messages(conversationHistory)
             .user(anonymizedQuery)
             .toolCallbacks(toolCallbacks.toArray(new ToolCallback[0]))
+            .toolContext(Map.of(McpToolCallbackProvider.RequestContext.TOOL_CONTEXT_KEY, requestContext))
             .stream()
-            .content()
+            .chatResponse()
+            // The last chunk carries the token usage of the call
+            .doOnNext(promptCacheMetrics::record)
+            .mapNotNull(AiOrchestrationService::text)
             .map(chunk -> {
                 // Deanonymize each chunk
                 if (anonymization.hasAnonymizedEntities() && chunk != null) {
@@ -187,10 +234,53 @@ public class AiOrchestrationService {
                 }
                 return chunk;
             })
-            .doFinally(signal -> {
-                toolCallbackProvider.clearAnonymizationContext();
-                log.debug("Streaming completed with signal: {}", signal);
-            });
+            .map(StreamEvent::ofText)
+            .doFinally(signal -> log.debug("Streaming completed with signal: {}", signal));
+
+        return withToolEvents(answer, toolEvents);
+    }
+
+    /**
+     * The answer with the tool activity routed into it. Tool events are emitted while the answer is
+     * produced, so each comes before the chunks that follow its call. The tool events are completed
+     * however the answer ends, so the stream ends with it; an error is passed on after the tool events
+     * that were already emitted.
+     */
+    static Flux<StreamEvent> withToolEvents(Flux<StreamEvent> answer,
+                                            Sinks.Many<McpToolCallbackProvider.ToolEvent> toolEvents) {
+        Flux<StreamEvent> completingAnswer = answer.doFinally(signal -> {
+            synchronized (toolEvents) {
+                toolEvents.tryEmitComplete();
+            }
+        });
+        return Flux.mergeDelayError(Queues.XS_BUFFER_SIZE,
+            toolEvents.asFlux().map(StreamEvent::ofTool), completingAnswer);
+    }
+
+    private static QueryResult cachedResult(String query, CachedResponse cached, AnonymizationResult anonymization,
+                                            String traceId, long startTime) {
+        String response = anonymization.hasAnonymizedEntities()
+            ? anonymization.deanonymize(cached.response())
+            : cached.response();
+        long totalDuration = System.currentTimeMillis() - startTime;
+        log.info("Query answered from the response cache in {}ms", totalDuration);
+
+        QueryResult result = new QueryResult();
+        result.setQuery(query);
+        result.setResponse(response);
+        result.setTraceId(traceId);
+        result.setSuccess(true);
+        result.setCached(true);
+        result.setTotalDurationMs(totalDuration);
+        result.setAnonymizedEntities(anonymization.getEntityCount());
+        result.setToolsUsed(cached.toolsUsed());
+        return result;
+    }
+
+    private static String text(ChatResponse chunk) {
+        return chunk.getResult() != null && chunk.getResult().getOutput() != null
+            ? chunk.getResult().getOutput().getText()
+            : null;
     }
 
     /**
@@ -231,10 +321,12 @@ public class AiOrchestrationService {
         private String response;
         private String traceId;
         private boolean success;
+        private boolean cached;
         private String error;
         private long totalDurationMs;
         private int anonymizedEntities;
         private List<String> toolsUsed = new ArrayList<>();
+        private List<ToolTiming> toolTimings = new ArrayList<>();
 
         public String getQuery() { return query; }
         public void setQuery(String query) { this.query = query; }
@@ -248,6 +340,9 @@ public class AiOrchestrationService {
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
 
+        public boolean isCached() { return cached; }
+        public void setCached(boolean cached) { this.cached = cached; }
+
         public String getError() { return error; }
         public void setError(String error) { this.error = error; }
 
@@ -259,5 +354,28 @@ public class AiOrchestrationService {
 
         public List<String> getToolsUsed() { return toolsUsed; }
         public void setToolsUsed(List<String> toolsUsed) { this.toolsUsed = toolsUsed; }
+
+        public List<ToolTiming> getToolTimings() { return toolTimings; }
+        public void setToolTimings(List<ToolTiming> toolTimings) { this.toolTimings = toolTimings; }
+    }
+
+    /**
+     * An element of a streamed response: a chunk of the answer or the activity of a tool call.
+     */
+    public record StreamEvent(String text, McpToolCallbackProvider.ToolEvent toolEvent) {
+
+        static StreamEvent ofText(String text) {
+            return new StreamEvent(text, null);
+        }
+
+        static StreamEvent ofTool(McpToolCallbackProvider.ToolEvent toolEvent) {
+            return new StreamEvent(null, toolEvent);
+        }
+    }
+
+    /**
+     * Timing of a single tool call, with its start relative to the start of the query.
+     */
+    public record ToolTiming(String serverName, String toolName, long startOffsetMs, long durationMs, boolean success) {
     }
 }
\ No newline at end of file
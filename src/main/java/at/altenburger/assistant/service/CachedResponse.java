@@ -0,0 +1,19 @@
+package at.altenburger.assistant.service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Entry of the llm-responses cache. The answer is stored anonymized and deanonymized
+ * with the mappings of the request it is served to.
+ *
+ * @param query        the normalized anonymized query the answer was generated for
+ * @param response     the answer of the LLM, before deanonymization
+ * @param toolsUsed    the tools the answer is based on, as server:tool
+ * @param ttl          lifetime of the entry
+ * @param latencyNanos how long the LLM took, i.e. the latency saved per hit
+ * @param prepared     the query prepared for similarity lookups, once when it is stored
+ */
+public record CachedResponse(String query, String response, List<String> toolsUsed, Duration ttl, long latencyNanos,
+                             QuerySimilarity.PreparedQuery prepared) {
+}
@@ -0,0 +1,66 @@
+package at.altenburger.assistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.observation.ChatModelObservationContext;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the prompt tokens of calls to the chat model, split into those OpenAI served from its
+ * prompt cache and those it processed again. The hit rate is {@code llm.prompt.tokens{cache="hit"}}
+ * over the sum of both.
+ * <p>
+ * Only responses that carry OpenAI's own usage of a single call are counted. Spring AI sums up the
+ * usage of later round trips of a tool calling loop and of aggregated streams without the cached
+ * tokens; counting those too would count the same prompt twice. Streamed responses are recorded
+ * from their last chunk by the caller.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromptCacheMetrics implements ObservationHandler<ChatModelObservationContext> {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof ChatModelObservationContext;
+    }
+
+    @Override
+    public void onStop(ChatModelObservationContext context) {
+        record(context.getResponse());
+    }
+
+    void record(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null
+                || !(response.getMetadata().getUsage().getNativeUsage() instanceof OpenAiApi.Usage usage)
+                || usage.promptTokens() == null) {
+            // Streamed chunks before the last one, or usage summed up over several calls
+            return;
+        }
+        int promptTokens = usage.promptTokens();
+        int cachedTokens = usage.promptTokensDetails() != null && usage.promptTokensDetails().cachedTokens() != null
+            ? Math.min(usage.promptTokensDetails().cachedTokens(), promptTokens)
+            : 0;
+        String model = response.getMetadata().getModel() != null ? response.getMetadata().getModel() : "unknown";
+
+        tokenCounter(model, "hit").increment(cachedTokens);
+        tokenCounter(model, "miss").increment(promptTokens - cachedTokens);
+        log.debug("Prompt of {} tokens, {} from the prompt cache", promptTokens, cachedTokens);
+    }
+
+    private Counter tokenCounter(String model, String cache) {
+        return Counter.builder("llm.prompt.tokens")
+            .description("Prompt tokens sent to the chat model, by whether they were served from the prompt cache")
+            .tag("model", model)
+            .tag("cache", cache)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package at.altenburger.assistant.service;
+
+/**
+ * Scores how similar two normalized queries are, for lookups in the response cache.
+ * Term overlap ({@link TermSimilarity}) is used unless the application defines a
+ * QuerySimilarity bean, e.g. one that compares embeddings of a local model.
+ */
+@FunctionalInterface
+public interface QuerySimilarity {
+
+    /**
+     * Bring a query into the form it is compared in, e.g. its term vector or embedding. Cached
+     * questions are prepared once when they are stored, not on every lookup.
+     */
+    PreparedQuery prepare(String query);
+
+    /**
+     * Similarity from 0 (unrelated) to 1 (same meaning).
+     */
+    default double similarity(String query, String cachedQuery) {
+        return prepare(query).similarity(prepare(cachedQuery));
+    }
+
+    /**
+     * A query prepared by {@link #prepare(String)}.
+     */
+    @FunctionalInterface
+    interface PreparedQuery {
+
+        /**
+         * Similarity from 0 (unrelated) to 1 (same meaning) to a query prepared by the same QuerySimilarity.
+         */
+        double similarity(PreparedQuery cachedQuery);
+    }
+}
@@ -0,0 +1,204 @@
+package at.altenburger.assistant.service;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.config.ResponseCacheConfig;
+import at.altenburger.assistant.mcp.McpDiscoveryService;
+import at.altenburger.assistant.mcp.McpToolCallbackProvider;
+import at.altenburger.assistant.service.anonymization.AnonymizationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers repeated questions from the llm-responses cache, keyed by the normalized anonymized
+ * query and a fingerprint of the conversation so far. Without an exact match, the most similar
+ * cached question of the same conversation context is used if it scores at least min-similarity.
+ * <p>
+ * Only answers that used no tools, or only cacheable tools, are stored: an answer based on a
+ * tool that reads live state or changes something must not be replayed. They expire with the
+ * shortest TTL of the tools they used.
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+
+    public static final String CACHE_NAME = "llm-responses";
+
+    private final ResponseCacheConfig config;
+    private final McpDiscoveryService mcpDiscoveryService;
+    private final QuerySimilarity similarity;
+    private final MeterRegistry meterRegistry;
+    private final Cache cache;
+    private final Timer latencySaved;
+
+    public ResponseCache(ResponseCacheConfig config, McpDiscoveryService mcpDiscoveryService,
+                         ObjectProvider<QuerySimilarity> similarityProvider, CacheManager cacheManager,
+                         MeterRegistry meterRegistry) {
+        this.config = config;
+        this.mcpDiscoveryService = mcpDiscoveryService;
+        this.similarity = similarityProvider.getIfAvailable(TermSimilarity::new);
+        this.meterRegistry = meterRegistry;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.latencySaved = Timer.builder("llm.response.cache.latency.saved")
+            .description("LLM latency avoided by response cache hits")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled() && cache != null;
+    }
+
+    /**
+     * The cache key of a query. The anonymized entities are part of the context, hashed, so an answer
+     * about one person is never served for the same question about another.
+     */
+    public Key key(String anonymizedQuery, List<Message> history, AnonymizationResult anonymization) {
+        MessageDigest digest = sha256();
+        for (Message message : history) {
+            update(digest, message.getMessageType().getValue());
+            update(digest, message.getText());
+        }
+        Map<String, String> entities = new TreeMap<>();
+        anonymization.getPlaceholderToEntity().forEach((placeholder, entity) ->
+            entities.put(placeholder, entity.getOriginalValue()));
+        entities.forEach((placeholder, value) -> {
+            update(digest, placeholder);
+            update(digest, value);
+        });
+        return new Key(HexFormat.of().formatHex(digest.digest()), normalize(anonymizedQuery));
+    }
+
+    /**
+     * Look up the answer to a query, null on a miss.
+     */
+    public CachedResponse get(Key key) {
+        CachedResponse cached = cache.get(key, CachedResponse.class);
+        String result = "hit";
+        if (cached == null && config.getMinSimilarity() > 0) {
+            cached = findSimilar(key);
+            result = "similar";
+        }
+        if (cached == null) {
+            requestCounter("miss").increment();
+            return null;
+        }
+        requestCounter(result).increment();
+        latencySaved.record(cached.latencyNanos(), TimeUnit.NANOSECONDS);
+        log.debug("Serving answer from the response cache ({}): '{}'", result, cached.query());
+        return cached;
+    }
+
+    /**
+     * Count a request that asked not to be answered from the cache. Its answer still refreshes the entry.
+     */
+    public void recordBypass() {
+        requestCounter("bypass").increment();
+    }
+
+    /**
+     * Store an answer, unless it used a tool whose results must not be cached or a tool call failed.
+     *
+     * @param response the answer before deanonymization
+     */
+    public void put(Key key, String response, List<McpToolCallbackProvider.ToolCall> toolCalls, long latencyNanos) {
+        Duration ttl = config.getTtl();
+        for (McpToolCallbackProvider.ToolCall toolCall : toolCalls) {
+            McpServerConfig.ToolPolicy policy = mcpDiscoveryService.getToolPolicy(
+                toolCall.getServerName(), toolCall.getToolName());
+            if (!toolCall.isSuccess() || policy.getCache() == McpServerConfig.CachePolicy.NEVER) {
+                log.debug("Not caching the answer, it used {} on {}", toolCall.getToolName(), toolCall.getServerName());
+                return;
+            }
+            if (policy.getCache() == McpServerConfig.CachePolicy.TTL && policy.getTtl() != null
+                    && policy.getTtl().compareTo(ttl) < 0) {
+                ttl = policy.getTtl();
+            }
+        }
+
+        List<String> toolsUsed = toolCalls.stream()
+            .map(toolCall -> toolCall.getServerName() + ":" + toolCall.getToolName())
+            .distinct()
+            .toList();
+        cache.put(key, new CachedResponse(key.query(), response, toolsUsed, ttl, latencyNanos,
+            similarity.prepare(key.query())));
+    }
+
+    /**
+     * The best match among the cached questions of the same conversation context. Only the query is
+     * prepared here, the cached questions were prepared when they were stored.
+     */
+    private CachedResponse findSimilar(Key key) {
+        if (!(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            return null;
+        }
+        QuerySimilarity.PreparedQuery query = similarity.prepare(key.query());
+        CachedResponse best = null;
+        double bestScore = config.getMinSimilarity();
+        for (Map.Entry<?, ?> entry : nativeCache.asMap().entrySet()) {
+            if (entry.getKey() instanceof Key cachedKey && cachedKey.context().equals(key.context())
+                    && entry.getValue() instanceof CachedResponse cached) {
+                double score = query.similarity(cached.prepared());
+                if (score >= bestScore) {
+                    best = cached;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lowercase, collapse whitespace and drop closing punctuation, which do not change the question.
+     */
+    static String normalize(String query) {
+        return query.toLowerCase(Locale.ROOT)
+            .replaceAll("\\s+", " ")
+            .replaceAll("[\\s?!.]+$", "")
+            .strip();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update((value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+        // Separator, so "ab"+"c" and "a"+"bc" differ
+        digest.update((byte) 0);
+    }
+
+    private Counter requestCounter(String result) {
+        return Counter.builder("llm.response.cache.requests")
+            .description("Response cache lookups")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @param context fingerprint of the conversation history and the anonymized entities
+     * @param query   the normalized anonymized query
+     */
+    public record Key(String context, String query) {
+    }
+}
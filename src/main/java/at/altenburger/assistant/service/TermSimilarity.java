@@ -0,0 +1,102 @@
+package at.altenburger.assistant.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cosine similarity of the term frequencies of two queries. Catches rephrasings that reuse the
+ * same words, not synonyms.
+ * <p>
+ * Unlike tool selection, every word counts, including numbers and short words. A few terms flip
+ * the answer however few words they are: numbers, arithmetic operators, negations and switch
+ * words like on/off. Queries that differ in any of them score 0, so "what is 2+2" never gets
+ * the answer to "what is 3+3" and "turn on the light" never the one to "turn off the light".
+ */
+public class TermSimilarity implements QuerySimilarity {
+
+    // Words and numbers, or a single operator
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+|[+\\-*/^%=<>]");
+
+    // Words that reverse or switch what is asked, English and German
+    private static final Set<String> SWITCH_WORDS = Set.of(
+        "not", "no", "never", "without", "on", "off", "open", "close", "up", "down", "lock", "unlock",
+        "start", "stop", "enable", "disable", "increase", "decrease", "more", "less", "before", "after",
+        "nicht", "kein", "keine", "keinen", "nie", "ohne", "ein", "aus", "an", "auf", "zu", "hoch", "runter",
+        "mehr", "weniger", "vor", "nach");
+
+    @Override
+    public PreparedQuery prepare(String query) {
+        List<String> terms = tokenize(query);
+        Map<String, Integer> frequencies = frequencies(terms);
+        return new Terms(frequencies, norm(frequencies), exactTerms(terms));
+    }
+
+    /**
+     * Lowercase words, numbers and operators; "n't" counts as "not".
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        Matcher matcher = TERM.matcher(text.toLowerCase(Locale.ROOT).replace("n't", " not"));
+        while (matcher.find()) {
+            terms.add(matcher.group());
+        }
+        return terms;
+    }
+
+    /**
+     * The terms two queries must share to be answered alike.
+     */
+    private static Set<String> exactTerms(List<String> terms) {
+        Set<String> exact = new HashSet<>();
+        for (String term : terms) {
+            if (SWITCH_WORDS.contains(term) || !Character.isLetter(term.codePointAt(0))) {
+                exact.add(term);
+            }
+        }
+        return exact;
+    }
+
+    private static Map<String, Integer> frequencies(List<String> terms) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+
+    private static double norm(Map<String, Integer> frequencies) {
+        double sum = 0;
+        for (int count : frequencies.values()) {
+            sum += (double) count * count;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * The term vector of a query, with its norm and the terms a match must share.
+     */
+    private record Terms(Map<String, Integer> frequencies, double norm, Set<String> exactTerms)
+            implements PreparedQuery {
+
+        @Override
+        public double similarity(PreparedQuery cachedQuery) {
+            if (!(cachedQuery instanceof Terms cached) || norm == 0 || cached.norm == 0
+                    || !exactTerms.equals(cached.exactTerms)) {
+                return 0;
+            }
+            double dot = 0;
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                dot += term.getValue() * cached.frequencies.getOrDefault(term.getKey(), 0);
+            }
+            return dot / (norm * cached.norm);
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Stand-alone MCP server for tests and benchmarks, so the MCP path can be exercised
+ * without npx, network access or API keys. Speaks stdio, or streamable HTTP with {@code --http}.
+ * <ul>
+ *   <li>{@code --scenario=<file.json>} serves the tools of a scenario file, each with its own
+ *       latency distribution and result size (see {@link Scenario}); without it a small built-in
+ *       scenario is served</li>
+ *   <li>{@code --replay=<recording.jsonl>} answers with the responses captured by
+ *       {@link McpRecordingProxy}, with their recorded latency unless {@code --fast} is given</li>
+ *   <li>{@code --ping-client} pings the client before answering a tools/call and fails the call
+ *       if the client does not answer the ping (stdio only)</li>
+ *   <li>{@code --http} serves streamable HTTP on a free loopback port instead of stdio. The first
+ *       line on stdout is the endpoint URL; the server stops when stdin is closed</li>
+ * </ul>
+ * Requests are answered concurrently and out of order, like a real server would. Calls that ask
+ * for progress get notifications/progress in {@value #PROGRESS_STEPS} steps while they wait, over
+ * HTTP as an event stream. stdout carries the protocol only, diagnostics go to stderr.
+ */
+public class FakeMcpServer {
+
+    static final int PROGRESS_STEPS = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    private final Map<String, CompletableFuture<JsonNode>> clientResponses = new ConcurrentHashMap<>();
+    private final AtomicLong clientRequestId = new AtomicLong();
+    private final Responder responder;
+    private final boolean pingClient;
+
+    FakeMcpServer(Responder responder, boolean pingClient) {
+        this.responder = responder;
+        this.pingClient = pingClient;
+    }
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Responder responder = null;
+        boolean fast = false;
+        boolean pingClient = false;
+        boolean http = false;
+        for (String arg : args) {
+            if (arg.startsWith("--scenario=")) {
+                responder = new Scenario(objectMapper.readTree(Path.of(arg.substring("--scenario=".length())).toFile()));
+            } else if (arg.startsWith("--replay=")) {
+                responder = Replay.load(objectMapper, Path.of(arg.substring("--replay=".length())));
+            } else if ("--fast".equals(arg)) {
+                fast = true;
+            } else if ("--ping-client".equals(arg)) {
+                pingClient = true;
+            } else if ("--http".equals(arg)) {
+                http = true;
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.exit(2);
+            }
+        }
+        if (responder == null) {
+            responder = Scenario.builtIn(objectMapper);
+        }
+        if (fast && responder instanceof Replay replay) {
+            replay.skipLatency();
+        }
+        if (http && pingClient) {
+            System.err.println("--ping-client needs stdio");
+            System.exit(2);
+        }
+        FakeMcpServer server = new FakeMcpServer(responder, pingClient);
+        if (http) {
+            server.runHttp();
+        } else {
+            server.run();
+        }
+    }
+
+    void run() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode message = objectMapper.readTree(line);
+            if (message.isArray()) {
+                executor.execute(() -> answerBatch(message));
+            } else if (!message.has("method") && message.has("id")) {
+                // Answer to one of our own requests
+                CompletableFuture<JsonNode> future = clientResponses.remove(message.get("id").asText());
+                if (future != null) {
+                    future.complete(message);
+                }
+            } else if (message.has("id")) {
+                executor.execute(() -> write(answer(message, this::write)));
+            }
+            // Notifications need no answer
+        }
+        // The client closed stdin, let calls in flight still answer
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void answerBatch(JsonNode batch) {
+        List<JsonNode> responses = new ArrayList<>();
+        batch.forEach(request -> {
+            if (request.has("id")) {
+                responses.add(answer(request, this::write));
+            }
+        });
+        ArrayNode array = objectMapper.createArrayNode();
+        array.addAll(responses);
+        write(array);
+    }
+
+    /**
+     * Serve streamable HTTP until stdin is closed. Each request is answered on its own POST, as JSON,
+     * or as an event stream when the call asks for progress.
+     */
+    void runHttp() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/mcp", this::handleHttp);
+        server.setExecutor(executor);
+        server.start();
+        out.write("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/mcp");
+        out.newLine();
+        out.flush();
+
+        while (System.in.read() != -1) {
+            // Runs until the parent closes stdin
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleHttp(HttpExchange exchange) throws IOException {
+        try {
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            JsonNode message = objectMapper.readTree(exchange.getRequestBody());
+            if (!message.has("id") || !message.has("method")) {
+                // Notifications and answers need no answer
+                exchange.sendResponseHeaders(202, -1);
+                return;
+            }
+            if ("initialize".equals(message.get("method").asText())) {
+                exchange.getResponseHeaders().add("Mcp-Session-Id", "fake-session");
+            }
+
+            if (!message.path("params").path("_meta").has("progressToken")) {
+                byte[] body = objectMapper.writeValueAsBytes(answer(message, notification -> { }));
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream events = exchange.getResponseBody();
+            JsonNode response = answer(message, notification -> writeEvent(events, notification));
+            writeEvent(events, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void writeEvent(OutputStream events, JsonNode message) {
+        try {
+            events.write(("event: message\ndata: " + objectMapper.writeValueAsString(message) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+            events.flush();
+        } catch (IOException e) {
+            System.err.println("Fake MCP server cannot write event: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param notifications receives the progress notifications sent while the request is answered
+     */
+    private JsonNode answer(JsonNode request, Consumer<JsonNode> notifications) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        try {
+            if (pingClient && "tools/call".equals(request.path("method").asText()) && !pingClient()) {
+                response.set("error", error(objectMapper, -32603, "client did not answer ping"));
+                return response;
+            }
+            Answer answer = responder.answer(request.path("method").asText(), request.path("params"));
+            JsonNode progressToken = request.path("params").path("_meta").get("progressToken");
+            if (progressToken != null && answer.latencyMillis() > 0) {
+                for (int step = 1; step < PROGRESS_STEPS; step++) {
+                    Thread.sleep(answer.latencyMillis() / PROGRESS_STEPS);
+                    notifications.accept(progress(progressToken, step));
+                }
+                Thread.sleep(answer.latencyMillis() / PROGRESS_STEPS);
+            } else if (answer.latencyMillis() > 0) {
+                Thread.sleep(answer.latencyMillis());
+            }
+            response.set(answer.error() ? "error" : "result", answer.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.set("error", error(objectMapper, -32603, "interrupted"));
+        }
+        return response;
+    }
+
+    /**
+     * Send a ping with a string id, as some servers do, and wait for the client's answer.
+     */
+    private boolean pingClient() throws InterruptedException {
+        String id = "server-" + clientRequestId.incrementAndGet();
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        clientResponses.put(id, future);
+        ObjectNode ping = objectMapper.createObjectNode();
+        ping.put("jsonrpc", "2.0");
+        ping.put("id", id);
+        ping.put("method", "ping");
+        write(ping);
+        try {
+            return future.get(5, TimeUnit.SECONDS).has("result");
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } finally {
+            clientResponses.remove(id);
+        }
+    }
+
+    private ObjectNode progress(JsonNode progressToken, int step) {
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", "notifications/progress");
+        ObjectNode params = notification.putObject("params");
+        params.set("progressToken", progressToken);
+        params.put("progress", step);
+        params.put("total", PROGRESS_STEPS);
+        params.put("message", "step " + step);
+        return notification;
+    }
+
+    private synchronized void write(JsonNode message) {
+        try {
+            out.write(objectMapper.writeValueAsString(message));
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Fake MCP server cannot write: " + e.getMessage());
+        }
+    }
+
+    static ObjectNode error(ObjectMapper objectMapper, int code, String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("code", code);
+        error.put("message", message);
+        return error;
+    }
+
+    interface Responder {
+        Answer answer(String method, JsonNode params);
+    }
+
+    record Answer(JsonNode body, boolean error, long latencyMillis) {
+    }
+
+    /**
+     * Tools defined by a scenario file:
+     * <pre>
+     * {"tools": [{"name": "brave_web_search", "description": "...", "inputSchema": {...},
+     *             "latency": {"type": "lognormal", "medianMs": 120, "p99Ms": 800},
+     *             "resultBytes": 4096}]}
+     * </pre>
+     * Latency types are {@code fixed} (ms), {@code uniform} (minMs, maxMs) and
+     * {@code lognormal} (medianMs, p99Ms).
+     */
+    static final class Scenario implements Responder {
+
+        // z-score of the 99th percentile of the standard normal distribution
+        private static final double Z_99 = 2.326;
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final JsonNode scenario;
+        private final Map<String, JsonNode> tools = new HashMap<>();
+
+        Scenario(JsonNode scenario) {
+            this.scenario = scenario;
+            scenario.path("tools").forEach(tool -> tools.put(tool.path("name").asText(), tool));
+        }
+
+        static Scenario builtIn(ObjectMapper objectMapper) {
+            ObjectNode scenario = objectMapper.createObjectNode();
+            ArrayNode tools = scenario.putArray("tools");
+            tools.add(tool(objectMapper, "echo", "Returns a payload of the configured size", "fixed", 0, 256));
+            tools.add(tool(objectMapper, "search", "Searches with realistic latency and result size", "lognormal", 80, 4096));
+            return new Scenario(scenario);
+        }
+
+        private static ObjectNode tool(ObjectMapper objectMapper, String name, String description,
+                                       String latencyType, int medianMs, int resultBytes) {
+            ObjectNode tool = objectMapper.createObjectNode();
+            tool.put("name", name);
+            tool.put("description", description);
+            ObjectNode schema = tool.putObject("inputSchema");
+            schema.put("type", "object");
+            schema.putObject("properties").putObject("query").put("type", "string");
+            ObjectNode latency = tool.putObject("latency");
+            latency.put("type", latencyType);
+            latency.put("ms", medianMs);
+            latency.put("medianMs", medianMs);
+            latency.put("p99Ms", medianMs * 5);
+            tool.put("resultBytes", resultBytes);
+            return tool;
+        }
+
+        @Override
+        public Answer answer(String method, JsonNode params) {
+            return switch (method) {
+                case "initialize" -> new Answer(initializeResult(), false, 0);
+                case "ping" -> new Answer(objectMapper.createObjectNode(), false, 0);
+                case "tools/list" -> new Answer(toolsList(), false, 0);
+                case "tools/call" -> callTool(params);
+                default -> new Answer(error(objectMapper, -32601, "Method not found: " + method), true, 0);
+            };
+        }
+
+        private ObjectNode initializeResult() {
+            ObjectNode result = objectMapper.createObjectNode();
+            result.put("protocolVersion", "2024-11-05");
+            result.putObject("capabilities").putObject("tools");
+            result.putObject("serverInfo").put("name", "fake-mcp-server").put("version", "1.0.0");
+            return result;
+        }
+
+        private ObjectNode toolsList() {
+            ObjectNode result = objectMapper.createObjectNode();
+            ArrayNode list = result.putArray("tools");
+            scenario.path("tools").forEach(tool -> {
+                ObjectNode definition = list.addObject();
+                definition.put("name", tool.path("name").asText());
+                definition.put("description", tool.path("description").asText());
+                definition.set("inputSchema", tool.path("inputSchema"));
+            });
+            return result;
+        }
+
+        private Answer callTool(JsonNode params) {
+            JsonNode tool = tools.get(params.path("name").asText());
+            if (tool == null) {
+                return new Answer(error(objectMapper, -32602, "Unknown tool: " + params.path("name").asText()), true, 0);
+            }
+            ObjectNode result = objectMapper.createObjectNode();
+            result.putArray("content").addObject()
+                .put("type", "text")
+                .put("text", payload(tool.path("resultBytes").asInt(256)));
+            return new Answer(result, false, latency(tool.path("latency")));
+        }
+
+        private static String payload(int bytes) {
+            StringBuilder text = new StringBuilder(bytes);
+            while (text.length() < bytes) {
+                text.append("lorem ipsum dolor sit amet ");
+            }
+            text.setLength(bytes);
+            return text.toString();
+        }
+
+        static long latency(JsonNode latency) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (latency.path("type").asText("fixed")) {
+                case "uniform" -> random.nextLong(latency.path("minMs").asLong(), latency.path("maxMs").asLong() + 1);
+                case "lognormal" -> {
+                    double median = latency.path("medianMs").asDouble();
+                    double sigma = Math.log(latency.path("p99Ms").asDouble() / median) / Z_99;
+                    yield Math.round(median * Math.exp(sigma * random.nextGaussian()));
+                }
+                default -> latency.path("ms").asLong();
+            };
+        }
+    }
+
+    /**
+     * Answers from a recording: tools/call by tool name and arguments, all other methods by method.
+     */
+    static final class Replay implements Responder {
+
+        private final ObjectMapper objectMapper;
+        private final Map<RequestKey, Answer> answers;
+        private boolean withLatency = true;
+
+        private Replay(ObjectMapper objectMapper, Map<RequestKey, Answer> answers) {
+            this.objectMapper = objectMapper;
+            this.answers = answers;
+        }
+
+        static Replay load(ObjectMapper objectMapper, Path recording) throws IOException {
+            Map<JsonNode, JsonNode> requestsById = new HashMap<>();
+            Map<JsonNode, Long> requestTimes = new HashMap<>();
+            Map<RequestKey, Answer> answers = new HashMap<>();
+            for (String line : Files.readAllLines(recording, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode entry = objectMapper.readTree(line);
+                JsonNode message = entry.path("message");
+                List<JsonNode> messages = new ArrayList<>();
+                if (message.isArray()) {
+                    message.forEach(messages::add);
+                } else {
+                    messages.add(message);
+                }
+                for (JsonNode single : messages) {
+                    if (!single.has("id")) {
+                        continue;
+                    }
+                    if (McpRecordingProxy.CLIENT.equals(entry.path("from").asText())) {
+                        requestsById.put(single.get("id"), single);
+                        requestTimes.put(single.get("id"), entry.path("timeMs").asLong());
+                    } else {
+                        JsonNode request = requestsById.get(single.get("id"));
+                        if (request == null) {
+                            continue;
+                        }
+                        long latency = entry.path("timeMs").asLong() - requestTimes.get(single.get("id"));
+                        boolean error = single.has("error");
+                        answers.put(RequestKey.of(request.path("method").asText(), request.path("params")),
+                            new Answer(single.get(error ? "error" : "result"), error, Math.max(0, latency)));
+                    }
+                }
+            }
+            return new Replay(objectMapper, answers);
+        }
+
+        void skipLatency() {
+            withLatency = false;
+        }
+
+        @Override
+        public Answer answer(String method, JsonNode params) {
+            Answer answer = answers.get(RequestKey.of(method, params));
+            if (answer == null) {
+                return new Answer(error(objectMapper, -32602, "Not recorded: " + method + " " + params), true, 0);
+            }
+            return withLatency ? answer : new Answer(answer.body(), answer.error(), 0);
+        }
+
+        private record RequestKey(String method, JsonNode params) {
+
+            static RequestKey of(String method, JsonNode params) {
+                // Initialize carries client info and versions, only tool calls depend on their params
+                return new RequestKey(method, "tools/call".equals(method) ? params : null);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("FakeMcpServer Tests")
+class FakeMcpServerTest {
+
+    private StdioMcpClient mcpClient;
+
+    @AfterEach
+    void tearDown() {
+        if (mcpClient != null) {
+            mcpClient.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve the built-in scenario over stdio")
+    void shouldServeBuiltInScenario() throws Exception {
+        mcpClient = start(List.of(), true);
+
+        assertThat(mcpClient.listTools()).extracting(McpClient.McpTool::getName).containsExactly("echo", "search");
+        JsonNode result = mcpClient.callTool("echo", Map.of("query", "vienna"));
+        assertThat(result.path("content").get(0).path("text").asText()).hasSize(256);
+
+        List<JsonNode> batch = mcpClient.callTools(List.of(
+                new McpClient.ToolInvocation("echo", Map.of("query", "a")),
+                new McpClient.ToolInvocation("echo", Map.of("query", "b"))));
+        assertThat(batch).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should replay recorded responses and reject unrecorded calls")
+    void shouldReplayRecording() throws Exception {
+        Path recording = Path.of(getClass().getResource("/mcp/brave-search-recording.jsonl").toURI());
+        mcpClient = start(List.of("--replay=" + recording, "--fast"), false);
+
+        assertThat(mcpClient.listTools()).extracting(McpClient.McpTool::getName).containsExactly("brave_web_search");
+        JsonNode result = mcpClient.callTool("brave_web_search", Map.of("query", "weather vienna", "count", 2));
+        assertThat(result.path("content").get(0).path("text").asText()).startsWith("Title: Weather in Vienna");
+
+        assertThatThrownBy(() -> mcpClient.callTool("brave_web_search", Map.of("query", "weather graz")))
+                .hasMessageContaining("Not recorded");
+    }
+
+    @Test
+    @DisplayName("Should hand the progress of a call to the listener of the calling thread")
+    void shouldReportProgress() throws Exception {
+        mcpClient = start(List.of(), false);
+        List<String> progress = new CopyOnWriteArrayList<>();
+
+        McpProgress.withListener((done, total, message) -> progress.add(done + "/" + total + " " + message),
+                () -> mcpClient.callTool("search", Map.of("query", "vienna")));
+        mcpClient.callTool("search", Map.of("query", "graz"));
+
+        assertThat(progress).containsExactly("1.0/4.0 step 1", "2.0/4.0 step 2", "3.0/4.0 step 3");
+    }
+
+    @Test
+    @DisplayName("Should answer a ping request from the server")
+    void shouldAnswerServerPing() throws Exception {
+        mcpClient = start(List.of("--ping-client"), false);
+
+        JsonNode result = mcpClient.callTool("echo", Map.of("query", "vienna"));
+
+        assertThat(result.path("content").get(0).path("text").asText()).hasSize(256);
+    }
+
+    @Test
+    @DisplayName("Should serve the same tools over streamable HTTP, with progress on the event stream")
+    void shouldServeHttp() throws Exception {
+        List<String> progress = new CopyOnWriteArrayList<>();
+        try (McpRoundTripBenchmark.FakeHttpServer server = McpRoundTripBenchmark.FakeHttpServer.start(List.of())) {
+            HttpMcpClient client = server.client();
+            client.initialize();
+
+            assertThat(client.listTools()).extracting(McpClient.McpTool::getName).containsExactly("echo", "search");
+            JsonNode result = client.callTool("echo", Map.of("query", "vienna"));
+            assertThat(result.path("content").get(0).path("text").asText()).hasSize(256);
+            McpProgress.withListener((done, total, message) -> progress.add(done + "/" + total + " " + message),
+                    () -> client.callTool("search", Map.of("query", "vienna")));
+        }
+
+        assertThat(progress).containsExactly("1.0/4.0 step 1", "2.0/4.0 step 2", "3.0/4.0 step 3");
+    }
+
+    private StdioMcpClient start(List<String> serverArgs, boolean batchRequests) throws Exception {
+        StdioMcpClient client = McpRoundTripBenchmark.fakeServerClient(
+                serverArgs, batchRequests, new McpClientMetrics(new SimpleMeterRegistry()));
+        client.initialize();
+        return client;
+    }
+}
@@ -0,0 +1,218 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("HttpMcpClient Tests")
+class HttpMcpClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger notifications = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private HttpMcpClient mcpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/mcp", this::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        mcpClient = new HttpMcpClient(
+                "stub-server",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/mcp",
+                Map.of("Authorization", "Bearer test-token"),
+                HttpMcpClient.createHttpClient(),
+                Tracer.NOOP
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        mcpClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should not be connected initially")
+    void shouldNotBeConnectedInitially() {
+        assertThat(mcpClient.isConnected()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should initialize and list tools from an event stream response")
+    void shouldInitializeAndListTools() throws Exception {
+        mcpClient.initialize();
+
+        List<McpClient.McpTool> tools = mcpClient.listTools();
+
+        assertThat(mcpClient.isConnected()).isTrue();
+        assertThat(notifications.get()).isEqualTo(1);
+        assertThat(tools).extracting(McpClient.McpTool::getName).containsExactly("echo");
+    }
+
+    @Test
+    @DisplayName("Should call tool with session and auth headers")
+    void shouldCallToolWithSession() throws Exception {
+        mcpClient.initialize();
+
+        JsonNode result = mcpClient.callTool("echo", Map.of("text", "hello"));
+
+        assertThat(result.get("content").get(0).get("text").asText()).isEqualTo("hello");
+    }
+
+    @Test
+    @DisplayName("Should keep several tool calls in flight at once")
+    void shouldRunConcurrentToolCalls() throws Exception {
+        mcpClient.initialize();
+
+        List<CompletableFuture<JsonNode>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String text = "call-" + i;
+            calls.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return mcpClient.callTool("echo", Map.of("text", text, "delayMs", 200));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertThat(calls.get(i).get().get("content").get(0).get("text").asText()).isEqualTo("call-" + i);
+        }
+        assertThat(maxInFlight.get()).isGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("Should hand notifications on an event stream to listeners")
+    void shouldDispatchNotifications() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        mcpClient.addNotificationListener((serverName, method, params) -> received.add(serverName + " " + method));
+        mcpClient.initialize();
+
+        mcpClient.listTools();
+
+        assertThat(received).containsExactly("stub-server notifications/message");
+    }
+
+    @Test
+    @DisplayName("Should surface HTTP errors")
+    void shouldSurfaceHttpErrors() throws Exception {
+        mcpClient.initialize();
+
+        assertThatThrownBy(() -> mcpClient.callTool("missing", Map.of()))
+                .hasMessageContaining("HTTP 404");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if ("DELETE".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonNode message = objectMapper.readTree(exchange.getRequestBody());
+        if (!message.has("id")) {
+            notifications.incrementAndGet();
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+            return;
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", message.get("id"));
+
+        switch (message.get("method").asText()) {
+            case "initialize" -> {
+                response.putObject("result").put("protocolVersion", "2025-03-26");
+                exchange.getResponseHeaders().add("Mcp-Session-Id", "session-1");
+                writeJson(exchange, 200, response);
+            }
+            case "tools/list" -> {
+                ObjectNode tool = response.putObject("result").putArray("tools").addObject();
+                tool.put("name", "echo");
+                tool.put("description", "Echoes the text argument");
+                tool.putObject("inputSchema").put("type", "object");
+                writeEventStream(exchange, response);
+            }
+            case "tools/call" -> handleToolCall(exchange, message, response);
+            default -> writeJson(exchange, 400, response);
+        }
+    }
+
+    private void handleToolCall(HttpExchange exchange, JsonNode message, ObjectNode response) throws IOException {
+        boolean authorized = "session-1".equals(exchange.getRequestHeaders().getFirst("Mcp-Session-Id"))
+                && "Bearer test-token".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+        JsonNode params = message.get("params");
+        if (!authorized || !"echo".equals(params.get("name").asText())) {
+            writeJson(exchange, 404, response);
+            return;
+        }
+
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            Thread.sleep(params.get("arguments").path("delayMs").asLong(0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        response.putObject("result").putArray("content").addObject()
+                .put("type", "text")
+                .put("text", params.get("arguments").get("text").asText());
+        writeJson(exchange, 200, response);
+    }
+
+    private void writeJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        write(exchange, status, objectMapper.writeValueAsBytes(body));
+    }
+
+    private void writeEventStream(HttpExchange exchange, JsonNode body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        String events = "event: message\ndata: {\"jsonrpc\":\"2.0\",\"method\":\"notifications/message\"}\n\n"
+                + "event: message\ndata: " + objectMapper.writeValueAsString(body) + "\n\n";
+        write(exchange, 200, events.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
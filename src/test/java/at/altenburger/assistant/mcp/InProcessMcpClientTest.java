@@ -0,0 +1,84 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.mcp.tools.DateTimeTools;
+import at.altenburger.assistant.mcp.tools.UnitConversionTools;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("InProcessMcpClient Tests")
+class InProcessMcpClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private InProcessMcpClient mcpClient;
+
+    @BeforeEach
+    void setUp() {
+        mcpClient = new InProcessMcpClient("local-tools",
+                List.of(new DateTimeTools("Europe/Vienna"), new UnitConversionTools()));
+        mcpClient.initialize();
+    }
+
+    @Test
+    @DisplayName("Should list annotated methods as tools with generated schemas")
+    void shouldListTools() {
+        List<McpClient.McpTool> tools = mcpClient.listTools();
+
+        assertThat(tools).extracting(McpClient.McpTool::getName)
+                .containsExactlyInAnyOrder("get_current_datetime", "days_between", "convert_units");
+
+        McpClient.McpTool convert = tools.stream()
+                .filter(tool -> tool.getName().equals("convert_units"))
+                .findFirst()
+                .orElseThrow();
+        JsonNode schema = convert.getInputSchema();
+        assertThat(schema.get("properties").get("value").get("type").asText()).isEqualTo("number");
+        assertThat(schema.get("properties").has("from_unit")).isTrue();
+        assertThat(schema.get("required")).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should invoke tool method and return text content")
+    void shouldCallTool() throws Exception {
+        JsonNode result = mcpClient.callTool("convert_units", Map.of("value", 100, "from_unit", "c", "to_unit", "f"));
+
+        JsonNode conversion = objectMapper.readTree(result.get("content").get(0).get("text").asText());
+        assertThat(conversion.get("value").asDouble()).isCloseTo(212.0, within(0.0001));
+        assertThat(result.has("isError")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should accept missing optional arguments")
+    void shouldAcceptMissingOptionalArguments() throws Exception {
+        JsonNode result = mcpClient.callTool("get_current_datetime", Map.of());
+
+        assertThat(result.get("content").get(0).get("text").asText()).contains("Europe/Vienna");
+    }
+
+    @Test
+    @DisplayName("Should report tool exceptions as error results")
+    void shouldReportToolErrors() throws Exception {
+        JsonNode result = mcpClient.callTool("convert_units", Map.of("value", 1, "from_unit", "kg", "to_unit", "m"));
+
+        assertThat(result.get("isError").asBoolean()).isTrue();
+        assertThat(result.get("content").get(0).get("text").asText()).contains("Cannot convert");
+    }
+
+    @Test
+    @DisplayName("Should reject missing required arguments")
+    void shouldRejectMissingRequiredArguments() {
+        assertThatThrownBy(() -> mcpClient.callTool("days_between", Map.of("start", "2025-01-01")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("end");
+    }
+}
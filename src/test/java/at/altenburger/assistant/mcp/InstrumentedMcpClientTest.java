@@ -0,0 +1,99 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InstrumentedMcpClient Tests")
+class InstrumentedMcpClientTest {
+
+    @Mock
+    private McpClient delegate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private InstrumentedMcpClient client;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        client = new InstrumentedMcpClient("brave-search", delegate, new McpClientMetrics(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("Should time tool calls per tool and outcome")
+    void shouldTimeToolCalls() throws Exception {
+        when(delegate.callTool("brave_web_search", Map.of("query", "vienna")))
+                .thenReturn(objectMapper.readTree("{\"content\":[]}"))
+                .thenReturn(objectMapper.readTree("{\"content\":[],\"isError\":true}"));
+
+        client.callTool("brave_web_search", Map.of("query", "vienna"));
+        client.callTool("brave_web_search", Map.of("query", "vienna"));
+
+        assertThat(timer("callTool", "brave_web_search", "success").count()).isEqualTo(1);
+        assertThat(timer("callTool", "brave_web_search", "tool_error").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should count tool calls in flight until they are answered")
+    void shouldCountCallsInFlight() throws Exception {
+        when(delegate.callTool("brave_web_search", Map.of("query", "vienna"))).thenAnswer(invocation -> {
+            assertThat(client.inFlightCalls()).isEqualTo(1);
+            throw new McpServerException("timeout");
+        });
+
+        assertThatThrownBy(() -> client.callTool("brave_web_search", Map.of("query", "vienna")))
+                .isInstanceOf(McpServerException.class);
+
+        assertThat(client.inFlightCalls()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should record failed requests as errors")
+    void shouldRecordErrors() throws Exception {
+        when(delegate.listTools()).thenThrow(new McpServerException("timeout"));
+
+        assertThatThrownBy(() -> client.listTools()).isInstanceOf(McpServerException.class);
+
+        assertThat(timer("listTools", McpClientMetrics.NO_TOOL, "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should record every invocation of a batch")
+    void shouldRecordBatchInvocations() throws Exception {
+        List<McpClient.ToolInvocation> invocations = List.of(
+                new McpClient.ToolInvocation("brave_web_search", Map.of()),
+                new McpClient.ToolInvocation("brave_local_search", Map.of()));
+        when(delegate.callTools(invocations)).thenReturn(List.of(
+                objectMapper.readTree("{\"content\":[]}"), objectMapper.readTree("{\"content\":[]}")));
+
+        client.callTools(invocations);
+
+        assertThat(timer("callTool", "brave_web_search", "success").count()).isEqualTo(1);
+        assertThat(timer("callTool", "brave_local_search", "success").count()).isEqualTo(1);
+    }
+
+    private Timer timer(String operation, String tool, String outcome) {
+        return meterRegistry.get("mcp.client.requests")
+                .tag("server", "brave-search")
+                .tag("operation", operation)
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
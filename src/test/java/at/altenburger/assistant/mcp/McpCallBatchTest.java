@@ -0,0 +1,100 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("McpCallBatch Tests")
+class McpCallBatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final McpClient client = mock(McpClient.class);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should send the calls of all members as one batch and hand each member its result")
+    void shouldSendMembersAsOneBatch() throws Exception {
+        JsonNode kitchen = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"kitchen on\"}]}");
+        JsonNode hall = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"hall off\"}]}");
+        when(client.callTools(anyList())).thenAnswer(invocation -> {
+            List<McpClient.ToolInvocation> invocations = invocation.getArgument(0);
+            return invocations.stream()
+                    .map(call -> call.parameters().get("entity").equals("light.kitchen") ? kitchen : hall)
+                    .toList();
+        });
+        McpCallBatch batch = new McpCallBatch("home-assistant", 3);
+
+        CompletableFuture<JsonNode> first = member(batch, "light.kitchen");
+        CompletableFuture<JsonNode> second = member(batch, "light.hall");
+        // Answered without the server, e.g. from the cache
+        CompletableFuture.runAsync(() -> batch.run(() -> null), executor).get(5, TimeUnit.SECONDS);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(kitchen);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(hall);
+        verify(client).callTools(anyList());
+        verify(client, never()).callTool(any(String.class), any(JsonNode.class));
+    }
+
+    @Test
+    @DisplayName("Should fail every member of a batch that failed")
+    void shouldFailAllMembers() throws Exception {
+        when(client.callTools(anyList())).thenThrow(new McpServerException("MCP server closed the connection"));
+        McpCallBatch batch = new McpCallBatch("home-assistant", 2);
+
+        CompletableFuture<JsonNode> first = member(batch, "light.kitchen");
+        CompletableFuture<JsonNode> second = member(batch, "light.hall");
+
+        assertThat(first).failsWithin(5, TimeUnit.SECONDS).withThrowableThat()
+                .havingRootCause().isInstanceOf(McpServerException.class);
+        assertThat(second).failsWithin(5, TimeUnit.SECONDS).withThrowableThat()
+                .havingRootCause().isInstanceOf(McpServerException.class);
+    }
+
+    @Test
+    @DisplayName("Should call other servers directly from inside a batch")
+    void shouldCallOtherServersDirectly() throws Exception {
+        JsonNode result = objectMapper.readTree("{\"content\":[]}");
+        when(client.callTool(any(String.class), any(JsonNode.class))).thenReturn(result);
+        McpCallBatch batch = new McpCallBatch("home-assistant", 2);
+
+        JsonNode direct = batch.run(() -> call("brave-search", "light.kitchen"));
+
+        assertThat(direct).isEqualTo(result);
+        verify(client, never()).callTools(anyList());
+    }
+
+    private CompletableFuture<JsonNode> member(McpCallBatch batch, String entity) {
+        return CompletableFuture.supplyAsync(() -> batch.run(() -> call("home-assistant", entity)), executor);
+    }
+
+    private JsonNode call(String serverName, String entity) {
+        try {
+            return McpCallBatch.callTool(client, serverName, "turn_on",
+                    objectMapper.createObjectNode().put("entity", entity));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("McpDiscoveryService Tests")
+class McpDiscoveryServiceTest {
+
+    private McpServerConfig.McpServer server;
+    private McpDiscoveryService discoveryService;
+
+    @BeforeEach
+    void setUp() {
+        server = fakeServer();
+        McpServerConfig config = new McpServerConfig();
+        config.setServers(List.of(server));
+
+        discoveryService = new McpDiscoveryService(config, Tracer.NOOP, mock(ApplicationContext.class),
+                new McpToolRegistry(config), new McpClientMetrics(new SimpleMeterRegistry()),
+                McpPayloadCapture.disabled());
+        discoveryService.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        discoveryService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should keep the current configuration, process and guard when a reconfiguration fails")
+    void shouldKeepServerWhenReconfigurationFails() throws Exception {
+        StdioMcpClient process = discoveryService.getProcess("fake");
+        McpServerGuard guard = discoveryService.getServerGuards().get("fake");
+        McpServerConfig.McpServer broken = fakeServer();
+        broken.setCommand("/nonexistent/mcp-server");
+
+        McpServerStatus status = discoveryService.addServer(broken).get(30, TimeUnit.SECONDS);
+
+        assertThat(status.state()).isEqualTo(McpServerStatus.State.FAILED);
+        assertThat(discoveryService.getServerConfigs().get("fake")).isSameAs(server);
+        assertThat(discoveryService.getProcess("fake")).isSameAs(process);
+        assertThat(discoveryService.getServerGuards().get("fake")).isSameAs(guard);
+        assertThat(discoveryService.getClient("fake").listTools()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Should switch to the new configuration and guard once the new client has taken over")
+    void shouldCommitReconfiguration() throws Exception {
+        StdioMcpClient process = discoveryService.getProcess("fake");
+        McpServerGuard guard = discoveryService.getServerGuards().get("fake");
+        McpServerConfig.McpServer reconfigured = fakeServer();
+        reconfigured.getBulkhead().setMaxConcurrentCalls(2);
+
+        McpServerStatus status = discoveryService.addServer(reconfigured).get(30, TimeUnit.SECONDS);
+
+        assertThat(status.state()).isEqualTo(McpServerStatus.State.READY);
+        assertThat(discoveryService.getServerConfigs().get("fake")).isSameAs(reconfigured);
+        assertThat(discoveryService.getProcess("fake")).isNotSameAs(process);
+        assertThat(discoveryService.getServerGuards().get("fake")).isNotSameAs(guard);
+    }
+
+    @Test
+    @DisplayName("Should keep the current client and its tools when a restart fails to relaunch the server")
+    void shouldKeepServerWhenRestartFails() throws Exception {
+        McpClient client = discoveryService.getClient("fake");
+        StdioMcpClient process = discoveryService.getProcess("fake");
+        int toolCount = discoveryService.getAllTools().get("fake").size();
+        server.setCommand("/nonexistent/mcp-server");
+
+        McpServerStatus status = discoveryService.restartServer("fake", "did not answer a ping")
+                .get(30, TimeUnit.SECONDS);
+
+        assertThat(status.state()).isEqualTo(McpServerStatus.State.DEGRADED);
+        assertThat(status.error()).startsWith("did not answer a ping, restart failed");
+        assertThat(discoveryService.getServerStatus().get("fake")).isEqualTo(status);
+        assertThat(discoveryService.getClient("fake")).isSameAs(client);
+        assertThat(discoveryService.getProcess("fake")).isSameAs(process);
+        assertThat(discoveryService.getAllTools().get("fake")).hasSize(toolCount);
+
+        // Not stuck in the replacement, so the next restart goes ahead
+        server.setCommand(fakeServer().getCommand());
+        status = discoveryService.restartServer("fake", "did not answer a ping").get(30, TimeUnit.SECONDS);
+
+        assertThat(status.state()).isEqualTo(McpServerStatus.State.READY);
+        assertThat(discoveryService.getClient("fake")).isNotSameAs(client);
+    }
+
+    private static McpServerConfig.McpServer fakeServer() {
+        McpServerConfig.McpServer fake = new McpServerConfig.McpServer();
+        fake.setName("fake");
+        fake.setType("stdio");
+        fake.setCommand(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        fake.setArgs(List.of("-cp", System.getProperty("java.class.path"), FakeMcpServer.class.getName()));
+        fake.getLiveness().setEnabled(false);
+        return fake;
+    }
+}
@@ -0,0 +1,125 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("McpLivenessMonitor Tests")
+class McpLivenessMonitorTest {
+
+    @Mock
+    private McpDiscoveryService mcpDiscoveryService;
+
+    @Mock
+    private McpClient mcpClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private McpLivenessMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName("brave-search");
+        server.setType("stdio");
+
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new McpLivenessMonitor(mcpDiscoveryService, meterRegistry);
+        lenient().when(mcpDiscoveryService.getServerConfigs()).thenReturn(Map.of("brave-search", server));
+        when(mcpDiscoveryService.getClient("brave-search")).thenReturn(mcpClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should ping an idle server and record the round trip")
+    void shouldPingIdleServer() throws Exception {
+        when(mcpClient.idleTime()).thenReturn(Duration.ofMinutes(1));
+
+        monitor.check("brave-search");
+
+        verify(mcpClient).ping(any(Duration.class));
+        assertThat(meterRegistry.get("mcp.client.ping").tag("outcome", "success").timer().count()).isEqualTo(1);
+        verify(mcpDiscoveryService, never()).restartServer(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should not ping a server that had traffic recently")
+    void shouldNotPingBusyServer() throws Exception {
+        when(mcpClient.idleTime()).thenReturn(Duration.ofSeconds(1));
+
+        monitor.check("brave-search");
+
+        verify(mcpClient, never()).ping(any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should follow the settings of a server reconfigured at runtime")
+    void shouldFollowReconfiguredServer() throws Exception {
+        McpServerConfig.McpServer reconfigured = new McpServerConfig.McpServer();
+        reconfigured.setName("brave-search");
+        reconfigured.setType("stdio");
+        reconfigured.getLiveness().setEnabled(false);
+        when(mcpDiscoveryService.getServerConfigs()).thenReturn(Map.of("brave-search", reconfigured));
+
+        monitor.check("brave-search");
+
+        verify(mcpClient, never()).ping(any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Should restart a server after consecutive failed pings")
+    void shouldRestartAfterFailedPings() throws Exception {
+        when(mcpClient.idleTime()).thenReturn(Duration.ofMinutes(1));
+        doThrow(new TimeoutException()).when(mcpClient).ping(any(Duration.class));
+
+        monitor.check("brave-search");
+        monitor.check("brave-search");
+        verify(mcpDiscoveryService, never()).restartServer(anyString(), anyString());
+
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService).restartServer(eq("brave-search"), startsWith("3 pings in a row failed"));
+        assertThat(meterRegistry.get("mcp.client.ping").tag("outcome", "failure").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("mcp.server.restarts").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should start counting again after a ping was answered")
+    void shouldResetAfterAnsweredPing() throws Exception {
+        when(mcpClient.idleTime()).thenReturn(Duration.ofMinutes(1));
+        doThrow(new TimeoutException()).doThrow(new TimeoutException()).doNothing()
+                .doThrow(new TimeoutException()).doThrow(new TimeoutException())
+                .when(mcpClient).ping(any(Duration.class));
+
+        for (int i = 0; i < 5; i++) {
+            monitor.check("brave-search");
+        }
+
+        verify(mcpDiscoveryService, never()).restartServer(anyString(), anyString());
+    }
+}
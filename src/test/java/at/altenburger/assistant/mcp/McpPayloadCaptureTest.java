@@ -0,0 +1,75 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.tracing.Span;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("McpPayloadCapture Tests")
+class McpPayloadCaptureTest {
+
+    private McpServerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new McpServerConfig();
+    }
+
+    @Test
+    @DisplayName("Should not render payloads when capture is off")
+    void shouldNotRenderWhenOff() {
+        Span span = mock(Span.class);
+        Object payload = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("rendered");
+            }
+        };
+
+        McpPayloadCapture.Call call = new McpPayloadCapture(config).start();
+        call.tag(span, "mcp.params", payload);
+
+        assertThat(call.isCaptured()).isFalse();
+        assertThat(call.lazy(payload)).hasToString("[not captured]");
+        verify(span, never()).tag(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should cut captured payloads at the size cap")
+    void shouldCapPayloads() {
+        config.getPayloadCapture().setMode(McpServerConfig.CaptureMode.CAPPED);
+        config.getPayloadCapture().setMaxSize(DataSize.ofBytes(20));
+        Span span = mock(Span.class);
+
+        McpPayloadCapture.Call call = new McpPayloadCapture(config).start();
+        call.tag(span, "mcp.params", Map.of("query", "weather in vienna tomorrow"));
+
+        assertThat(call.isCaptured()).isTrue();
+        verify(span).tag(eq("mcp.params"), eq("{\"query\":\"weather in… [truncated]"));
+        assertThat(call.lazy(Map.of("unit", "km"))).hasToString("{\"unit\":\"km\"}");
+    }
+
+    @Test
+    @DisplayName("Should capture no call at a sample rate of zero and every call at one")
+    void shouldSampleCalls() {
+        config.getPayloadCapture().setMode(McpServerConfig.CaptureMode.SAMPLED);
+        McpPayloadCapture capture = new McpPayloadCapture(config);
+
+        config.getPayloadCapture().setSampleRate(0);
+        assertThat(capture.start().isCaptured()).isFalse();
+
+        config.getPayloadCapture().setSampleRate(1);
+        assertThat(capture.start().isCaptured()).isTrue();
+    }
+}
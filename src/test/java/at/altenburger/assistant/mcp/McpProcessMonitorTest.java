@@ -0,0 +1,158 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("McpProcessMonitor Tests")
+class McpProcessMonitorTest {
+
+    @Mock
+    private McpDiscoveryService mcpDiscoveryService;
+
+    @Mock
+    private StdioMcpClient process;
+
+    private McpServerConfig.McpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private McpProcessMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        server = new McpServerConfig.McpServer();
+        server.setName("brave-search");
+        server.setType("stdio");
+        McpServerConfig config = new McpServerConfig();
+        config.setServers(List.of(server));
+
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new McpProcessMonitor(config, mcpDiscoveryService, meterRegistry);
+        lenient().when(mcpDiscoveryService.getServerConfigs()).thenReturn(Map.of("brave-search", server));
+        lenient().when(mcpDiscoveryService.getProcess("brave-search")).thenReturn(process);
+        lenient().when(process.getUptime()).thenReturn(Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should leave a process alone while it is within its limits")
+    void shouldKeepProcessWithinLimits() {
+        server.getRecycle().setMaxCalls(100);
+        server.getRecycle().setMaxRss(DataSize.ofMegabytes(512));
+        when(process.sampleUsage()).thenReturn(new ProcessUsage(Duration.ofSeconds(2), 100L * 1024 * 1024, 2));
+        when(process.getToolCalls()).thenReturn(10L);
+
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService, never()).recycleServer(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should recycle a process that outgrew its memory limit")
+    void shouldRecycleOnRss() {
+        server.getRecycle().setMaxRss(DataSize.ofMegabytes(512));
+        when(process.sampleUsage())
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(2), 100L * 1024 * 1024, 2))
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(3), 600L * 1024 * 1024, 2));
+
+        monitor.check("brave-search");
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService).recycleServer(eq("brave-search"), startsWith("rss"));
+        assertThat(meterRegistry.get("mcp.process.recycles").tag("reason", "rss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not check the memory limit while a process is warming up")
+    void shouldSkipRssDuringWarmup() {
+        server.getRecycle().setMaxRss(DataSize.ofMegabytes(512));
+        when(process.getUptime()).thenReturn(Duration.ofSeconds(30));
+        when(process.sampleUsage()).thenReturn(new ProcessUsage(Duration.ofSeconds(2), 600L * 1024 * 1024, 2));
+
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService, never()).recycleServer(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should not apply a memory limit that a warmed up process already exceeds")
+    void shouldIgnoreRssLimitBelowBaseline() {
+        server.getRecycle().setMaxRss(DataSize.ofMegabytes(512));
+        when(process.sampleUsage())
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(2), 600L * 1024 * 1024, 2))
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(3), 700L * 1024 * 1024, 2));
+
+        monitor.check("brave-search");
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService, never()).recycleServer(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should recycle a process after its maximum number of calls and age")
+    void shouldRecycleOnCallsAndAge() {
+        server.getRecycle().setMaxCalls(100);
+        when(process.sampleUsage()).thenReturn(new ProcessUsage(Duration.ofSeconds(2), 0, 1));
+        when(process.getToolCalls()).thenReturn(100L);
+
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService).recycleServer(eq("brave-search"), startsWith("calls"));
+
+        server.getRecycle().setMaxCalls(0);
+        server.getRecycle().setMaxAge(Duration.ofMinutes(1));
+
+        monitor.check("brave-search");
+
+        verify(mcpDiscoveryService).recycleServer(eq("brave-search"), startsWith("age"));
+    }
+
+    @Test
+    @DisplayName("Should report the CPU used between two samples")
+    void shouldReportCpuUsage() throws Exception {
+        when(process.sampleUsage())
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(2), 0, 1))
+            .thenReturn(new ProcessUsage(Duration.ofSeconds(60), 0, 1));
+        monitor.start();
+
+        monitor.check("brave-search");
+        Thread.sleep(20);
+        monitor.check("brave-search");
+
+        assertThat(meterRegistry.get("mcp.process.cpu.time").gauge().value()).isEqualTo(60.0);
+        assertThat(meterRegistry.get("mcp.process.cpu.usage").gauge().value()).isGreaterThan(1.0);
+    }
+
+    @Test
+    @DisplayName("Should measure the current JVM as a process tree")
+    void shouldMeasureProcessTree() {
+        ProcessUsage usage = ProcessUsage.of(ProcessHandle.current());
+
+        assertThat(usage.processes()).isGreaterThanOrEqualTo(1);
+        assertThat(usage.cpuTime()).isPositive();
+    }
+}
@@ -0,0 +1,98 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("McpProgress Tests")
+class McpProgressTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should ask for progress under the request id")
+    void shouldAttachProgressToken() {
+        ObjectNode request = McpProtocol.toolCallRequest(objectMapper, 42, "search", objectMapper.createObjectNode());
+
+        McpProgress.requestProgress(request, 42);
+
+        assertThat(request.path("params").path("_meta").path("progressToken").asLong()).isEqualTo(42);
+        assertThat(request.path("params").path("name").asText()).isEqualTo("search");
+    }
+
+    @Test
+    @DisplayName("Should hand progress to the listener of its token only")
+    void shouldDispatchByToken() throws Exception {
+        List<String> received = new ArrayList<>();
+        Map<Long, McpProgress.Listener> listeners = Map.of(
+                7L, (progress, total, message) -> received.add(progress + "/" + total + " " + message));
+
+        JsonNode withTotal = objectMapper.readTree("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\","
+                + "\"params\":{\"progressToken\":7,\"progress\":3,\"total\":10,\"message\":\"searching\"}}");
+        JsonNode withoutTotal = objectMapper.readTree("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\","
+                + "\"params\":{\"progressToken\":7,\"progress\":5}}");
+        JsonNode otherToken = objectMapper.readTree("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/progress\","
+                + "\"params\":{\"progressToken\":8,\"progress\":1}}");
+        JsonNode otherNotification = objectMapper.readTree(
+                "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}");
+
+        assertThat(McpProgress.dispatch("fake", withTotal, listeners)).isTrue();
+        assertThat(McpProgress.dispatch("fake", withoutTotal, listeners)).isTrue();
+        assertThat(McpProgress.dispatch("fake", otherToken, listeners)).isFalse();
+        assertThat(McpProgress.dispatch("fake", otherNotification, listeners)).isFalse();
+        assertThat(received).containsExactly("3.0/10.0 searching", "5.0/null null");
+    }
+
+    @Test
+    @DisplayName("Should register the listener under the request id only while the request is in flight")
+    void shouldSendWithProgress() throws Exception {
+        Map<Long, McpProgress.Listener> listeners = new HashMap<>();
+        McpProgress.Listener listener = (progress, total, message) -> { };
+        ObjectNode request = McpProtocol.toolCallRequest(objectMapper, 42, "search", objectMapper.createObjectNode());
+
+        McpProgress.Listener inFlight = McpProgress.withListener(listener, () -> {
+            McpProgress.Listener[] registered = new McpProgress.Listener[1];
+            McpProgress.sendWithProgress(request, listeners, () -> {
+                registered[0] = listeners.get(42L);
+                return objectMapper.createObjectNode();
+            });
+            return registered[0];
+        });
+
+        assertThat(inFlight).isSameAs(listener);
+        assertThat(listeners).isEmpty();
+        assertThat(request.path("params").path("_meta").path("progressToken").asLong()).isEqualTo(42);
+    }
+
+    @Test
+    @DisplayName("Should leave requests without a listener untouched")
+    void shouldSendWithoutProgress() throws Exception {
+        Map<Long, McpProgress.Listener> listeners = new HashMap<>();
+        ObjectNode request = McpProtocol.toolCallRequest(objectMapper, 42, "search", objectMapper.createObjectNode());
+
+        McpProgress.sendWithProgress(request, listeners, () -> objectMapper.createObjectNode());
+
+        assertThat(request.path("params").has("_meta")).isFalse();
+        assertThat(listeners).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should only set the listener for the duration of the call")
+    void shouldScopeListenerToCall() throws Exception {
+        McpProgress.Listener listener = (progress, total, message) -> { };
+
+        McpProgress.Listener during = McpProgress.withListener(listener, McpProgress::current);
+
+        assertThat(during).isSameAs(listener);
+        assertThat(McpProgress.current()).isNull();
+    }
+}
@@ -0,0 +1,100 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sits between the assistant and a real stdio MCP server and records every JSON-RPC message to a
+ * JSON lines file, for replay with {@link FakeMcpServer}. Configure it as the server's command:
+ * <pre>
+ * assistant.mcp.servers[0].command=java
+ * assistant.mcp.servers[0].args=-cp,build/classes/java/test:...,at.altenburger.assistant.mcp.McpRecordingProxy,\
+ *     brave-search.jsonl,npx,-y,@modelcontextprotocol/server-brave-search
+ * </pre>
+ * Each line holds the sender ({@code client} or {@code server}), the milliseconds since start
+ * and the message. Recordings contain real tool results - review them before checking them in.
+ */
+public class McpRecordingProxy {
+
+    static final String CLIENT = "client";
+    static final String SERVER = "server";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferedWriter recording;
+    private final long startNanos = System.nanoTime();
+
+    McpRecordingProxy(BufferedWriter recording) {
+        this.recording = recording;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: McpRecordingProxy <recording.jsonl> <command> [args...]");
+            System.exit(2);
+        }
+        List<String> command = Arrays.asList(args).subList(1, args.length);
+        Process server = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+
+        try (BufferedWriter recording = Files.newBufferedWriter(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            McpRecordingProxy proxy = new McpRecordingProxy(recording);
+            Thread requests = Thread.ofPlatform().daemon().start(
+                () -> proxy.pump(System.in, server.getOutputStream(), CLIENT));
+            proxy.pump(server.getInputStream(), System.out, SERVER);
+            requests.interrupt();
+        } finally {
+            server.destroy();
+        }
+    }
+
+    /**
+     * Forward lines unchanged and record each of them.
+     */
+    void pump(InputStream from, OutputStream to, String sender) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(from, StandardCharsets.UTF_8))) {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(to, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(line);
+                out.newLine();
+                out.flush();
+                record(sender, line);
+            }
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Recording proxy stopped forwarding " + sender + " messages: " + e.getMessage());
+        }
+    }
+
+    private synchronized void record(String sender, String line) throws IOException {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(line);
+        } catch (IOException e) {
+            // Not JSON-RPC, e.g. a server printing to stdout - forwarded but not recorded
+            return;
+        }
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("from", sender);
+        entry.put("timeMs", (System.nanoTime() - startNanos) / 1_000_000);
+        entry.set("message", message);
+        recording.write(objectMapper.writeValueAsString(entry));
+        recording.newLine();
+        recording.flush();
+    }
+}
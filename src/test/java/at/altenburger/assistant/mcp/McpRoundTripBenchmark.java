@@ -0,0 +1,207 @@
+package at.altenburger.assistant.mcp;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency of {@link StdioMcpClient} or {@link HttpMcpClient} against
+ * {@link FakeMcpServer} in a child JVM, offline.
+ * Run with {@code ./gradlew mcpBenchmark -Pargs="--concurrency=32 --duration=30s"}.
+ * <ul>
+ *   <li>{@code --transport=stdio|http} how the client talks to the fake server (default stdio)</li>
+ *   <li>{@code --concurrency=N} callers issuing calls back to back (default 16)</li>
+ *   <li>{@code --duration=30s}, {@code --warmup=5s} measured and discarded run time</li>
+ *   <li>{@code --tool=name} tool to call (default echo)</li>
+ *   <li>{@code --batch=N} send N calls per request as a JSON-RPC batch (stdio only)</li>
+ *   <li>{@code --scenario=file}, {@code --replay=file}, {@code --fast} passed on to the fake server</li>
+ * </ul>
+ * Prints calls per second, round-trip percentiles and, for stdio, the outbox wait of the client.
+ */
+public class McpRoundTripBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // StdioMcpClient logs every call at debug, which would dominate the measurement
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.WARN);
+        }
+
+        String transport = "stdio";
+        int concurrency = 16;
+        int batch = 0;
+        Duration duration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(5);
+        String tool = "echo";
+        List<String> serverArgs = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--transport=")) {
+                transport = value;
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(value);
+            } else if (arg.startsWith("--batch=")) {
+                batch = Integer.parseInt(value);
+            } else if (arg.startsWith("--duration=")) {
+                duration = Duration.parse("PT" + value.toUpperCase());
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Duration.parse("PT" + value.toUpperCase());
+            } else if (arg.startsWith("--tool=")) {
+                tool = value;
+            } else {
+                serverArgs.add(arg);
+            }
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        McpClientMetrics metrics = new McpClientMetrics(meterRegistry);
+        FakeHttpServer httpServer = null;
+        McpClient client;
+        if ("http".equals(transport)) {
+            if (batch > 0) {
+                throw new IllegalArgumentException("--batch needs --transport=stdio");
+            }
+            httpServer = FakeHttpServer.start(serverArgs);
+            client = httpServer.client();
+        } else {
+            client = fakeServerClient(serverArgs, batch > 0, metrics);
+        }
+        client.initialize();
+        try {
+            System.out.printf("Warming up for %s ...%n", warmup);
+            run(client, tool, concurrency, batch, warmup, null);
+
+            Timer roundTrips = Timer.builder("benchmark.round.trip")
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                .register(meterRegistry);
+            System.out.printf("Measuring %s over %s with %d callers%s ...%n",
+                duration, transport, concurrency, batch > 0 ? ", batches of " + batch : "");
+            long calls = run(client, tool, concurrency, batch, duration, roundTrips);
+
+            System.out.printf("calls:       %d (%.0f/s)%n", calls, calls / (duration.toMillis() / 1000.0));
+            for (ValueAtPercentile percentile : roundTrips.takeSnapshot().percentileValues()) {
+                System.out.printf("p%-10s %.3f ms%n", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+            }
+            Timer outboxWait = meterRegistry.find("mcp.client.queue.wait").tag("stage", "outbox").timer();
+            if (outboxWait != null) {
+                System.out.printf("outbox wait: mean %.3f ms, max %.3f ms%n",
+                    outboxWait.mean(TimeUnit.MILLISECONDS), outboxWait.max(TimeUnit.MILLISECONDS));
+            }
+        } finally {
+            client.close();
+            if (httpServer != null) {
+                httpServer.close();
+            }
+        }
+    }
+
+    /**
+     * A client whose server is the fake server in a child JVM on the current classpath.
+     */
+    static StdioMcpClient fakeServerClient(List<String> serverArgs, boolean batchRequests, McpClientMetrics metrics) {
+        List<String> args = new ArrayList<>();
+        args.add("-cp");
+        args.add(System.getProperty("java.class.path"));
+        args.add(FakeMcpServer.class.getName());
+        args.addAll(serverArgs);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new StdioMcpClient("fake", java, args, Map.of(), Tracer.NOOP, batchRequests,
+            metrics, McpPayloadCapture.disabled());
+    }
+
+    private static long run(McpClient client, String tool, int concurrency, int batch,
+                            Duration duration, Timer roundTrips) {
+        AtomicLong calls = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<McpClient.ToolInvocation> invocations = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, batch); i++) {
+            invocations.add(new McpClient.ToolInvocation(tool, Map.of("query", "benchmark " + i)));
+        }
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                callers.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            if (batch > 0) {
+                                client.callTools(invocations);
+                            } else {
+                                client.callTool(tool, invocations.get(0).parameters());
+                            }
+                        } catch (Exception e) {
+                            System.err.println("Call failed: " + e.getMessage());
+                            continue;
+                        }
+                        if (roundTrips != null) {
+                            roundTrips.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        calls.addAndGet(invocations.size());
+                    }
+                });
+            }
+        }
+        return calls.get();
+    }
+
+    /**
+     * The fake server in a child JVM serving streamable HTTP, with a client for it.
+     */
+    record FakeHttpServer(Process process, HttpMcpClient client) implements AutoCloseable {
+
+        static FakeHttpServer start(List<String> serverArgs) throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(FakeMcpServer.class.getName());
+            command.add("--http");
+            command.addAll(serverArgs);
+            Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+            // The server announces its endpoint on the first line
+            String url = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))
+                .readLine();
+            if (url == null) {
+                process.destroy();
+                throw new IOException("Fake MCP server exited before listening");
+            }
+            return new FakeHttpServer(process, new HttpMcpClient("fake", url, Map.of(),
+                HttpMcpClient.createHttpClient(), Tracer.NOOP));
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+            // Closing stdin stops the server
+            process.getOutputStream().close();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
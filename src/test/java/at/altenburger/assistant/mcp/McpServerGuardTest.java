@@ -0,0 +1,173 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.core.exception.McpServerException;
+import at.altenburger.assistant.core.exception.McpServerUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("McpServerGuard Tests")
+class McpServerGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    private McpServerConfig.CircuitBreaker breakerSettings;
+    private McpCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        breakerSettings = new McpServerConfig.CircuitBreaker();
+        breakerSettings.setSlidingWindowSize(10);
+        breakerSettings.setMinimumCalls(4);
+        breakerSettings.setFailureRateThreshold(50);
+        breakerSettings.setSlowCallDuration(Duration.ofSeconds(1));
+        breakerSettings.setOpenDuration(Duration.ofSeconds(30));
+        breakerSettings.setHalfOpenCalls(2);
+        circuitBreaker = new McpCircuitBreaker("home-assistant", breakerSettings, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should open when the failure rate reaches the threshold")
+    void shouldOpenOnFailures() {
+        record(false, false, true, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(McpCircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should open when calls are slow")
+    void shouldOpenOnSlowCalls() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(circuitBreaker.tryAcquire()).isTrue();
+            circuitBreaker.onResult(Duration.ofSeconds(2).toNanos(), false);
+        }
+
+        assertThat(circuitBreaker.getState()).isEqualTo(McpCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Should probe after the open duration and close when probes succeed")
+    void shouldCloseAfterSuccessfulProbes() {
+        record(true, true, true, true);
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(McpCircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        assertThat(circuitBreaker.tryAcquire()).isFalse();
+
+        circuitBreaker.onResult(0, false);
+        circuitBreaker.onResult(0, false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(McpCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("Should open again when a probe fails")
+    void shouldReopenOnFailedProbe() {
+        record(true, true, true, true);
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThat(circuitBreaker.tryAcquire()).isTrue();
+        circuitBreaker.onResult(0, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(McpCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    @DisplayName("Should reject calls immediately while the circuit is open")
+    void shouldRejectWhenOpen() throws Exception {
+        McpClientMetrics metrics = new McpClientMetrics(meterRegistry);
+        McpServerGuard guard = new McpServerGuard("brave-search", breakerSettings,
+                new McpServerConfig.Bulkhead(), metrics);
+        metrics.registerGuard("brave-search", guard);
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.call(() -> {
+                throw new McpServerException("timeout");
+            })).isInstanceOf(McpServerException.class);
+        }
+
+        assertThatThrownBy(() -> guard.call(() -> "never called"))
+                .isInstanceOf(McpServerUnavailableException.class)
+                .hasMessageContaining("circuit open");
+        assertThat(guard.getRejectedCalls()).isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.calls.rejected").tag("reason", "circuit_open").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.circuit.state").gauge().value())
+                .isEqualTo(McpCircuitBreaker.State.OPEN.ordinal());
+    }
+
+    @Test
+    @DisplayName("Should report the state of the guard that replaced an earlier one")
+    void shouldReplaceGuardGauges() throws Exception {
+        McpClientMetrics metrics = new McpClientMetrics(meterRegistry);
+        McpServerGuard previous = new McpServerGuard("brave-search", breakerSettings,
+                new McpServerConfig.Bulkhead(), metrics);
+        metrics.registerGuard("brave-search", previous);
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> previous.call(() -> {
+                throw new McpServerException("timeout");
+            })).isInstanceOf(McpServerException.class);
+        }
+
+        metrics.registerGuard("brave-search", new McpServerGuard("brave-search", breakerSettings,
+                new McpServerConfig.Bulkhead(), metrics));
+
+        assertThat(meterRegistry.find("mcp.circuit.state").gauges()).hasSize(1);
+        assertThat(meterRegistry.get("mcp.circuit.state").gauge().value())
+                .isEqualTo(McpCircuitBreaker.State.CLOSED.ordinal());
+    }
+
+    @Test
+    @DisplayName("Should reject calls when the bulkhead and its queue are full")
+    void shouldRejectWhenBulkheadFull() throws Exception {
+        McpServerConfig.Bulkhead bulkhead = new McpServerConfig.Bulkhead();
+        bulkhead.setMaxConcurrentCalls(1);
+        bulkhead.setMaxQueuedCalls(0);
+        McpServerGuard guard = new McpServerGuard("brave-search", breakerSettings, bulkhead,
+                new McpClientMetrics(meterRegistry));
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> guard.call(() -> {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "done";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> guard.call(() -> "rejected"))
+                    .isInstanceOf(McpServerUnavailableException.class);
+            assertThat(guard.getActiveCalls()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertThat(meterRegistry.get("mcp.calls.rejected").tag("reason", "bulkhead_full").counter().count())
+                .isEqualTo(1);
+    }
+
+    private void record(boolean... failures) {
+        for (boolean failure : failures) {
+            assertThat(circuitBreaker.tryAcquire()).isTrue();
+            circuitBreaker.onResult(0, failure);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("McpServersEndpoint Tests")
+class McpServersEndpointTest {
+
+    @Mock
+    private McpDiscoveryService mcpDiscoveryService;
+
+    private McpServerConfig config;
+    private MockEnvironment environment;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment()
+                .withProperty("assistant.mcp.servers[0].name", "fetch")
+                .withProperty("assistant.mcp.servers[0].type", "stdio")
+                .withProperty("assistant.mcp.servers[0].command", "uvx")
+                .withProperty("assistant.mcp.servers[0].args[0]", "mcp-server-fetch")
+                .withProperty("assistant.mcp.servers[0].enabled", "false");
+        McpServerConfig.McpServer fetch = new McpServerConfig.McpServer();
+        fetch.setName("fetch");
+        fetch.setType("stdio");
+        config = new McpServerConfig();
+        config.setServers(List.of(fetch));
+    }
+
+    private McpServersEndpoint endpoint() {
+        return new McpServersEndpoint(config, mcpDiscoveryService, environment);
+    }
+
+    @Test
+    @DisplayName("Should start a configured server with the given settings and report its tools")
+    void shouldConfigureServer() {
+        McpServerConfig.McpServer running = new McpServerConfig.McpServer();
+        running.setType("stdio");
+        when(mcpDiscoveryService.addServer(any())).thenReturn(
+                CompletableFuture.completedFuture(McpServerStatus.ready("fetch", 2, 850)));
+        when(mcpDiscoveryService.getServerConfigs()).thenReturn(Map.of("fetch", running));
+
+        WebEndpointResponse<Object> response = endpoint().configureServer("fetch", Map.of(
+                "bulkhead.max-concurrent-calls", "2",
+                "tools[fetch].cache", "ttl",
+                "tools[fetch].ttl", "5m"));
+
+        ArgumentCaptor<McpServerConfig.McpServer> serverConfig = ArgumentCaptor.forClass(McpServerConfig.McpServer.class);
+        verify(mcpDiscoveryService).addServer(serverConfig.capture());
+        assertThat(serverConfig.getValue()).isNotSameAs(config.getServers().get(0));
+        assertThat(serverConfig.getValue().isEnabled()).isTrue();
+        assertThat(serverConfig.getValue().getCommand()).isEqualTo("uvx");
+        assertThat(serverConfig.getValue().getArgs()).containsExactly("mcp-server-fetch");
+        assertThat(serverConfig.getValue().getBulkhead().getMaxConcurrentCalls()).isEqualTo(2);
+        assertThat(serverConfig.getValue().getToolPolicy("fetch").getTtl()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        assertThat(response.getBody()).isEqualTo(new McpServersEndpoint.ServerReport(
+                "stdio", McpServerStatus.State.READY, 2, 850, 0, null));
+    }
+
+    @Test
+    @DisplayName("Should not let a write change what a server launches")
+    void shouldRejectLaunchSettings() {
+        for (String setting : List.of("command", "args[0]", "env.PATH", "url", "headers.Authorization", "type", "name")) {
+            WebEndpointResponse<Object> response = endpoint().configureServer("fetch", Map.of(setting, "sh"));
+
+            assertThat(response.getStatus()).as(setting).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        verify(mcpDiscoveryService, never()).addServer(any());
+    }
+
+    @Test
+    @DisplayName("Should reject a ttl cache without a ttl")
+    void shouldRejectTtlCacheWithoutTtl() {
+        WebEndpointResponse<Object> response = endpoint().configureServer("fetch", Map.of("tools[fetch].cache", "ttl"));
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_BAD_REQUEST);
+        assertThat(response.getBody()).isEqualTo(Map.of("error",
+                "Tool fetch of MCP server fetch is cached with cache=ttl but has no positive ttl"));
+        verify(mcpDiscoveryService, never()).addServer(any());
+    }
+
+    @Test
+    @DisplayName("Should only start servers that are configured")
+    void shouldRejectUnknownServer() {
+        WebEndpointResponse<Object> response = endpoint().configureServer("shell", null);
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+        verify(mcpDiscoveryService, never()).addServer(any());
+    }
+
+    @Test
+    @DisplayName("Should answer 202 while a server is still starting after the startup timeout")
+    void shouldAcceptSlowServer() {
+        config.setStartupTimeout(Duration.ofMillis(10));
+        when(mcpDiscoveryService.addServer(any())).thenReturn(new CompletableFuture<>());
+
+        WebEndpointResponse<Object> response = endpoint().configureServer("fetch", null);
+
+        assertThat(response.getStatus()).isEqualTo(202);
+    }
+
+    @Test
+    @DisplayName("Should reject a reconfiguration while the server is still starting")
+    void shouldRejectConcurrentChange() {
+        when(mcpDiscoveryService.addServer(any())).thenThrow(new IllegalStateException("MCP server fetch is still starting"));
+
+        WebEndpointResponse<Object> response = endpoint().configureServer("fetch", null);
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getBody()).isEqualTo(Map.of("error", "MCP server fetch is still starting"));
+    }
+
+    @Test
+    @DisplayName("Should report configured servers that are not running as stopped")
+    void shouldReportStoppedServers() {
+        McpServersEndpoint.ServerReport stopped = new McpServersEndpoint.ServerReport(
+                "stdio", McpServerStatus.State.STOPPED, 0, 0, 0, null);
+
+        assertThat(endpoint().servers()).containsExactly(Map.entry("fetch", stopped));
+        assertThat(endpoint().server("fetch")).isEqualTo(stopped);
+        assertThat(endpoint().server("shell")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should stop a server and answer 404 for unknown ones")
+    void shouldStopServer() {
+        when(mcpDiscoveryService.removeServer("fetch")).thenReturn(true);
+
+        assertThat(endpoint().stopServer("fetch").getStatus())
+                .isEqualTo(WebEndpointResponse.STATUS_NO_CONTENT);
+        assertThat(endpoint().stopServer("unknown").getStatus())
+                .isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+}
@@ -0,0 +1,177 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("McpStateMirror Tests")
+class McpStateMirrorTest {
+
+    private static final McpToolKey LIVE_CONTEXT = McpToolKey.of("home-assistant", "GetLiveContext",
+            new ObjectMapper().createObjectNode());
+
+    @Mock
+    private McpDiscoveryService mcpDiscoveryService;
+
+    @Mock
+    private McpClient mcpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger liveCalls = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private McpServerConfig.StateMirror settings;
+    private McpStateMirror stateMirror;
+    private JsonNode state;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        settings = new McpServerConfig.StateMirror();
+        settings.setTools(List.of("GetLiveContext"));
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName("home-assistant");
+        server.setStateMirror(settings);
+
+        meterRegistry = new SimpleMeterRegistry();
+        stateMirror = new McpStateMirror(mcpDiscoveryService, meterRegistry);
+        when(mcpDiscoveryService.getServerConfigs()).thenReturn(Map.of("home-assistant", server));
+        state = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"light.kitchen: off\"}]}");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stateMirror.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should answer repeated state reads from the mirror")
+    void shouldServeReadsFromMirror() throws Exception {
+        assertThat(read()).isEqualTo(state);
+        assertThat(read()).isEqualTo(state);
+
+        assertThat(liveCalls).hasValue(1);
+        assertThat(reads("miss")).isEqualTo(1);
+        assertThat(reads("hit")).isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.state.mirror.staleness").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should fill the mirror in the background before the first read")
+    void shouldFillMirrorOnRefresh() throws Exception {
+        when(mcpDiscoveryService.getClient("home-assistant")).thenReturn(mcpClient);
+        when(mcpClient.callTool("GetLiveContext", (JsonNode) objectMapper.createObjectNode())).thenReturn(state);
+
+        stateMirror.refresh("home-assistant");
+
+        assertThat(read()).isEqualTo(state);
+        assertThat(liveCalls).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should read live after a state-changing call")
+    void shouldInvalidateOnWrite() throws Exception {
+        read();
+        stateMirror.invalidate("home-assistant");
+        read();
+
+        assertThat(liveCalls).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should not serve state older than the freshness bound")
+    void shouldNotServeStaleState() throws Exception {
+        settings.setMaxStaleness(Duration.ZERO);
+
+        read();
+        Thread.sleep(1);
+        read();
+
+        assertThat(liveCalls).hasValue(2);
+        assertThat(reads("stale")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should drop the least recently read calls beyond the entry limit")
+    void shouldCapMirroredCalls() throws Exception {
+        settings.setMaxEntries(2);
+
+        read(area("kitchen"));
+        Thread.sleep(1);
+        read(area("living room"));
+        Thread.sleep(1);
+        read(area("kitchen"));
+        Thread.sleep(1);
+        read(area("bedroom"));
+        read(area("kitchen"));
+        read(area("living room"));
+
+        assertThat(liveCalls).hasValue(4);
+        assertThat(reads("hit")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should stop refreshing calls that were not read within the freshness bound")
+    void shouldNotRefreshUnreadCalls() throws Exception {
+        settings.setMaxStaleness(Duration.ofMillis(200));
+        when(mcpDiscoveryService.getClient("home-assistant")).thenReturn(mcpClient);
+        when(mcpClient.callTool("GetLiveContext", (JsonNode) objectMapper.createObjectNode())).thenReturn(state);
+
+        read(area("kitchen"));
+        Thread.sleep(250);
+        stateMirror.refresh("home-assistant");
+        read(area("kitchen"));
+
+        verify(mcpClient, never()).callTool("GetLiveContext", area("kitchen"));
+        assertThat(liveCalls).hasValue(2);
+        assertThat(read()).isEqualTo(state);
+        assertThat(liveCalls).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should only mirror configured tools")
+    void shouldOnlyMirrorConfiguredTools() {
+        assertThat(stateMirror.isMirrored("home-assistant", "GetLiveContext")).isTrue();
+        assertThat(stateMirror.isMirrored("home-assistant", "HassTurnOn")).isFalse();
+        assertThat(stateMirror.isMirrored("brave-search", "GetLiveContext")).isFalse();
+    }
+
+    private JsonNode read() throws Exception {
+        return stateMirror.read(LIVE_CONTEXT, objectMapper.createObjectNode(), () -> {
+            liveCalls.incrementAndGet();
+            return state;
+        });
+    }
+
+    private JsonNode read(JsonNode arguments) throws Exception {
+        return stateMirror.read(McpToolKey.of("home-assistant", "GetLiveContext", arguments), arguments, () -> {
+            liveCalls.incrementAndGet();
+            return state;
+        });
+    }
+
+    private JsonNode area(String area) {
+        return objectMapper.createObjectNode().put("area", area);
+    }
+
+    private double reads(String result) {
+        return meterRegistry.get("mcp.state.mirror.reads").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,46 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.service.anonymization.AnonymizationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("McpToolCallbackProvider Tests")
+class McpToolCallbackProviderTest {
+
+    private final McpToolCallbackProvider provider = new McpToolCallbackProvider(mock(McpDiscoveryService.class),
+            mock(McpToolRegistry.class), mock(McpToolInvoker.class), mock(ToolResultReducer.class),
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        provider.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should leave nothing of the request on the thread once its context has been captured and cleared")
+    void shouldClearCapturedContext() {
+        AnonymizationResult anonymization = mock(AnonymizationResult.class);
+        Consumer<McpToolCallbackProvider.ToolEvent> listener = event -> { };
+        provider.setAnonymizationContext(anonymization);
+        provider.setToolEventListener(listener);
+
+        McpToolCallbackProvider.RequestContext captured = provider.captureContext();
+        provider.clearContext();
+        captured.toolCalls().add(new McpToolCallbackProvider.ToolCall("home-assistant", "GetLiveContext", 0, 12));
+
+        McpToolCallbackProvider.RequestContext current = provider.captureContext();
+        assertThat(current.anonymization()).isNull();
+        assertThat(current.toolEvents()).isNull();
+        assertThat(current.toolCalls()).isEmpty();
+        assertThat(captured.anonymization()).isSameAs(anonymization);
+        assertThat(captured.toolEvents()).isSameAs(listener);
+        assertThat(captured.toolCalls()).hasSize(1);
+    }
+}
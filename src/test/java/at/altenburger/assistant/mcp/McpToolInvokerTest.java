@@ -0,0 +1,153 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.CacheConfig;
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.config.ResponseCacheConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("McpToolInvoker Tests")
+class McpToolInvokerTest {
+
+    @Mock
+    private McpDiscoveryService mcpDiscoveryService;
+
+    @Mock
+    private McpClient mcpClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private McpToolInvoker toolInvoker;
+
+    @BeforeEach
+    void setUp() {
+        McpServerConfig.ToolPolicy searchPolicy = new McpServerConfig.ToolPolicy();
+        searchPolicy.setCache(McpServerConfig.CachePolicy.TTL);
+        searchPolicy.setTtl(Duration.ofMinutes(5));
+
+        McpServerConfig.ToolPolicy statePolicy = new McpServerConfig.ToolPolicy();
+        statePolicy.setReadOnly(true);
+
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName("search");
+        server.setTools(Map.of("web_search", searchPolicy, "get_state", statePolicy));
+
+        McpServerConfig config = new McpServerConfig();
+        config.setServers(List.of(server));
+
+        when(mcpDiscoveryService.getClient("search")).thenReturn(mcpClient);
+        lenient().when(mcpDiscoveryService.getToolPolicy(anyString(), anyString())).thenAnswer(invocation ->
+                config.getToolPolicy(invocation.getArgument(0), invocation.getArgument(1)));
+        toolInvoker = new McpToolInvoker(mcpDiscoveryService, new McpStateMirror(mcpDiscoveryService, meterRegistry),
+                new CacheConfig().cacheManager(new ResponseCacheConfig()), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated calls with equivalent arguments from cache")
+    void shouldCacheCacheableTools() throws Exception {
+        JsonNode result = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"sunny\"}]}");
+        when(mcpClient.callTool(eq("web_search"), any(JsonNode.class))).thenReturn(result);
+
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("query", "weather vienna");
+        first.put("count", 5);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("count", 5.0);
+        second.put("query", "weather vienna");
+
+        assertThat(toolInvoker.callTool("search", "web_search", first)).isEqualTo(result);
+        assertThat(toolInvoker.callTool("search", "web_search", second)).isEqualTo(result);
+
+        verify(mcpClient, times(1)).callTool(eq("web_search"), any(JsonNode.class));
+        assertThat(meterRegistry.get("mcp.tool.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.tool.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mcp.tool.cache.latency.saved").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should always call tools that are not cacheable")
+    void shouldNotCacheUnclassifiedTools() throws Exception {
+        JsonNode result = objectMapper.readTree("{\"content\":[]}");
+        when(mcpClient.callTool(eq("turn_on"), any(JsonNode.class))).thenReturn(result);
+
+        toolInvoker.callTool("search", "turn_on", Map.of("entity", "light.kitchen"));
+        toolInvoker.callTool("search", "turn_on", Map.of("entity", "light.kitchen"));
+
+        verify(mcpClient, times(2)).callTool(eq("turn_on"), any(JsonNode.class));
+    }
+
+    @Test
+    @DisplayName("Should not cache error results")
+    void shouldNotCacheErrors() throws Exception {
+        JsonNode error = objectMapper.readTree("{\"content\":[],\"isError\":true}");
+        when(mcpClient.callTool(eq("web_search"), any(JsonNode.class))).thenReturn(error);
+
+        toolInvoker.callTool("search", "web_search", Map.of("query", "x"));
+        toolInvoker.callTool("search", "web_search", Map.of("query", "x"));
+
+        verify(mcpClient, times(2)).callTool(eq("web_search"), any(JsonNode.class));
+    }
+
+    @Test
+    @DisplayName("Should coalesce concurrent identical calls to read-only tools")
+    void shouldCoalesceConcurrentReadOnlyCalls() throws Exception {
+        JsonNode result = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"on\"}]}");
+        CountDownLatch release = new CountDownLatch(1);
+        when(mcpClient.callTool(eq("get_state"), any(JsonNode.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return result;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<JsonNode> leader = executor.submit(() ->
+                    toolInvoker.callTool("search", "get_state", Map.of("entity", "light.kitchen")));
+            Future<JsonNode> follower = executor.submit(() ->
+                    toolInvoker.callTool("search", "get_state", Map.of("entity", "light.kitchen")));
+
+            // Release the leader once the follower has joined its call
+            long deadline = System.currentTimeMillis() + 5000;
+            while (meterRegistry.find("mcp.tool.coalesced").counter() == null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(result);
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(result);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(mcpClient, times(1)).callTool(eq("get_state"), any(JsonNode.class));
+        assertThat(meterRegistry.get("mcp.tool.coalesced").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,101 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("McpToolRegistry Tests")
+class McpToolRegistryTest {
+
+    private McpServerConfig config;
+    private McpToolRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        config = new McpServerConfig();
+        config.setServers(List.of(server("home-assistant"), server("brave-search")));
+        registry = new McpToolRegistry(config);
+    }
+
+    @Test
+    @DisplayName("Should find tools by name with precomputed definitions")
+    void shouldFindTools() {
+        registry.update("brave-search", List.of(tool("brave_web_search"), tool("brave_local_search")));
+
+        McpToolRegistry.RegisteredTool found = registry.find("brave_web_search");
+
+        assertThat(found.serverName()).isEqualTo("brave-search");
+        assertThat(found.toolDefinition().name()).isEqualTo("brave_web_search");
+        assertThat(found.toolDefinition().inputSchema()).contains("\"type\":\"object\"");
+        assertThat(registry.find("unknown")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should resolve collisions to the first server in configuration order")
+    void shouldResolveCollisionsByConfigurationOrder() {
+        registry.update("brave-search", List.of(tool("search")));
+        registry.update("home-assistant", List.of(tool("search")));
+
+        assertThat(registry.find("search").serverName()).isEqualTo("home-assistant");
+        assertThat(registry.getTools()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should namespace colliding tools when enabled")
+    void shouldNamespaceCollidingTools() {
+        config.setNamespaceCollidingTools(true);
+        registry.update("brave-search", List.of(tool("search"), tool("brave_web_search")));
+        registry.update("home-assistant", List.of(tool("search")));
+
+        assertThat(registry.getTools()).extracting(McpToolRegistry.RegisteredTool::exposedName)
+                .containsExactly("home-assistant__search", "brave-search__search", "brave_web_search");
+        assertThat(registry.find("brave-search__search").tool().getName()).isEqualTo("search");
+    }
+
+    @Test
+    @DisplayName("Should order tools by server and name, whatever order a server lists them in")
+    void shouldOrderToolsDeterministically() {
+        registry.update("brave-search", List.of(tool("brave_web_search"), tool("brave_local_search")));
+        registry.update("home-assistant", List.of(tool("HassTurnOn"), tool("HassLightSet")));
+        List<String> first = registry.getTools().stream().map(McpToolRegistry.RegisteredTool::exposedName).toList();
+
+        registry.update("brave-search", List.of(tool("brave_local_search"), tool("brave_web_search")));
+
+        assertThat(first).containsExactly("HassLightSet", "HassTurnOn", "brave_local_search", "brave_web_search");
+        assertThat(registry.getTools()).extracting(McpToolRegistry.RegisteredTool::exposedName)
+                .containsExactlyElementsOf(first);
+    }
+
+    @Test
+    @DisplayName("Should publish a new version on every change without touching old snapshots")
+    void shouldPublishNewSnapshots() {
+        registry.update("brave-search", List.of(tool("brave_web_search")));
+        long version = registry.getVersion();
+        var toolsBefore = registry.getTools();
+
+        registry.remove("brave-search");
+
+        assertThat(registry.getVersion()).isGreaterThan(version);
+        assertThat(registry.getTools()).isEmpty();
+        assertThat(toolsBefore).hasSize(1);
+        assertThat(registry.getToolsByServer()).isEmpty();
+    }
+
+    private static McpServerConfig.McpServer server(String name) {
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName(name);
+        return server;
+    }
+
+    private static McpClient.McpTool tool(String name) {
+        McpClient.McpTool tool = new McpClient.McpTool();
+        tool.setName(name);
+        tool.setDescription("Tool " + name);
+        return tool;
+    }
+}
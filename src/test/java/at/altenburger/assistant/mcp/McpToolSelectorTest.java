@@ -0,0 +1,176 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.ToolSelectionConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("McpToolSelector Tests")
+class McpToolSelectorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<ToolCallback> callbacks = List.of(
+            tool("HassTurnOn", "Turns on/opens a device or entity", "name", "area"),
+            tool("HassTurnOff", "Turns off/closes a device or entity", "name", "area"),
+            tool("HassLightSet", "Sets the brightness or color of a light", "name", "brightness"),
+            tool("GetLiveContext", "Provides real-time information about the current state of devices"),
+            tool("brave_web_search", "Performs a web search using the Brave Search API", "query", "count"),
+            tool("brave_local_search", "Searches for local businesses and places", "query"),
+            tool("get_current_datetime", "Get the current date and time", "timezone"),
+            tool("convert_units", "Convert a value between units", "value", "from_unit", "to_unit"));
+
+    private ToolSelectionConfig config;
+    private McpToolSelector selector;
+
+    @BeforeEach
+    void setUp() {
+        config = new ToolSelectionConfig();
+        config.setEnabled(true);
+        config.setTopK(2);
+        config.setPinnedTools(List.of("GetLiveContext", "get_current_datetime"));
+        selector = new McpToolSelector(config, new StaticListableBeanFactory().getBeanProvider(ToolScorer.class),
+                meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should attach the best matching tools plus pinned tools in original order")
+    void shouldSelectTopToolsAndPinned() {
+        List<ToolCallback> selected = selector.select("Set the brightness of the kitchen light", callbacks);
+
+        assertThat(selected).extracting(callback -> callback.getToolDefinition().name())
+                .contains("HassLightSet", "GetLiveContext", "get_current_datetime")
+                .hasSize(config.getTopK() + 2);
+        assertThat(meterRegistry.get("mcp.tool.selection.tokens.saved").summary().totalAmount()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should fill the top K when fewer tools match the query")
+    void shouldFillTopK() {
+        List<ToolCallback> selected = selector.select("Is the light in the living room still on?", callbacks);
+
+        assertThat(selected).extracting(callback -> callback.getToolDefinition().name())
+                .contains("GetLiveContext", "get_current_datetime")
+                .hasSize(config.getTopK() + 2);
+    }
+
+    @Test
+    @DisplayName("Should attach all tools when nothing matches the query")
+    void shouldAttachAllToolsWithoutMatch() {
+        List<ToolCallback> selected = selector.select("Wie spät ist es in Tokio?", callbacks);
+
+        assertThat(selected).isSameAs(callbacks);
+        assertThat(meterRegistry.get("mcp.tool.selection.requests").tag("outcome", "no-match").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should attach all tools when selection is disabled")
+    void shouldAttachAllToolsWhenDisabled() {
+        config.setEnabled(false);
+
+        assertThat(selector.select("search the web", callbacks)).isSameAs(callbacks);
+    }
+
+    @Test
+    @DisplayName("Should send the same prompt prefix for different queries while selection is disabled")
+    void shouldKeepPromptPrefixStable() throws Exception {
+        config.setEnabled(false);
+
+        String first = promptPrefix(selector.select("Turn on the kitchen light", callbacks));
+        String second = promptPrefix(selector.select("Search the web for the opening hours of the Albertina", callbacks));
+
+        assertThat(second).isEqualTo(first);
+
+        config.setEnabled(true);
+        assertThat(promptPrefix(selector.select("Search the web for the opening hours of the Albertina", callbacks)))
+                .as("selection trades the cached prefix for fewer tools")
+                .isNotEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Should attach the tool that answers each query of the evaluation set")
+    void shouldRecallAnsweringTools() {
+        // Query and the tool that answers it, run against the full tool list
+        Map<String, String> evaluationSet = new LinkedHashMap<>();
+        evaluationSet.put("Turn on the kitchen light", "HassTurnOn");
+        evaluationSet.put("Switch off the TV in the living room", "HassTurnOff");
+        evaluationSet.put("Dim the bedroom light to 30%", "HassLightSet");
+        evaluationSet.put("Is it warm in the living room?", "GetLiveContext");
+        evaluationSet.put("Are any windows open?", "GetLiveContext");
+        evaluationSet.put("Search the web for the opening hours of the Albertina", "brave_web_search");
+        evaluationSet.put("Find a pizza place nearby", "brave_local_search");
+        evaluationSet.put("What day is it today?", "get_current_datetime");
+        evaluationSet.put("Convert 3 meters to feet", "convert_units");
+
+        List<String> missed = evaluationSet.entrySet().stream()
+                .filter(entry -> selector.select(entry.getKey(), callbacks).stream()
+                        .noneMatch(callback -> callback.getToolDefinition().name().equals(entry.getValue())))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        assertThat(missed).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should split camel and snake case names into terms")
+    void shouldTokenizeNames() {
+        assertThat(Bm25ToolScorer.tokenize("HassLightSet brave_web_search lights"))
+                .containsExactly("hass", "light", "set", "brave", "web", "search", "light");
+    }
+
+    /**
+     * The part of a request before the conversation: system prompt and tools, in OpenAI's request form.
+     */
+    private static String promptPrefix(List<ToolCallback> tools) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode request = objectMapper.createObjectNode();
+        request.putArray("messages").addObject()
+                .put("role", "system")
+                .put("content", "You are a helpful home assistant.");
+        ArrayNode array = request.putArray("tools");
+        for (ToolCallback tool : tools) {
+            ObjectNode function = array.addObject().put("type", "function").putObject("function");
+            function.put("name", tool.getToolDefinition().name());
+            function.put("description", tool.getToolDefinition().description());
+            function.set("parameters", objectMapper.readTree(tool.getToolDefinition().inputSchema()));
+        }
+        return objectMapper.writeValueAsString(request);
+    }
+
+    private static ToolCallback tool(String name, String description, String... parameters) {
+        StringBuilder schema = new StringBuilder("{\"type\":\"object\",\"properties\":{");
+        for (int i = 0; i < parameters.length; i++) {
+            schema.append(i > 0 ? "," : "").append('"').append(parameters[i]).append("\":{\"type\":\"string\"}");
+        }
+        schema.append("}}");
+        ToolDefinition definition = ToolDefinition.builder()
+                .name(name)
+                .description(description)
+                .inputSchema(schema.toString())
+                .build();
+        return new ToolCallback() {
+            @Override
+            public ToolDefinition getToolDefinition() {
+                return definition;
+            }
+
+            @Override
+            public String call(String toolInput) {
+                return "{}";
+            }
+        };
+    }
+}
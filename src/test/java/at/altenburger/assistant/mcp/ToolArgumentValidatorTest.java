@@ -0,0 +1,88 @@
+package at.altenburger.assistant.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ToolArgumentValidator Tests")
+class ToolArgumentValidatorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ToolArgumentValidator compile(String schema) throws Exception {
+        return ToolArgumentValidator.compile(objectMapper.readTree(schema));
+    }
+
+    @Test
+    @DisplayName("Should accept arguments that match the schema")
+    void shouldAcceptValidArguments() throws Exception {
+        ToolArgumentValidator validator = compile("{\"type\":\"object\",\"properties\":{"
+                + "\"area\":{\"type\":\"string\",\"minLength\":1},"
+                + "\"brightness\":{\"type\":\"integer\",\"minimum\":0,\"maximum\":100},"
+                + "\"mode\":{\"enum\":[\"on\",\"off\"]}},"
+                + "\"required\":[\"area\"],\"additionalProperties\":false}");
+
+        assertThat(validator.validate(objectMapper.readTree(
+                "{\"area\":\"Wohnzimmer\",\"brightness\":80.0,\"mode\":\"on\"}"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should report every violation with the path of the offending value")
+    void shouldReportViolationsWithPaths() throws Exception {
+        ToolArgumentValidator validator = compile("{\"type\":\"object\",\"properties\":{"
+                + "\"brightness\":{\"type\":\"integer\",\"maximum\":100},"
+                + "\"mode\":{\"enum\":[\"on\",\"off\"]},"
+                + "\"targets\":{\"type\":\"array\",\"items\":{\"type\":\"string\"}}},"
+                + "\"required\":[\"area\"],\"additionalProperties\":false}");
+
+        assertThat(validator.validate(objectMapper.readTree(
+                "{\"brightness\":150,\"mode\":\"dim\",\"targets\":[\"lamp\",3],\"colour\":\"red\"}")))
+                .containsExactlyInAnyOrder(
+                        "arguments.area: required property is missing",
+                        "arguments.brightness: must be <= 100",
+                        "arguments.mode: must be one of [\"on\",\"off\"]",
+                        "arguments.targets[1]: expected string, got integer",
+                        "arguments.colour: unknown property, allowed are brightness, mode, targets");
+    }
+
+    @Test
+    @DisplayName("Should follow local references, including recursive ones")
+    void shouldFollowReferences() throws Exception {
+        ToolArgumentValidator validator = compile("{\"type\":\"object\",\"properties\":{"
+                + "\"filter\":{\"$ref\":\"#/$defs/filter\"}},"
+                + "\"$defs\":{\"filter\":{\"type\":\"object\",\"properties\":{"
+                + "\"field\":{\"type\":\"string\"},"
+                + "\"and\":{\"type\":\"array\",\"items\":{\"$ref\":\"#/$defs/filter\"}}}}}}");
+
+        assertThat(validator.validate(objectMapper.readTree(
+                "{\"filter\":{\"field\":\"name\",\"and\":[{\"field\":\"size\"}]}}"))).isEmpty();
+        assertThat(validator.validate(objectMapper.readTree(
+                "{\"filter\":{\"and\":[{\"field\":42}]}}")))
+                .containsExactly("arguments.filter.and[0].field: expected string, got integer");
+    }
+
+    @Test
+    @DisplayName("Should check anyOf and oneOf alternatives")
+    void shouldCheckAlternatives() throws Exception {
+        ToolArgumentValidator validator = compile("{\"type\":\"object\",\"properties\":{"
+                + "\"when\":{\"anyOf\":[{\"type\":\"string\"},{\"type\":\"integer\"}]},"
+                + "\"count\":{\"oneOf\":[{\"type\":\"integer\"},{\"type\":\"number\"}]}}}");
+
+        assertThat(validator.validate(objectMapper.readTree("{\"when\":\"now\",\"count\":1.5}"))).isEmpty();
+        assertThat(validator.validate(objectMapper.readTree("{\"when\":true,\"count\":2}")))
+                .containsExactly(
+                        "arguments.when: does not match any of the allowed schemas",
+                        "arguments.count: matches more than one of the allowed schemas");
+    }
+
+    @Test
+    @DisplayName("Should accept anything when the schema is missing or uses keywords it does not know")
+    void shouldBePermissiveWithoutSchema() throws Exception {
+        assertThat(ToolArgumentValidator.compile(null).validate(objectMapper.readTree("{\"any\":1}"))).isEmpty();
+        assertThat(compile("{\"type\":\"object\",\"properties\":{\"url\":{\"type\":\"string\",\"format\":\"uri\","
+                + "\"pattern\":\"(?<!invalid\"}}}").validate(objectMapper.readTree("{\"url\":\"not a uri\"}")))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,47 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.core.exception.McpServerException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ToolArguments Tests")
+class ToolArgumentsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should map string values at every depth and keep everything else")
+    void shouldMapStringValues() throws Exception {
+        String json = "{\"area\":\"[ROOM_1]\",\"brightness\":80,\"on\":true,\"color\":null,"
+                + "\"targets\":[\"[ROOM_1]\",{\"name\":\"[ROOM_1] lamp\",\"ratio\":0.5}],\"[ROOM_1]\":12345678901}";
+
+        JsonNode arguments = ToolArguments.parse(objectMapper, json, text -> text.replace("[ROOM_1]", "Wohnzimmer"));
+
+        assertThat(arguments).isEqualTo(objectMapper.readTree(
+                "{\"area\":\"Wohnzimmer\",\"brightness\":80,\"on\":true,\"color\":null,"
+                        + "\"targets\":[\"Wohnzimmer\",{\"name\":\"Wohnzimmer lamp\",\"ratio\":0.5}],\"[ROOM_1]\":12345678901}"));
+    }
+
+    @Test
+    @DisplayName("Should read blank input as no arguments")
+    void shouldReadBlankInputAsEmpty() throws Exception {
+        assertThat(ToolArguments.parse(objectMapper, " ", UnaryOperator.identity())).isEmpty();
+        assertThat(ToolArguments.parse(objectMapper, "{}", UnaryOperator.identity())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject arguments that are not a single JSON object")
+    void shouldRejectNonObjects() {
+        assertThatThrownBy(() -> ToolArguments.parse(objectMapper, "[1,2]", UnaryOperator.identity()))
+                .isInstanceOf(McpServerException.class);
+        assertThatThrownBy(() -> ToolArguments.parse(objectMapper, "{} {}", UnaryOperator.identity()))
+                .isInstanceOf(McpServerException.class);
+    }
+}
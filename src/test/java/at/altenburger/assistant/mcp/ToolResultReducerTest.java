@@ -0,0 +1,147 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ToolResultReducer Tests")
+class ToolResultReducerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private McpServerConfig.ToolPolicy statesPolicy;
+    private ToolResultReducer reducer;
+
+    @BeforeEach
+    void setUp() {
+        statesPolicy = new McpServerConfig.ToolPolicy();
+        statesPolicy.setMaxResultSize(DataSize.ofKilobytes(2));
+
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName("home-assistant");
+        server.setTools(Map.of("get_states", statesPolicy));
+
+        McpServerConfig config = new McpServerConfig();
+        config.setServers(List.of(server));
+        McpDiscoveryService mcpDiscoveryService = mock(McpDiscoveryService.class);
+        when(mcpDiscoveryService.getToolPolicy(anyString(), anyString())).thenAnswer(invocation ->
+                config.getToolPolicy(invocation.getArgument(0), invocation.getArgument(1)));
+        reducer = new ToolResultReducer(mcpDiscoveryService, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should return small results unchanged")
+    void shouldKeepSmallResults() throws Exception {
+        JsonNode result = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":\"on\"}]}");
+
+        assertThat(reducer.reduce("home-assistant", "get_states", result)).isEqualTo(result.toString());
+    }
+
+    @Test
+    @DisplayName("Should reduce JSON text content structurally to the byte budget")
+    void shouldReduceJsonTextContent() throws Exception {
+        ArrayNode states = objectMapper.createArrayNode();
+        for (int i = 0; i < 200; i++) {
+            ObjectNode state = states.addObject();
+            state.put("entity_id", "light.room_" + i);
+            state.put("state", "on");
+            state.putNull("context");
+            state.putObject("attributes").put("friendly_name", "Room " + i + " ceiling light");
+        }
+        ObjectNode result = objectMapper.createObjectNode();
+        result.putArray("content").addObject().put("type", "text").put("text", states.toString());
+
+        String reduced = reducer.reduce("home-assistant", "get_states", result);
+
+        assertThat(reduced.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(2048);
+        JsonNode text = objectMapper.readTree(objectMapper.readTree(reduced).get("content").get(0).get("text").asText());
+        assertThat(text.get(0).get("entity_id").asText()).isEqualTo("light.room_0");
+        assertThat(text.get(0).has("context")).isFalse();
+        assertThat(text.get(text.size() - 1).asText()).endsWith("more items");
+        assertThat(meterRegistry.get("mcp.tool.result.size").tag("stage", "original").summary().totalAmount())
+                .isGreaterThan(meterRegistry.get("mcp.tool.result.size").tag("stage", "reduced").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should cut long plain text at a line boundary")
+    void shouldCutPlainText() {
+        String line = "Title: Weather in Vienna\nDescription: Sunny with a light breeze all day long\n";
+        ObjectNode result = objectMapper.createObjectNode();
+        result.putArray("content").addObject().put("type", "text").put("text", line.repeat(100));
+
+        String reduced = reducer.reduce("home-assistant", "get_states", result);
+
+        String text = objectMapper.readTree(reduced).get("content").get(0).get("text").asText();
+        assertThat(reduced.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(2048);
+        assertThat(text).contains("all day long\n…").endsWith("more chars]");
+    }
+
+    @Test
+    @DisplayName("Should cut multi-byte plain text to the byte budget without splitting characters")
+    void shouldCutMultiByteText() throws Exception {
+        String text = "Grüße aus Österreich, \"über\" alle Straßen 🚲\n".repeat(200);
+        ObjectNode result = objectMapper.createObjectNode();
+        result.putArray("content").addObject().put("type", "text").put("text", text);
+
+        String reduced = reducer.reduce("home-assistant", "get_states", result);
+
+        assertThat(reduced.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(2048);
+        String cut = objectMapper.readTree(reduced).get("content").get(0).get("text").asText();
+        assertThat(text).startsWith(cut.substring(0, cut.indexOf("\n…")));
+        assertThat(cut).endsWith("more chars]");
+    }
+
+    @Test
+    @DisplayName("Should truncate results that do not fit even the tightest reduction step")
+    void shouldTruncateResultsOverBudget() throws Exception {
+        ObjectNode sensors = objectMapper.createObjectNode();
+        for (int i = 0; i < 500; i++) {
+            sensors.put("sensor.temperature_" + i, "21." + i + " °C");
+        }
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("isError", false);
+        result.putArray("content").addObject().put("type", "text").put("text", sensors.toString());
+
+        String reduced = reducer.reduce("home-assistant", "get_states", result);
+
+        assertThat(reduced.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(2048);
+        JsonNode content = objectMapper.readTree(reduced).get("content");
+        assertThat(content).hasSize(1);
+        assertThat(content.get(0).get("text").asText())
+                .startsWith("{\"sensor.temperature_0\":\"21.0 °C\"")
+                .endsWith("… [truncated to 2048 bytes]");
+    }
+
+    @Test
+    @DisplayName("Should always apply configured array and string limits")
+    void shouldApplyConfiguredLimits() throws Exception {
+        statesPolicy.setMaxArrayItems(2);
+        statesPolicy.setMaxStringLength(5);
+        JsonNode result = objectMapper.readTree("{\"content\":[{\"type\":\"text\",\"text\":"
+                + "\"[\\\"kitchen\\\",\\\"hall\\\",\\\"bath\\\"]\"}]}");
+
+        String reduced = reducer.reduce("home-assistant", "get_states", result);
+
+        JsonNode text = objectMapper.readTree(objectMapper.readTree(reduced).get("content").get(0).get("text").asText());
+        assertThat(text.get(0).asText()).startsWith("kitch").contains("more chars");
+        assertThat(text.get(1).asText()).isEqualTo("hall");
+        assertThat(text.get(2).asText()).isEqualTo("… 1 more items");
+    }
+}
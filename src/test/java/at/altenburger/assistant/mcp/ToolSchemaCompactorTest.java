@@ -0,0 +1,124 @@
+package at.altenburger.assistant.mcp;
+
+import at.altenburger.assistant.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ToolSchemaCompactor Tests")
+class ToolSchemaCompactorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final McpServerConfig.SchemaCompaction settings = new McpServerConfig.SchemaCompaction();
+    private final ToolSchemaCompactor compactor = new ToolSchemaCompactor(settings);
+
+    @Test
+    @DisplayName("Should drop non-essential keywords but keep properties with keyword names")
+    void shouldDropNonEssentialKeywords() throws Exception {
+        JsonNode schema = objectMapper.readTree("""
+                {"$schema":"http://json-schema.org/draft-07/schema#","type":"object","title":"Args",
+                 "properties":{
+                   "title":{"type":"string","title":"Title","default":"x","examples":["a"]},
+                   "count":{"type":"integer","default":10}
+                 },
+                 "required":["title"]}
+                """);
+
+        JsonNode compacted = compactor.compactSchema(schema);
+
+        assertThat(compacted.has("$schema")).isFalse();
+        assertThat(compacted.has("title")).isFalse();
+        assertThat(compacted.get("properties").has("title")).isTrue();
+        assertThat(compacted.get("properties").get("title").toString()).isEqualTo("{\"type\":\"string\"}");
+        assertThat(compacted.get("properties").get("count").has("default")).isFalse();
+        assertThat(compacted.get("required").get(0).asText()).isEqualTo("title");
+    }
+
+    @Test
+    @DisplayName("Should trim long descriptions to the token budget")
+    void shouldTrimDescriptions() {
+        settings.setMaxDescriptionTokens(8);
+
+        String description = compactor.compactDescription(
+                "Searches the web.   Returns   results with titles, snippets and URLs for every result found.");
+
+        assertThat(description).isEqualTo("Searches the web.");
+        assertThat(description.length()).isLessThanOrEqualTo(8 * ToolSchemaCompactor.CHARS_PER_TOKEN);
+    }
+
+    @Test
+    @DisplayName("Should move repeated subschemas into shared definitions")
+    void shouldExtractSharedSchemas() throws Exception {
+        String address = """
+                {"type":"object","properties":{
+                  "street":{"type":"string","description":"Street name and house number of the address"},
+                  "city":{"type":"string","description":"City or municipality of the address"},
+                  "zip":{"type":"string","description":"Postal code of the address, digits only"}}}
+                """;
+        JsonNode schema = objectMapper.readTree("{\"type\":\"object\",\"properties\":{\"from\":" + address
+                + ",\"to\":" + address + "}}");
+
+        JsonNode compacted = compactor.compactSchema(schema);
+
+        assertThat(compacted.get("properties").get("from").get("$ref").asText()).isEqualTo("#/$defs/shared1");
+        assertThat(compacted.get("properties").get("to").get("$ref").asText()).isEqualTo("#/$defs/shared1");
+        assertThat(compacted.get("$defs").get("shared1").get("properties").has("street")).isTrue();
+        assertThat(compacted.toString().length()).isLessThan(schema.toString().length());
+    }
+
+    @Test
+    @DisplayName("Should merge identical definitions and drop unused ones")
+    void shouldMergeAndDropDefinitions() throws Exception {
+        JsonNode schema = objectMapper.readTree("""
+                {"type":"object",
+                 "properties":{"a":{"$ref":"#/$defs/Color"},"b":{"$ref":"#/$defs/Colour"}},
+                 "$defs":{
+                   "Color":{"type":"string","enum":["red","green"]},
+                   "Colour":{"type":"string","enum":["red","green"]},
+                   "Unused":{"type":"number"}}}
+                """);
+
+        JsonNode compacted = compactor.compactSchema(schema);
+
+        assertThat(compacted.get("$defs").size()).isEqualTo(1);
+        assertThat(compacted.get("properties").get("b").get("$ref").asText()).isEqualTo("#/$defs/Color");
+    }
+
+    @Test
+    @DisplayName("Should keep and merge definitions that refs point into")
+    void shouldKeepDefinitionsReferencedByPath() throws Exception {
+        JsonNode schema = objectMapper.readTree("""
+                {"type":"object",
+                 "properties":{
+                   "unit":{"$ref":"#/$defs/Reading/properties/unit"},
+                   "target":{"$ref":"#/$defs/Measurement/properties/unit"},
+                   "room":{"$ref":"#/$defs/area~1room"}},
+                 "$defs":{
+                   "Reading":{"type":"object","properties":{"unit":{"type":"string"}}},
+                   "Measurement":{"type":"object","properties":{"unit":{"type":"string"}}},
+                   "area/room":{"type":"string"}}}
+                """);
+
+        JsonNode compacted = compactor.compactSchema(schema);
+
+        assertThat(compacted.get("$defs").has("Reading")).isTrue();
+        assertThat(compacted.get("$defs").has("area/room")).isTrue();
+        assertThat(compacted.get("$defs").has("Measurement")).isFalse();
+        assertThat(compacted.get("properties").get("unit").get("$ref").asText())
+                .isEqualTo("#/$defs/Reading/properties/unit");
+        assertThat(compacted.get("properties").get("target").get("$ref").asText())
+                .isEqualTo("#/$defs/Reading/properties/unit");
+    }
+
+    @Test
+    @DisplayName("Should pass schemas through unchanged when disabled")
+    void shouldPassThroughWhenDisabled() throws Exception {
+        settings.setEnabled(false);
+        JsonNode schema = objectMapper.readTree("{\"type\":\"object\",\"title\":\"Args\"}");
+
+        assertThat(compactor.compactSchema(schema)).isSameAs(schema);
+    }
+}
@@ -0,0 +1,68 @@
+package at.altenburger.assistant.service;
+
+import at.altenburger.assistant.mcp.McpToolCallbackProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("AiOrchestrationService Tests")
+class AiOrchestrationServiceTest {
+
+    private final Sinks.Many<McpToolCallbackProvider.ToolEvent> toolEvents = Sinks.many().unicast().onBackpressureBuffer();
+
+    @Test
+    @DisplayName("Should stream tool events before the answer they lead to and complete with the answer")
+    void shouldMergeToolEventsIntoAnswer() {
+        Flux<AiOrchestrationService.StreamEvent> answer = Flux.defer(() -> {
+            // The model calls the tool before it writes the answer
+            toolEvents.tryEmitNext(toolEvent(McpToolCallbackProvider.ToolEvent.Type.STARTED));
+            toolEvents.tryEmitNext(toolEvent(McpToolCallbackProvider.ToolEvent.Type.FINISHED));
+            return Flux.just(AiOrchestrationService.StreamEvent.ofText("It is "),
+                    AiOrchestrationService.StreamEvent.ofText("12 degrees."));
+        });
+
+        List<AiOrchestrationService.StreamEvent> events = AiOrchestrationService.withToolEvents(answer, toolEvents)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(events).extracting(AiOrchestrationServiceTest::describe)
+                .containsExactly("tool STARTED", "tool FINISHED", "It is ", "12 degrees.");
+    }
+
+    @Test
+    @DisplayName("Should complete the tool events and pass on the error when the answer fails")
+    void shouldCompleteToolEventsOnError() {
+        Flux<AiOrchestrationService.StreamEvent> answer = Flux.defer(() -> {
+            toolEvents.tryEmitNext(toolEvent(McpToolCallbackProvider.ToolEvent.Type.STARTED));
+            return Flux.concat(Flux.just(AiOrchestrationService.StreamEvent.ofText("It is ")),
+                    Flux.error(new IllegalStateException("model unavailable")));
+        });
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        assertThatThrownBy(() -> AiOrchestrationService.withToolEvents(answer, toolEvents)
+                .doOnNext(event -> received.add(describe(event)))
+                .blockLast(Duration.ofSeconds(5)))
+                .hasMessage("model unavailable");
+
+        assertThat(received).containsExactly("tool STARTED", "It is ");
+        assertThat(toolEvents.tryEmitNext(toolEvent(McpToolCallbackProvider.ToolEvent.Type.FINISHED)))
+                .isEqualTo(Sinks.EmitResult.FAIL_TERMINATED);
+    }
+
+    private static McpToolCallbackProvider.ToolEvent toolEvent(McpToolCallbackProvider.ToolEvent.Type type) {
+        return new McpToolCallbackProvider.ToolEvent(type, 1, "home-assistant", "GetLiveContext",
+                null, null, null, null, null);
+    }
+
+    private static String describe(AiOrchestrationService.StreamEvent event) {
+        return event.toolEvent() != null ? "tool " + event.toolEvent().type() : event.text();
+    }
+}
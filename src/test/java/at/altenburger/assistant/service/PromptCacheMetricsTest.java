@@ -0,0 +1,65 @@
+package at.altenburger.assistant.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("PromptCacheMetrics Tests")
+class PromptCacheMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PromptCacheMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new PromptCacheMetrics(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should split prompt tokens into cache hits and misses")
+    void shouldCountCachedTokens() {
+        OpenAiApi.Usage openAiUsage = mock(OpenAiApi.Usage.class, RETURNS_DEEP_STUBS);
+        when(openAiUsage.promptTokens()).thenReturn(2048);
+        when(openAiUsage.promptTokensDetails().cachedTokens()).thenReturn(1536);
+
+        metrics.record(response(openAiUsage));
+
+        assertThat(tokens("hit")).isEqualTo(1536);
+        assertThat(tokens("miss")).isEqualTo(512);
+    }
+
+    @Test
+    @DisplayName("Should skip usage that was summed up over several calls")
+    void shouldSkipCumulativeUsage() {
+        metrics.record(response(null));
+        metrics.record(ChatResponse.builder().generations(List.of()).build());
+
+        assertThat(meterRegistry.find("llm.prompt.tokens").counters()).isEmpty();
+    }
+
+    private double tokens(String cache) {
+        return meterRegistry.get("llm.prompt.tokens").tag("model", "gpt-4o-mini").tag("cache", cache).counter().count();
+    }
+
+    private static ChatResponse response(Object nativeUsage) {
+        Usage usage = mock(Usage.class);
+        when(usage.getNativeUsage()).thenReturn(nativeUsage);
+        return ChatResponse.builder()
+                .generations(List.of())
+                .metadata(ChatResponseMetadata.builder().model("gpt-4o-mini").usage(usage).build())
+                .build();
+    }
+}
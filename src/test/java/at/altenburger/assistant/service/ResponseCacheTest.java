@@ -0,0 +1,150 @@
+package at.altenburger.assistant.service;
+
+import at.altenburger.assistant.config.CacheConfig;
+import at.altenburger.assistant.config.McpServerConfig;
+import at.altenburger.assistant.config.ResponseCacheConfig;
+import at.altenburger.assistant.mcp.McpDiscoveryService;
+import at.altenburger.assistant.mcp.McpToolCallbackProvider;
+import at.altenburger.assistant.service.anonymization.AnonymizationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("ResponseCache Tests")
+class ResponseCacheTest {
+
+    private final AnonymizationService anonymizationService = new AnonymizationService();
+    private ResponseCacheConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        config = new ResponseCacheConfig();
+        config.setEnabled(true);
+
+        McpServerConfig.ToolPolicy cacheable = new McpServerConfig.ToolPolicy();
+        cacheable.setCache(McpServerConfig.CachePolicy.TTL);
+        cacheable.setTtl(Duration.ofMinutes(5));
+        McpServerConfig.McpServer server = new McpServerConfig.McpServer();
+        server.setName("builtin");
+        server.setTools(Map.of("days_between", cacheable));
+        McpServerConfig mcpServerConfig = new McpServerConfig();
+        mcpServerConfig.setServers(List.of(server));
+        McpDiscoveryService mcpDiscoveryService = mock(McpDiscoveryService.class);
+        when(mcpDiscoveryService.getToolPolicy(anyString(), anyString())).thenAnswer(invocation ->
+                mcpServerConfig.getToolPolicy(invocation.getArgument(0), invocation.getArgument(1)));
+
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ResponseCache(config, mcpDiscoveryService,
+                new StaticListableBeanFactory().getBeanProvider(QuerySimilarity.class),
+                new CacheConfig().cacheManager(config), meterRegistry);
+    }
+
+    private ResponseCache.Key key(String query) {
+        return cache.key(query, List.of(), anonymizationService.anonymize(query));
+    }
+
+    @Test
+    @DisplayName("Should serve a repeated question regardless of case, spacing and punctuation")
+    void shouldServeRepeatedQuestion() {
+        cache.put(key("What is a monad?"), "A monoid in the category of endofunctors.", List.of(), 1_500_000_000L);
+
+        CachedResponse cached = cache.get(key("what is  a MONAD"));
+
+        assertThat(cached.response()).isEqualTo("A monoid in the category of endofunctors.");
+        assertThat(meterRegistry.get("llm.response.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.response.cache.latency.saved").timer().totalTime(TimeUnit.SECONDS))
+                .isEqualTo(1.5);
+    }
+
+    @Test
+    @DisplayName("Should keep answers of different conversations apart")
+    void shouldFingerprintConversation() {
+        String query = "And in German?";
+        cache.put(cache.key(query, List.of(new UserMessage("Translate cat"), new AssistantMessage("cat")),
+                anonymizationService.anonymize(query)), "Katze", List.of(), 0);
+
+        assertThat(cache.get(cache.key(query, List.of(new UserMessage("Translate dog"), new AssistantMessage("dog")),
+                anonymizationService.anonymize(query)))).isNull();
+        assertThat(cache.get(key(query))).isNull();
+    }
+
+    @Test
+    @DisplayName("Should only store answers based on cacheable tools, with the shortest TTL")
+    void shouldOnlyStoreCacheableToolAnswers() {
+        cache.put(key("How warm is it outside?"), "12 degrees",
+                List.of(new McpToolCallbackProvider.ToolCall("home-assistant", "GetLiveContext", 0, 40)), 0);
+        cache.put(key("How many days until Christmas?"), "67 days",
+                List.of(new McpToolCallbackProvider.ToolCall("builtin", "days_between", 0, 2)), 0);
+
+        assertThat(cache.get(key("How warm is it outside?"))).isNull();
+        CachedResponse cached = cache.get(key("How many days until Christmas?"));
+        assertThat(cached.ttl()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(cached.toolsUsed()).containsExactly("builtin:days_between");
+    }
+
+    @Test
+    @DisplayName("Should serve a similar question only when similarity lookup is enabled")
+    void shouldServeSimilarQuestion() {
+        cache.put(key("What is the capital of Austria?"), "Vienna", List.of(), 0);
+
+        assertThat(cache.get(key("Capital of Austria?"))).isNull();
+
+        config.setMinSimilarity(0.7);
+        assertThat(cache.get(key("Capital of Austria?")).response()).isEqualTo("Vienna");
+        assertThat(cache.get(key("Capital of France?"))).isNull();
+        assertThat(meterRegistry.get("llm.response.cache.requests").tag("result", "similar").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not serve the answer of a question with other numbers or the opposite switch")
+    void shouldNotServeSimilarQuestionWithOtherMeaning() {
+        config.setMinSimilarity(0.7);
+        cache.put(key("What is 2+2?"), "4", List.of(), 0);
+        cache.put(key("Turn on the light"), "The light is on.", List.of(), 0);
+
+        assertThat(cache.get(key("What is 3+3?"))).isNull();
+        assertThat(cache.get(key("Turn off the light"))).isNull();
+    }
+
+    @Test
+    @DisplayName("Should prepare cached questions once when storing them, not on every lookup")
+    void shouldPrepareCachedQuestionsOnce() {
+        List<String> prepared = new ArrayList<>();
+        TermSimilarity termSimilarity = new TermSimilarity();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("querySimilarity", (QuerySimilarity) query -> {
+            prepared.add(query);
+            return termSimilarity.prepare(query);
+        });
+        config.setMinSimilarity(0.7);
+        cache = new ResponseCache(config, mock(McpDiscoveryService.class),
+                beanFactory.getBeanProvider(QuerySimilarity.class),
+                new CacheConfig().cacheManager(config), meterRegistry);
+        cache.put(key("What is the capital of Austria?"), "Vienna", List.of(), 0);
+        cache.put(key("What is the capital of France?"), "Paris", List.of(), 0);
+
+        assertThat(cache.get(key("Capital of Austria?")).response()).isEqualTo("Vienna");
+        assertThat(cache.get(key("Capital of Italy?"))).isNull();
+
+        assertThat(prepared).containsExactly("what is the capital of austria", "what is the capital of france",
+                "capital of austria", "capital of italy");
+    }
+}
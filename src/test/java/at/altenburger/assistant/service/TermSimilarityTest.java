@@ -0,0 +1,45 @@
+package at.altenburger.assistant.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("TermSimilarity Tests")
+class TermSimilarityTest {
+
+    private final TermSimilarity similarity = new TermSimilarity();
+
+    @Test
+    @DisplayName("Should score rephrasings that reuse the same words")
+    void shouldScoreRephrasing() {
+        assertThat(similarity.similarity("what is the capital of austria", "capital of austria"))
+                .isCloseTo(0.707, within(0.001));
+        assertThat(similarity.similarity("turn on the kitchen light", "turn on the light in the kitchen"))
+                .isGreaterThan(0.85);
+    }
+
+    @Test
+    @DisplayName("Should not match questions that differ in a number or operator")
+    void shouldRequireSameNumbers() {
+        assertThat(similarity.similarity("what is 2+2", "what is 3+3")).isZero();
+        assertThat(similarity.similarity("what is 2+2", "what is 2*2")).isZero();
+        assertThat(similarity.similarity("dim the light to 30%", "dim the light to 80%")).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not match questions that differ in a negation or switch word")
+    void shouldRequireSameSwitchWords() {
+        assertThat(similarity.similarity("turn on the light", "turn off the light")).isZero();
+        assertThat(similarity.similarity("is the door locked", "isn't the door locked")).isZero();
+        assertThat(similarity.similarity("schalte das licht ein", "schalte das licht aus")).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep numbers, operators and short words as terms")
+    void shouldTokenizeAllTerms() {
+        assertThat(TermSimilarity.tokenize("What's 2+2 in C?"))
+                .containsExactly("what", "s", "2", "+", "2", "in", "c");
+    }
+}